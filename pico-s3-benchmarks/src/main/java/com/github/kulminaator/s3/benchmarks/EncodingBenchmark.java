@@ -0,0 +1,140 @@
+package com.github.kulminaator.s3.benchmarks;
+
+import com.github.kulminaator.s3.http.Encoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding done on every request, the legacy* methods are the implementations pico-s3 used before
+ * (String.format per byte, a string per char, a formatter per call, a regex per header) kept for comparison.
+ * Run with the gc profiler to see the allocations per operation (gc.alloc.rate.norm):
+ * <pre>java -jar target/benchmarks.jar EncodingBenchmark -prof gc</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final byte[] digest = sha256("the payload of a request");
+    private final String objectKey = "reports/2018/s€cret-subfolder/daily report (final).csv";
+    private final String longObjectKey = longKey();
+    private final String headerValue = "application/x-www-form-urlencoded;  charset=utf-8";
+    private final Instant now = Instant.parse("2018-09-08T01:02:03Z");
+
+    @Benchmark
+    public String legacyHex() {
+        final StringBuilder hexString = new StringBuilder();
+        for (final byte rawByte : this.digest) {
+            hexString.append(String.format("%02x", rawByte & 0XFF));
+        }
+        return hexString.toString().toLowerCase();
+    }
+
+    @Benchmark
+    public String hex() {
+        return Encoding.hex(this.digest);
+    }
+
+    @Benchmark
+    public String legacyUriEncode() {
+        return legacyUriEncode(this.objectKey);
+    }
+
+    @Benchmark
+    public String uriEncode() {
+        return Encoding.uriEncode(this.objectKey, false);
+    }
+
+    @Benchmark
+    public String legacyUriEncodeLongKey() {
+        return legacyUriEncode(this.longObjectKey);
+    }
+
+    @Benchmark
+    public String uriEncodeLongKey() {
+        return Encoding.uriEncode(this.longObjectKey, false);
+    }
+
+    private static String legacyUriEncode(String key) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < key.length(); i++) {
+            char ch = key.charAt(i);
+            if ((ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z')
+                    || (ch >= '0' && ch <= '9') || ch == '_' || ch == '-' || ch == '~' || ch == '.') {
+                result.append(ch);
+            } else if (ch == '/') {
+                result.append(ch);
+            } else {
+                final byte[] raw = ("" + ch).getBytes(StandardCharsets.UTF_8);
+                final StringBuilder hexString = new StringBuilder();
+                for (final byte rawByte : raw) {
+                    hexString.append("%");
+                    hexString.append(String.format("%02X", rawByte & 0XFF));
+                }
+                result.append(hexString.toString().toUpperCase());
+            }
+        }
+        return result.toString();
+    }
+
+    @Benchmark
+    public String legacyDateTime() {
+        return this.now.atZone(ZoneId.of("UTC")).format(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'"));
+    }
+
+    @Benchmark
+    public String dateTime() {
+        return DATE_TIME_FORMAT.format(this.now);
+    }
+
+    @Benchmark
+    public String legacyCollapseSpaces() {
+        return this.headerValue.replaceAll(" +", " ");
+    }
+
+    @Benchmark
+    public String collapseSpaces() {
+        return Encoding.collapseSpaces(this.headerValue);
+    }
+
+    /**
+     * A key near the 1024 byte limit of S3, mostly ascii with some characters that need encoding.
+     */
+    private static String longKey() {
+        final StringBuilder key = new StringBuilder();
+        while (key.length() < 900) {
+            key.append("archive/").append(key.length()).append("/kuu-ja-päike €uro_report-");
+        }
+        return key.append(".csv").toString();
+    }
+
+    private static byte[] sha256(String data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
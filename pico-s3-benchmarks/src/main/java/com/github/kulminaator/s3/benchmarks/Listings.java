@@ -0,0 +1,37 @@
+package com.github.kulminaator.s3.benchmarks;
+
+/**
+ * Builds ListObjectsV2 responses shaped like the ones S3 sends.
+ */
+final class Listings {
+
+    private Listings() {
+    }
+
+    /**
+     * @param keys Number of keys in the page.
+     * @param continuationToken Next continuation token, null for the last page.
+     * @return The xml of the listing page.
+     */
+    static String listingXml(int keys, String continuationToken) {
+        final StringBuilder xml = new StringBuilder(keys * 300);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>benchmark-bucket</Name><Prefix></Prefix>")
+                .append("<KeyCount>").append(keys).append("</KeyCount>")
+                .append("<MaxKeys>1000</MaxKeys>")
+                .append("<IsTruncated>").append(continuationToken != null).append("</IsTruncated>");
+        for (int i = 0; i < keys; i++) {
+            xml.append("<Contents><Key>reports/2018/09/daily-report-").append(i).append(".csv</Key>")
+                    .append("<LastModified>2018-09-23T10:34:17.000Z</LastModified>")
+                    .append("<ETag>&quot;4e4d609b8d37347fcff94f20543e1d0e&quot;</ETag>")
+                    .append("<Size>").append(1000 + i).append("</Size>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        if (continuationToken != null) {
+            xml.append("<NextContinuationToken>").append(continuationToken).append("</NextContinuationToken>");
+        }
+        xml.append("</ListBucketResult>");
+        return xml.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.kulminaator.s3.benchmarks;
+
+import com.github.kulminaator.s3.S3Object;
+import com.github.kulminaator.s3.xml.S3XmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of one full listing page (1000 keys, the most S3 returns per request), DOM based parseObjectsFromXml
+ * against the single pass parseListing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlParsingBenchmark {
+
+    private final String listing = Listings.listingXml(1000, "14A3Bj7/8L49hvCZhqecpzT5OMIu7FwVz483Lmh3zo2HCC0J");
+    private final byte[] listingBytes = this.listing.getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public List<S3Object> parseObjectsFromXml() {
+        final Document document = S3XmlParser.parseS3Xml(this.listing);
+        final List<S3Object> objects = S3XmlParser.parseObjectsFromXml(document);
+        S3XmlParser.getNextContinuationToken(document);
+        return objects;
+    }
+
+    @Benchmark
+    public List<S3Object> parseListing() {
+        final List<S3Object> objects = new ArrayList<>(1000);
+        S3XmlParser.parseListing(new ByteArrayInputStream(this.listingBytes), objects::add);
+        return objects;
+    }
+}
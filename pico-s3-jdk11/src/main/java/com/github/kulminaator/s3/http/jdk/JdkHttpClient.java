@@ -0,0 +1,193 @@
+package com.github.kulminaator.s3.http.jdk;
+
+import com.github.kulminaator.s3.http.AsyncHttpClient;
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.http.HttpStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Http client on top of the jdk 11 java.net.http client. The jdk client pools connections itself, talks http/2
+ * to hosts that offer it and does its io without parking a thread per request, so makeRequestAsync can have
+ * hundreds of requests in flight from a handful of threads.
+ *
+ * The connect timeout is a property of the whole client (see Builder), the read timeout of HttpRequest is used
+ * as the timeout of each request.
+ */
+public class JdkHttpClient implements HttpClient, AsyncHttpClient {
+
+    // the jdk client sets these itself and refuses them from the caller
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+
+    private final java.net.http.HttpClient client;
+
+    public JdkHttpClient() {
+        this(java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .build());
+    }
+
+    public JdkHttpClient(java.net.http.HttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public HttpResponse makeRequest(HttpRequest request) throws IOException {
+        try {
+            final java.net.http.HttpResponse<byte[]> response = this.client.send(this.buildRequest(request),
+                    java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+            return this.toResponse(response);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.getHost());
+        }
+    }
+
+    @Override
+    public HttpResponse makeStreamingRequest(HttpRequest request) throws IOException {
+        try {
+            final java.net.http.HttpResponse<InputStream> response = this.client.send(this.buildRequest(request),
+                    java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+            if (!isSuccessful(response.statusCode())) {
+                final byte[] errorBody;
+                try (InputStream input = response.body()) {
+                    errorBody = input.readAllBytes();
+                }
+                throw unexpectedResponse(response, errorBody);
+            }
+            final HttpResponse result = this.buildResponse(response);
+            result.setBodyStream(response.body());
+            return result;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.getHost());
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> makeRequestAsync(HttpRequest request) {
+        return this.client.sendAsync(this.buildRequest(request), java.net.http.HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(this::toResponse);
+    }
+
+    private java.net.http.HttpRequest buildRequest(HttpRequest request) {
+        final java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder()
+                .uri(URI.create(this.buildUrlString(request)))
+                .method(request.getMethod(), this.buildBody(request));
+        if (request.getReadTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(request.getReadTimeout()));
+        }
+        for (final Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                builder.header(header.getKey(), String.join(";", header.getValue()));
+            }
+        }
+        return builder.build();
+    }
+
+    private java.net.http.HttpRequest.BodyPublisher buildBody(HttpRequest request) {
+        if (request.getBodyStream() != null) {
+            final InputStream bodyStream = request.getBodyStream();
+            return java.net.http.HttpRequest.BodyPublishers.fromPublisher(
+                    java.net.http.HttpRequest.BodyPublishers.ofInputStream(() -> bodyStream),
+                    request.getBodyLength());
+        }
+        if (request.getBody().length > 0) {
+            return java.net.http.HttpRequest.BodyPublishers.ofByteArray(request.getBody());
+        }
+        return java.net.http.HttpRequest.BodyPublishers.noBody();
+    }
+
+    private HttpResponse toResponse(java.net.http.HttpResponse<byte[]> response) {
+        if (!isSuccessful(response.statusCode())) {
+            throw unexpectedResponse(response, response.body());
+        }
+        final HttpResponse result = this.buildResponse(response);
+        result.setBody(response.body());
+        return result;
+    }
+
+    private HttpResponse buildResponse(java.net.http.HttpResponse<?> response) {
+        final HttpResponse result = new HttpResponse();
+        result.setHttpCode(response.statusCode());
+        result.setHeaders(response.headers().map());
+        return result;
+    }
+
+    private String buildUrlString(HttpRequest request) {
+        final StringBuilder pathBuilder = new StringBuilder();
+        pathBuilder.append(request.getProtocol())
+                .append("://")
+                .append(request.getHost())
+                .append(request.getPath());
+        if (request.getParams() != null) {
+            pathBuilder.append("?");
+            pathBuilder.append(request.getParams());
+        }
+        return pathBuilder.toString();
+    }
+
+    /**
+     * 304 Not Modified only comes to conditional requests, it answers the question the caller asked.
+     */
+    private static boolean isSuccessful(int responseCode) {
+        return (responseCode >= 200 && responseCode <= 299) || responseCode == 304;
+    }
+
+    private static HttpStatusException unexpectedResponse(java.net.http.HttpResponse<?> response, byte[] errorBody) {
+        return new HttpStatusException(response.statusCode(), response.headers().map(), errorBody);
+    }
+
+    public static class Builder {
+        private Duration connectTimeout;
+        private Executor executor;
+        private java.net.http.HttpClient.Version version = java.net.http.HttpClient.Version.HTTP_2;
+
+        public Builder withConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param executor Executor for the jdk client's own tasks and for completing the futures.
+         */
+        public Builder withExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Http/2 is used where the server supports it, use this to force http/1.1.
+         */
+        public Builder withVersion(java.net.http.HttpClient.Version version) {
+            this.version = version;
+            return this;
+        }
+
+        public JdkHttpClient build() {
+            final java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                    .version(this.version);
+            if (this.connectTimeout != null) {
+                builder.connectTimeout(this.connectTimeout);
+            }
+            if (this.executor != null) {
+                builder.executor(this.executor);
+            }
+            return new JdkHttpClient(builder.build());
+        }
+    }
+}
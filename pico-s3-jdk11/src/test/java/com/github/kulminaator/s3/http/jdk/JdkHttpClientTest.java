@@ -0,0 +1,164 @@
+package com.github.kulminaator.s3.http.jdk;
+
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class JdkHttpClientTest {
+
+    private HttpServer server;
+    private final Map<String, byte[]> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final AtomicInteger maxInProgress = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/slow-object", exchange -> {
+            final int current = this.inProgress.incrementAndGet();
+            this.maxInProgress.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.inProgress.decrementAndGet();
+            this.respond(exchange, 200, "slow");
+        });
+        this.server.createContext("/upload", exchange -> {
+            try (InputStream input = exchange.getRequestBody()) {
+                this.uploads.put(exchange.getRequestMethod() + " " + exchange.getRequestHeaders().getFirst("X-Test"),
+                        input.readAllBytes());
+            }
+            exchange.getResponseHeaders().add("ETag", "\"uploaded\"");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        this.server.createContext("/missing", exchange ->
+                this.respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>"));
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void keeps_many_requests_in_flight_without_a_thread_each() {
+        // given
+        final JdkHttpClient client = new JdkHttpClient.Builder()
+                .withExecutor(Executors.newFixedThreadPool(2))
+                .build();
+
+        // when
+        final List<CompletableFuture<HttpResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            responses.add(client.makeRequestAsync(this.buildRequest("GET", "/slow-object")));
+        }
+
+        // then
+        for (final CompletableFuture<HttpResponse> response : responses) {
+            assertEquals("slow", new String(response.join().getBody(), StandardCharsets.UTF_8));
+        }
+        assertTrue(this.maxInProgress.get() > 2);
+    }
+
+    @Test
+    public void sends_bodies_and_headers() throws IOException {
+        // given
+        final JdkHttpClient client = new JdkHttpClient();
+        final HttpRequest bytesRequest = this.buildRequest("PUT", "/upload");
+        bytesRequest.setHeader("X-Test", "bytes");
+        bytesRequest.setHeader("Host", "ignored.example.com");
+        bytesRequest.setBody("from bytes".getBytes(StandardCharsets.UTF_8));
+        final HttpRequest streamRequest = this.buildRequest("PUT", "/upload");
+        streamRequest.setHeader("X-Test", "stream");
+        final byte[] streamed = "from stream".getBytes(StandardCharsets.UTF_8);
+        streamRequest.setBodyStream(new ByteArrayInputStream(streamed), streamed.length);
+
+        // when
+        final HttpResponse response = client.makeRequest(bytesRequest);
+        client.makeRequest(streamRequest);
+
+        // then
+        assertEquals(200, response.getHttpCode());
+        assertEquals("\"uploaded\"", response.getHeaders().get("ETag").get(0));
+        assertEquals("from bytes", new String(this.uploads.get("PUT bytes"), StandardCharsets.UTF_8));
+        assertEquals("from stream", new String(this.uploads.get("PUT stream"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void streams_response_body() throws IOException {
+        // given
+        final JdkHttpClient client = new JdkHttpClient();
+
+        // when
+        final HttpResponse response = client.makeStreamingRequest(this.buildRequest("GET", "/slow-object"));
+
+        // then
+        try (InputStream stream = response.getBodyStream()) {
+            assertEquals("slow", new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void fails_on_error_codes() {
+        // given
+        final JdkHttpClient client = new JdkHttpClient();
+
+        // when
+        Throwable thrown = null;
+        try {
+            client.makeRequestAsync(this.buildRequest("GET", "/missing")).join();
+        } catch (CompletionException e) {
+            thrown = e.getCause();
+        }
+
+        // then
+        assertTrue(thrown instanceof IllegalStateException);
+        assertTrue(thrown.getMessage().contains("404"));
+        assertTrue(thrown.getMessage().contains("NoSuchKey"));
+    }
+
+    private HttpRequest buildRequest(String method, String path) {
+        final HttpRequest request = new HttpRequest();
+        request.setMethod(method);
+        request.setProtocol("http");
+        request.setHost("127.0.0.1:" + this.server.getAddress().getPort());
+        request.setPath(path);
+        request.setConnectTimeout(5000);
+        request.setReadTimeout(5000);
+        return request;
+    }
+
+    private void respond(HttpExchange exchange, int code, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
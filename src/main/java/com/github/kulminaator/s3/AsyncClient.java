@@ -0,0 +1,56 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.options.PutObjectOptions;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking variant of the Client calls. The futures complete exceptionally with S3AccessException (or the
+ * exception of the http client) in case there's a communication issue with s3, with S3ServiceException in case s3
+ * answered with an error. With an http client that implements
+ * AsyncHttpClient no thread waits for the network, otherwise the calls run on the executor of the client.
+ */
+public interface AsyncClient {
+    /**
+     * Fetches object data (size, last modified at etc.)
+     * @param bucket Name of the bucket where the object is.
+     * @param object Path to the object inside the bucket.
+     * @return The data describing the object (but not the contents of the object).
+     */
+    CompletableFuture<S3Object> getObjectAsync(String bucket, String object);
+
+    /**
+     * List objects in the bucket.
+     * @param bucket Name of the bucket
+     * @return List of s3 objects.
+     */
+    CompletableFuture<List<S3Object>> listObjectsAsync(String bucket);
+
+    /**
+     * List objects in bucket under the prefix.
+     * @param bucket Name of the bucket.
+     * @param prefix The prefix of all objects.
+     * @return List of s3 objects.
+     */
+    CompletableFuture<List<S3Object>> listObjectsAsync(String bucket, String prefix);
+
+    /**
+     * Fetches the object from S3 into a byte array.
+     * @param bucket Name of the bucket.
+     * @param object Name of the object.
+     * @return The raw data in bytes.
+     */
+    CompletableFuture<byte[]> getObjectDataAsync(String bucket, String object);
+
+    /**
+     * Creates the named file in the S3, see Client.putObject.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param data Binary data of the file.
+     * @param options Specific s3 object options.
+     * @return Future that completes once S3 has stored the object.
+     */
+    CompletableFuture<Void> putObjectAsync(String bucket, String object, byte[] data, PutObjectOptions options);
+}
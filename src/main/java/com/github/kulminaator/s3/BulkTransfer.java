@@ -0,0 +1,65 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.options.BulkOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs one transfer per key on an executor, at most maxConcurrency at a time. A key is taken from the collection
+ * only once a transfer slot is free, so neither queued tasks nor their results pile up. A failing key does not stop
+ * the others, its exception is reported at the end.
+ */
+class BulkTransfer {
+
+    interface KeyTransfer {
+        void transfer(String key) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final BulkOptions options;
+
+    BulkTransfer(ExecutorService executor, BulkOptions options) {
+        this.executor = executor;
+        this.options = options;
+    }
+
+    /**
+     * @return The exception of every key that failed, empty if all succeeded.
+     */
+    Map<String, Exception> run(Iterable<String> keys, KeyTransfer transfer) throws S3AccessException {
+        final int maxConcurrency = this.options.getMaxConcurrency();
+        final Semaphore inFlight = new Semaphore(maxConcurrency);
+        final Map<String, Exception> failures = new ConcurrentHashMap<>();
+        try {
+            for (final String key : keys) {
+                inFlight.acquire();
+                try {
+                    this.executor.execute(() -> {
+                        try {
+                            transfer.transfer(key);
+                        } catch (Exception exception) {
+                            failures.put(key, exception);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException exception) {
+                    inFlight.release();
+                    throw new S3AccessException("Executor refused the transfer of " + key, exception);
+                }
+            }
+            // every permit back means every transfer has finished
+            inFlight.acquire(maxConcurrency);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new S3AccessException("Interrupted while transferring objects", exception);
+        }
+        return new HashMap<>(failures);
+    }
+}
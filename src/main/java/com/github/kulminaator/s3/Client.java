@@ -1,11 +1,27 @@
 package com.github.kulminaator.s3;
 
 import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.options.BulkOptions;
+import com.github.kulminaator.s3.options.ListObjectsOptions;
+import com.github.kulminaator.s3.options.MultipartUploadOptions;
+import com.github.kulminaator.s3.options.ParallelListOptions;
 import com.github.kulminaator.s3.options.PutObjectOptions;
+import com.github.kulminaator.s3.options.RangedDownloadOptions;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
+/**
+ * Blocking s3 calls. Failures are thrown as S3AccessException, error responses of s3 (e.g. NoSuchKey, AccessDenied)
+ * as its subclass S3ServiceException with the http code, s3 error code and request id.
+ */
 public interface Client {
     /**
      * Fetches object data (size, last modified at etc.)
@@ -35,8 +51,63 @@ public interface Client {
     List<S3Object> listObjects(String bucket, String prefix) throws S3AccessException;
 
     /**
-     * Fetches the object from S3, buffers it into a byte array and provides input stream to the byte array.
-     * Obviously not ideal for huge transfers (support for these will come later).
+     * Lists objects in bucket under the prefix lazily, the pages are fetched as the iterator moves forward.
+     * The methods of the iterator throw S3AccessException in case there's a communication issue with s3.
+     *
+     * @param bucket Name of the bucket.
+     * @param prefix The prefix of all objects, null for all objects.
+     * @return Iterator over the s3 objects, in the order s3 lists them.
+     */
+    Iterator<S3Object> listObjectsIterator(String bucket, String prefix);
+
+    /**
+     * Lists objects in bucket lazily, the pages are fetched as the iterator moves forward.
+     * The methods of the iterator throw S3AccessException in case there's a communication issue with s3.
+     *
+     * @param bucket Name of the bucket.
+     * @param options Prefix, delimiter, page size and start key of the listing.
+     * @return Iterator over the s3 objects, in the order s3 lists them. With a delimiter the common prefixes are
+     * listed among them as entries with isPrefix true.
+     */
+    Iterator<S3Object> listObjectsIterator(String bucket, ListObjectsOptions options);
+
+    /**
+     * Same as listObjectsIterator, as a sequential stream. Short circuiting operations (limit, findFirst,
+     * anyMatch...) stop the listing, no further pages are requested.
+     *
+     * @param bucket Name of the bucket.
+     * @param prefix The prefix of all objects, null for all objects.
+     * @return Stream of the s3 objects, in the order s3 lists them.
+     */
+    Stream<S3Object> listObjectsStream(String bucket, String prefix);
+
+    /**
+     * Same as listObjectsIterator, as a sequential stream. Short circuiting operations (limit, findFirst,
+     * anyMatch...) stop the listing, no further pages are requested.
+     *
+     * @param bucket Name of the bucket.
+     * @param options Prefix, delimiter, page size and start key of the listing.
+     * @return Stream of the s3 objects, in the order s3 lists them. With a delimiter the common prefixes are
+     * listed among them as entries with isPrefix true.
+     */
+    Stream<S3Object> listObjectsStream(String bucket, ListObjectsOptions options);
+
+    /**
+     * Lists objects in bucket as shards walked in parallel, for buckets too big to list one page after another.
+     * The shards are the common prefixes one level below the prefix, or the key ranges between the split points of
+     * the options. Close the stream (or read it to the end) to stop the listing.
+     * The stream operations throw S3AccessException in case there's a communication issue with s3.
+     *
+     * @param bucket Name of the bucket.
+     * @param options Prefix, how to shard, concurrency and whether to keep the listing order.
+     * @return Stream of the s3 objects, in the order s3 lists them only if the options ask for it.
+     */
+    Stream<S3Object> listObjectsParallel(String bucket, ParallelListOptions options);
+
+    /**
+     * Fetches the object from S3 and provides the response body as a live stream, nothing is buffered up front, so
+     * objects of any size can be read with the memory of a single read buffer. The stream holds the http connection,
+     * close it once you are done reading.
      * @param bucket Name of the bucket.
      * @param object Name of the object.
      * @return InputStream to the raw data in bytes.
@@ -44,6 +115,43 @@ public interface Client {
      */
     InputStream getObjectDataAsInputStream(String bucket, String object) throws S3AccessException;
 
+    /**
+     * Fetches the object as byte ranges in parallel and reassembles them into one ordered stream. The ranges are
+     * read ahead of the consumer, but never more than the allowed concurrency, so memory stays bounded to range
+     * size times concurrency. Worth it for big objects where a single connection is the bottleneck.
+     * @param bucket Name of the bucket.
+     * @param object Name of the object.
+     * @param options Range size and concurrency.
+     * @return InputStream to the raw data in bytes, close it to stop the read-ahead.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    InputStream getObjectDataAsInputStream(String bucket, String object, RangedDownloadOptions options)
+            throws S3AccessException;
+
+    /**
+     * Downloads the object into a local file, the byte ranges are fetched in parallel and written straight into
+     * the file at their offsets. An existing file is overwritten.
+     * @param bucket Name of the bucket.
+     * @param object Name of the object.
+     * @param file The file to write.
+     * @param options Range size and concurrency.
+     * @throws S3AccessException In case there's a communication issue with s3 or the file cannot be written.
+     */
+    void getObjectToFile(String bucket, String object, Path file, RangedDownloadOptions options)
+            throws S3AccessException;
+
+    /**
+     * Fetches one byte range of the object as a stream.
+     * @param bucket Name of the bucket.
+     * @param object Name of the object.
+     * @param first Position of the first byte, starting from 0.
+     * @param last Position of the last byte (inclusive).
+     * @return InputStream to the raw data in bytes, close it once done.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    InputStream getObjectRangeAsInputStream(String bucket, String object, long first, long last)
+            throws S3AccessException;
+
     /**
      * Assumes that object is text data and encoded as utf-8. Returns the contents as a String. Comfortable to use
      * in case you keep your config or template files as text based (json/yaml/ini/xml) files in S3.
@@ -79,4 +187,138 @@ public interface Client {
      * @throws S3AccessException In case there's a communication issue with s3.
      */
     void putObject(String bucket, String object, byte[] data, PutObjectOptions options) throws S3AccessException;
+
+    /**
+     * Creates the named file in the S3 by streaming the data, nothing is buffered beyond a single upload chunk. With
+     * credentials the upload is sent in the signed aws-chunked encoding, so the data is read exactly once.
+     *
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param data Stream providing the data of the file, it is read but not closed.
+     * @param length Exact number of bytes the stream will provide.
+     * @param options Specific s3 object options.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    void putObject(String bucket, String object, InputStream data, long length, PutObjectOptions options)
+            throws S3AccessException;
+
+    /**
+     * Creates the named file in the S3 by streaming the contents of a local file, see the InputStream variant.
+     *
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param file Local file to upload.
+     * @param options Specific s3 object options.
+     * @throws S3AccessException In case there's a communication issue with s3 or the file cannot be read.
+     */
+    void putObject(String bucket, String object, Path file, PutObjectOptions options) throws S3AccessException;
+
+    /**
+     * Uploads the stream as a multipart upload, parts are read one by one and uploaded in parallel. Meant for big
+     * objects (above ~100MB) where a single connection cannot fill the network link. Memory use stays bounded to
+     * part size times the allowed concurrency. Failed parts are retried, if a part fails for good the upload is
+     * aborted so no orphaned parts are left behind.
+     *
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param data Stream providing the data of the file, it is read to the end but not closed.
+     * @param options Part size, concurrency and the object options.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    void putObjectMultipart(String bucket, String object, InputStream data, MultipartUploadOptions options)
+            throws S3AccessException;
+
+    /**
+     * Uploads a local file as a multipart upload, see the InputStream variant.
+     *
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param file Local file to upload.
+     * @param options Part size, concurrency and the object options.
+     * @throws S3AccessException In case there's a communication issue with s3 or the file cannot be read.
+     */
+    void putObjectMultipart(String bucket, String object, Path file, MultipartUploadOptions options)
+            throws S3AccessException;
+
+    /**
+     * Fetches many objects in parallel, see the variant with options. Uses the default options.
+     */
+    Map<String, Exception> getObjects(String bucket, Collection<String> objects,
+                                      BiConsumer<String, InputStream> consumer) throws S3AccessException;
+
+    /**
+     * Fetches many objects in parallel and hands each to the consumer as a live stream, like
+     * getObjectDataAsInputStream. The consumer is called from several threads at once and the stream is closed
+     * once it returns. No more objects are requested than the consumer keeps up with, so memory stays bounded.
+     * A failing object does not stop the others.
+     * @param bucket Name of the bucket.
+     * @param objects Names of the objects.
+     * @param consumer Receives the name and the data of every object.
+     * @param options Concurrency and executor.
+     * @return The exception of every object that failed: S3AccessException (S3ServiceException for error
+     * responses) for s3 issues, or whatever the consumer threw. Empty if all succeeded.
+     * @throws S3AccessException If the transfers could not be started or the caller got interrupted.
+     */
+    Map<String, Exception> getObjects(String bucket, Collection<String> objects,
+                                      BiConsumer<String, InputStream> consumer, BulkOptions options)
+            throws S3AccessException;
+
+    /**
+     * Puts many objects in parallel, see the variant with options. Uses the default options.
+     */
+    Map<String, Exception> putObjects(String bucket, Map<String, byte[]> objects) throws S3AccessException;
+
+    /**
+     * Puts many objects in parallel, at most the allowed concurrency at a time. A failing object does not stop
+     * the others.
+     * @param bucket Bucket name.
+     * @param objects Data of the objects by object path.
+     * @param options Concurrency, executor and the put options used for every object.
+     * @return The exception of every object that failed, empty if all succeeded.
+     * @throws S3AccessException If the transfers could not be started or the caller got interrupted.
+     */
+    Map<String, Exception> putObjects(String bucket, Map<String, byte[]> objects, BulkOptions options)
+            throws S3AccessException;
+
+    /**
+     * Deletes the object. Deleting an object that does not exist is not an error.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    void deleteObject(String bucket, String object) throws S3AccessException;
+
+    /**
+     * Deletes the objects with multi-object delete requests of up to 1000 keys each, the requests are sent in
+     * parallel. Objects s3 refuses to delete (e.g. for lack of permissions) do not fail the call, check the results.
+     * @param bucket Bucket name.
+     * @param objects Object paths in bucket.
+     * @return A result per key, in the order of the keys given. No request is made for no keys.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    List<DeleteResult> deleteObjects(String bucket, Collection<String> objects) throws S3AccessException;
+
+    /**
+     * Makes a url that lets whoever holds it download the object without credentials of their own, until it
+     * expires. Nothing is sent to s3, the url is signed locally.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param expiresIn How long the url works, 1 second to 7 days. It stops working sooner if the credentials it
+     *                  was signed with expire.
+     * @return The url.
+     * @throws IllegalStateException If the client has no credentials provider to sign with.
+     */
+    String presignGet(String bucket, String object, Duration expiresIn);
+
+    /**
+     * Makes a url that lets whoever holds it upload the object with a plain http PUT without credentials of their
+     * own, until it expires. Nothing is sent to s3, the url is signed locally.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param expiresIn How long the url works, 1 second to 7 days. It stops working sooner if the credentials it
+     *                  was signed with expire.
+     * @return The url.
+     * @throws IllegalStateException If the client has no credentials provider to sign with.
+     */
+    String presignPut(String bucket, String object, Duration expiresIn);
 }
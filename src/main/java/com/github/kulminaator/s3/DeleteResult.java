@@ -0,0 +1,39 @@
+package com.github.kulminaator.s3;
+
+/**
+ * Outcome of deleting one object in a batch delete. Deleting a key that does not exist counts as deleted.
+ */
+public class DeleteResult {
+    private final String key;
+    private final String errorCode;
+    private final String errorMessage;
+
+    public DeleteResult(String key) {
+        this(key, null, null);
+    }
+
+    public DeleteResult(String key, String errorCode, String errorMessage) {
+        this.key = key;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public boolean isDeleted() {
+        return this.errorCode == null;
+    }
+
+    /**
+     * @return The S3 error code (e.g. AccessDenied) when the object was not deleted, null otherwise.
+     */
+    public String getErrorCode() {
+        return this.errorCode;
+    }
+
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+}
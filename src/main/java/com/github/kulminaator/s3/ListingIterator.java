@@ -0,0 +1,79 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.options.ListObjectsOptions;
+import com.github.kulminaator.s3.xml.ListingPage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks a listing page by page, the next page is requested only once the objects of the current one are used up.
+ * Abandoning the iterator costs nothing more than the page already fetched. With a delimiter the common prefixes
+ * come along as S3Object entries flagged with isPrefix.
+ */
+class ListingIterator implements Iterator<S3Object> {
+
+    private final PicoClient client;
+    private final String bucket;
+    private final ListObjectsOptions options;
+    private final ArrayDeque<S3Object> currentPage = new ArrayDeque<>();
+
+    private String continuation;
+    private boolean lastPageFetched;
+
+    ListingIterator(PicoClient client, String bucket, ListObjectsOptions options) {
+        this.client = client;
+        this.bucket = bucket;
+        this.options = options;
+    }
+
+    @Override
+    public boolean hasNext() {
+        // a page may hold no objects at all (e.g. only common prefixes) and still not be the last one
+        while (this.currentPage.isEmpty() && !this.lastPageFetched) {
+            final List<S3Object> objects = new ArrayList<>();
+            final ListingPage page = this.client.listPage(this.bucket, this.options, this.continuation,
+                    objects::add);
+            addPage(this.currentPage, objects, page.getCommonPrefixes());
+            this.continuation = page.getNextContinuationToken();
+            this.lastPageFetched = this.continuation == null;
+        }
+        return !this.currentPage.isEmpty();
+    }
+
+    @Override
+    public S3Object next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException("No more objects in " + this.bucket);
+        }
+        return this.currentPage.poll();
+    }
+
+    /**
+     * Adds the objects and the common prefixes of a page merged in key order, the order s3 lists them in.
+     */
+    static void addPage(Collection<S3Object> target, List<S3Object> objects, List<String> commonPrefixes) {
+        int prefixIndex = 0;
+        for (final S3Object object : objects) {
+            while (prefixIndex < commonPrefixes.size()
+                    && ParallelLister.compareKeys(commonPrefixes.get(prefixIndex), object.getKey()) < 0) {
+                target.add(toPrefixEntry(commonPrefixes.get(prefixIndex++)));
+            }
+            target.add(object);
+        }
+        while (prefixIndex < commonPrefixes.size()) {
+            target.add(toPrefixEntry(commonPrefixes.get(prefixIndex++)));
+        }
+    }
+
+    private static S3Object toPrefixEntry(String commonPrefix) {
+        final S3Object entry = new S3Object();
+        entry.setKey(commonPrefix);
+        entry.setPrefix(true);
+        return entry;
+    }
+}
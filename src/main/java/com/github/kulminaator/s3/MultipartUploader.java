@@ -0,0 +1,188 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.options.MultipartUploadOptions;
+import com.github.kulminaator.s3.retry.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads one stream as a multipart upload. The stream is cut into parts on the calling thread and the parts are
+ * uploaded on the executor. At most maxConcurrency parts are in flight and exactly as many part buffers exist, the
+ * reader waits for a free buffer before reading on. If any part fails for good the upload is aborted, but only after
+ * the parts still in flight have finished, so that none of them lands after the abort and keeps storage allocated.
+ *
+ * The part body is a stream the client tries only once, so the parts are retried here, as the client's RetryPolicy
+ * allows and up to maxPartAttempts times.
+ */
+class MultipartUploader {
+
+    private final PicoClient client;
+    private final ExecutorService executor;
+    private final MultipartUploadOptions options;
+
+    private final Semaphore inFlight;
+    private final BlockingQueue<byte[]> buffers;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    MultipartUploader(PicoClient client, ExecutorService executor, MultipartUploadOptions options) {
+        this.client = client;
+        this.executor = executor;
+        this.options = options;
+        this.inFlight = new Semaphore(options.getMaxConcurrency());
+        this.buffers = new ArrayBlockingQueue<>(options.getMaxConcurrency());
+    }
+
+    void upload(String bucket, String object, InputStream data) throws S3AccessException {
+        final String uploadId = this.client.createMultipartUpload(bucket, object, this.options.getPutObjectOptions());
+        final List<Future<UploadedPart>> pendingParts = new ArrayList<>();
+        try {
+            this.submitParts(bucket, object, uploadId, data, pendingParts);
+            final List<UploadedPart> parts = new ArrayList<>(pendingParts.size());
+            for (final Future<UploadedPart> pendingPart : pendingParts) {
+                parts.add(pendingPart.get());
+            }
+            this.client.completeMultipartUpload(bucket, object, uploadId, parts);
+        } catch (Exception exception) {
+            // stops the retries of the parts still running
+            this.failure.compareAndSet(null, exception);
+            awaitQuietly(pendingParts);
+            this.abortQuietly(bucket, object, uploadId, exception);
+            if (exception instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // the first failure, not one of the parts skipped because of it
+            final Exception first = this.failure.get();
+            final Throwable cause = first instanceof ExecutionException ? first.getCause() : first;
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof S3AccessException) {
+                throw (S3AccessException) cause;
+            }
+            throw new S3AccessException("Multipart upload of " + object + " failed", (Exception) cause);
+        }
+    }
+
+    private void submitParts(String bucket, String object, String uploadId, InputStream data,
+                             List<Future<UploadedPart>> pendingParts) throws IOException, InterruptedException {
+        int partNumber = 1;
+        while (this.failure.get() == null) {
+            this.inFlight.acquire();
+            final byte[] buffer = this.takeBuffer();
+            final int length;
+            try {
+                length = readFully(data, buffer);
+            } catch (IOException exception) {
+                this.releaseBuffer(buffer);
+                throw exception;
+            }
+            // an empty stream still needs one (empty) part, otherwise a short read means we are done
+            if (length == 0 && partNumber > 1) {
+                this.releaseBuffer(buffer);
+                break;
+            }
+            if (partNumber > MultipartUploadOptions.Builder.MAX_PARTS) {
+                this.releaseBuffer(buffer);
+                throw new S3AccessException("Multipart upload of " + object + " needs more than "
+                        + MultipartUploadOptions.Builder.MAX_PARTS + " parts of " + buffer.length
+                        + " bytes, use a larger part size");
+            }
+            final int currentPart = partNumber++;
+            pendingParts.add(this.executor.submit(() -> this.uploadPart(bucket, object, uploadId, currentPart,
+                    buffer, length)));
+            if (length < buffer.length) {
+                break;
+            }
+        }
+    }
+
+    private UploadedPart uploadPart(String bucket, String object, String uploadId, int partNumber, byte[] buffer,
+                                    int length) throws Exception {
+        try {
+            if (this.failure.get() != null) {
+                throw new CancellationException("Multipart upload of " + object + " has already failed");
+            }
+            final RetryPolicy retryPolicy = this.client.getRetryPolicy();
+            final ChecksumAlgorithm checksumAlgorithm = this.options.getPutObjectOptions().getChecksumAlgorithm();
+            int attempt = 1;
+            while (true) {
+                try {
+                    return this.client.uploadPart(bucket, object, uploadId, partNumber, buffer, length,
+                            checksumAlgorithm);
+                } catch (RuntimeException exception) {
+                    if (attempt >= this.options.getMaxPartAttempts() || this.failure.get() != null
+                            || !retryPolicy.isRetryable(exception)) {
+                        throw exception;
+                    }
+                    Thread.sleep(retryPolicy.getDelayMillis(attempt, exception));
+                    attempt++;
+                }
+            }
+        } catch (Exception exception) {
+            this.failure.compareAndSet(null, exception);
+            throw exception;
+        } finally {
+            this.releaseBuffer(buffer);
+        }
+    }
+
+    private byte[] takeBuffer() {
+        final byte[] buffer = this.buffers.poll();
+        return buffer != null ? buffer : new byte[this.options.getPartSize()];
+    }
+
+    private void releaseBuffer(byte[] buffer) {
+        this.buffers.offer(buffer);
+        this.inFlight.release();
+    }
+
+    /**
+     * Waits for every submitted part, the ones not started yet skip themselves once the upload has failed. Their own
+     * failures are not interesting any more, the first failure is already on its way to the caller.
+     */
+    private static void awaitQuietly(List<Future<UploadedPart>> pendingParts) {
+        for (final Future<UploadedPart> pendingPart : pendingParts) {
+            try {
+                pendingPart.get();
+            } catch (ExecutionException ignored) {
+                // reported by the part that failed first
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void abortQuietly(String bucket, String object, String uploadId, Exception reason) {
+        try {
+            this.client.abortMultipartUpload(bucket, object, uploadId);
+        } catch (RuntimeException abortFailure) {
+            reason.addSuppressed(abortFailure);
+        }
+    }
+
+    private static int readFully(InputStream data, byte[] buffer) throws IOException {
+        int filled = 0;
+        while (filled < buffer.length) {
+            final int read = data.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,351 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.options.ListObjectsOptions;
+import com.github.kulminaator.s3.options.ParallelListOptions;
+import com.github.kulminaator.s3.xml.ListingPage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists a bucket as a set of key ranges (shards) walked concurrently on a ForkJoinPool. The shards are either the
+ * common prefixes found with one delimiter listing, or the ranges between caller given split points, listed with
+ * start-after and cut off past their last key.
+ *
+ * Each shard fetches one page per task. A shard stops fetching while it has a couple of unread pages buffered and
+ * only twice the pool parallelism of shards are live at once, so memory stays bounded however slow the reader is.
+ */
+class ParallelLister {
+
+    private static final int PAGES_BUFFERED_PER_SHARD = 2;
+
+    private final PicoClient client;
+    private final String bucket;
+    private final ParallelListOptions options;
+    private final ForkJoinPool pool;
+    private final boolean ownPool;
+    private final int maxLiveShards;
+
+    private final Object lock = new Object();
+    // in key order, so reading them one after another gives the order s3 lists in
+    private final List<Shard> shards = new ArrayList<>();
+    // unordered reading only, one entry per buffered page
+    private final ArrayDeque<Shard> readyShards = new ArrayDeque<>();
+    private int nextShard;
+    private int liveShards;
+    private Throwable failure;
+    private boolean closed;
+
+    ParallelLister(PicoClient client, String bucket, ParallelListOptions options) {
+        this.client = client;
+        this.bucket = bucket;
+        this.options = options;
+        this.ownPool = options.getPool() == null;
+        this.pool = this.ownPool ? new ForkJoinPool(options.getMaxConcurrency()) : options.getPool();
+        this.maxLiveShards = this.pool.getParallelism() * 2;
+    }
+
+    Stream<S3Object> stream() {
+        final int characteristics = this.options.isOrdered()
+                ? Spliterator.ORDERED | Spliterator.NONNULL
+                : Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergingIterator(), characteristics), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Compares keys the way s3 orders them, by their utf-8 bytes, which is the order of the unicode code points.
+     * String.compareTo differs from it for characters outside the basic multilingual plane.
+     */
+    static int compareKeys(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            final int firstCodePoint = first.codePointAt(i);
+            final int secondCodePoint = second.codePointAt(j);
+            if (firstCodePoint != secondCodePoint) {
+                return Integer.compare(firstCodePoint, secondCodePoint);
+            }
+            i += Character.charCount(firstCodePoint);
+            j += Character.charCount(secondCodePoint);
+        }
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+
+    private void discoverShards() {
+        if (this.options.getSplitPoints().isEmpty()) {
+            this.discoverShardsWithDelimiter();
+            return;
+        }
+        final TreeSet<String> splitPoints = new TreeSet<>(ParallelLister::compareKeys);
+        splitPoints.addAll(this.options.getSplitPoints());
+        String previous = null;
+        for (final String splitPoint : splitPoints) {
+            this.shards.add(new Shard(this.shardOptions(this.options.getPrefix(), previous), splitPoint));
+            previous = splitPoint;
+        }
+        this.shards.add(new Shard(this.shardOptions(this.options.getPrefix(), previous), null));
+    }
+
+    private void discoverShardsWithDelimiter() {
+        final ListObjectsOptions discoveryOptions = new ListObjectsOptions.Builder()
+                .withPrefix(this.options.getPrefix())
+                .withDelimiter(this.options.getDelimiter())
+                .withMaxKeys(this.options.getMaxKeys())
+                .build();
+        final List<S3Object> objects = new ArrayList<>();
+        final List<String> commonPrefixes = new ArrayList<>();
+        String continuation = null;
+        do {
+            final ListingPage page = this.client.listPage(this.bucket, discoveryOptions, continuation, objects::add);
+            commonPrefixes.addAll(page.getCommonPrefixes());
+            continuation = page.getNextContinuationToken();
+        } while (continuation != null);
+
+        // the objects right under the prefix sit in between the common prefixes, runs of them are shards of their
+        // own that are already listed
+        int objectIndex = 0;
+        for (final String commonPrefix : commonPrefixes) {
+            final List<S3Object> listed = new ArrayList<>();
+            while (objectIndex < objects.size() && compareKeys(objects.get(objectIndex).getKey(), commonPrefix) < 0) {
+                listed.add(objects.get(objectIndex++));
+            }
+            if (!listed.isEmpty()) {
+                this.shards.add(new Shard(listed));
+            }
+            this.shards.add(new Shard(this.shardOptions(commonPrefix, null), null));
+        }
+        if (objectIndex < objects.size()) {
+            this.shards.add(new Shard(new ArrayList<>(objects.subList(objectIndex, objects.size()))));
+        }
+    }
+
+    private ListObjectsOptions shardOptions(String prefix, String startAfter) {
+        return new ListObjectsOptions.Builder()
+                .withPrefix(prefix)
+                .withStartAfter(startAfter)
+                .withMaxKeys(this.options.getMaxKeys())
+                .build();
+    }
+
+    /**
+     * Runs on the pool, one page of the shard per call. Any failure, errors included, is handed to the consumer,
+     * otherwise it would wait for a page that never comes.
+     */
+    private void fetchPage(Shard shard) {
+        try {
+            this.readPage(shard);
+        } catch (Throwable throwable) {
+            synchronized (this.lock) {
+                if (this.failure == null) {
+                    this.failure = throwable;
+                }
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    private void readPage(Shard shard) {
+        final List<S3Object> page = new ArrayList<>();
+        final ListingPage listing = this.client.listPage(this.bucket, shard.listOptions, shard.continuation,
+                page::add);
+        boolean pastLastKey = false;
+        while (shard.lastKey != null && !page.isEmpty()
+                && compareKeys(page.get(page.size() - 1).getKey(), shard.lastKey) > 0) {
+            page.remove(page.size() - 1);
+            pastLastKey = true;
+        }
+
+        synchronized (this.lock) {
+            shard.fetching = false;
+            shard.continuation = listing.getNextContinuationToken();
+            shard.finished = pastLastKey || shard.continuation == null;
+            if (!page.isEmpty()) {
+                shard.pages.add(page);
+                if (!this.options.isOrdered()) {
+                    this.readyShards.add(shard);
+                }
+            }
+            if (shard.pages.size() < PAGES_BUFFERED_PER_SHARD) {
+                this.fetchNext(shard);
+            }
+            this.retireIfDone(shard);
+            this.lock.notifyAll();
+        }
+    }
+
+    // the methods below are called holding the lock
+
+    private void startShards() {
+        while (!this.closed && this.liveShards < this.maxLiveShards && this.nextShard < this.shards.size()) {
+            final Shard shard = this.shards.get(this.nextShard++);
+            this.liveShards++;
+            shard.started = true;
+            if (!this.options.isOrdered()) {
+                for (int i = 0; i < shard.pages.size(); i++) {
+                    this.readyShards.add(shard);
+                }
+            }
+            this.fetchNext(shard);
+        }
+    }
+
+    private void fetchNext(Shard shard) {
+        if (this.closed || shard.finished || shard.fetching) {
+            return;
+        }
+        shard.fetching = true;
+        this.pool.execute(() -> this.fetchPage(shard));
+    }
+
+    private List<S3Object> take(Shard shard) {
+        final List<S3Object> page = shard.pages.poll();
+        this.fetchNext(shard);
+        this.retireIfDone(shard);
+        return page;
+    }
+
+    private void retireIfDone(Shard shard) {
+        if (shard.finished && shard.pages.isEmpty() && shard.started && !shard.retired) {
+            shard.retired = true;
+            this.liveShards--;
+            this.startShards();
+        }
+    }
+
+    private void close() {
+        synchronized (this.lock) {
+            this.closed = true;
+        }
+        if (this.ownPool) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Errors are thrown as they are, runtime exceptions are returned for the caller to throw.
+     */
+    private RuntimeException rethrowable(Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        return new S3AccessException("Listing of " + this.bucket + " failed", (Exception) throwable);
+    }
+
+    private static final class Shard {
+        private final ListObjectsOptions listOptions;
+        // inclusive, null for no limit
+        private final String lastKey;
+        private final ArrayDeque<List<S3Object>> pages = new ArrayDeque<>();
+        private String continuation;
+        private boolean started;
+        private boolean fetching;
+        private boolean finished;
+        private boolean retired;
+
+        Shard(ListObjectsOptions listOptions, String lastKey) {
+            this.listOptions = listOptions;
+            this.lastKey = lastKey;
+        }
+
+        /**
+         * A shard listed already during the discovery.
+         */
+        Shard(List<S3Object> objects) {
+            this(null, null);
+            this.pages.add(objects);
+            this.finished = true;
+        }
+    }
+
+    private final class MergingIterator implements Iterator<S3Object> {
+
+        private final ArrayDeque<S3Object> currentPage = new ArrayDeque<>();
+        private boolean discovered;
+        private boolean exhausted;
+        private int orderedShard;
+
+        @Override
+        public boolean hasNext() {
+            if (!this.discovered) {
+                discoverShards();
+                this.discovered = true;
+                synchronized (lock) {
+                    startShards();
+                }
+            }
+            while (this.currentPage.isEmpty() && !this.exhausted) {
+                final List<S3Object> page = this.nextPage();
+                if (page == null) {
+                    this.exhausted = true;
+                    close();
+                } else {
+                    this.currentPage.addAll(page);
+                }
+            }
+            return !this.currentPage.isEmpty();
+        }
+
+        @Override
+        public S3Object next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("No more objects in " + bucket);
+            }
+            return this.currentPage.poll();
+        }
+
+        /**
+         * @return The next page to read, null once all shards are read.
+         */
+        private List<S3Object> nextPage() {
+            synchronized (lock) {
+                while (true) {
+                    if (failure != null) {
+                        close();
+                        throw rethrowable(failure);
+                    }
+                    if (options.isOrdered()) {
+                        if (this.orderedShard == shards.size()) {
+                            return null;
+                        }
+                        final Shard shard = shards.get(this.orderedShard);
+                        if (!shard.pages.isEmpty()) {
+                            return take(shard);
+                        }
+                        if (shard.finished) {
+                            this.orderedShard++;
+                            continue;
+                        }
+                    } else {
+                        final Shard shard = readyShards.poll();
+                        if (shard != null) {
+                            return take(shard);
+                        }
+                        if (liveShards == 0 && nextShard == shards.size()) {
+                            return null;
+                        }
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        throw new S3AccessException("Interrupted while listing " + bucket, exception);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -2,12 +2,29 @@ package com.github.kulminaator.s3;
 
 import com.github.kulminaator.s3.auth.CredentialsProvider;
 import com.github.kulminaator.s3.auth.PicoSignatureCalculator;
+import com.github.kulminaator.s3.cache.CachedObject;
+import com.github.kulminaator.s3.cache.MetadataCache;
+import com.github.kulminaator.s3.cache.ObjectCache;
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+import com.github.kulminaator.s3.checksum.ChecksumInputStream;
 import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.http.AsyncHttpClient;
+import com.github.kulminaator.s3.http.Encoding;
 import com.github.kulminaator.s3.http.HttpClient;
 import com.github.kulminaator.s3.http.HttpRequest;
 import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.http.HttpStatusException;
 import com.github.kulminaator.s3.http.PicoHttpClient;
+import com.github.kulminaator.s3.options.BulkOptions;
+import com.github.kulminaator.s3.options.ListObjectsOptions;
+import com.github.kulminaator.s3.options.MultipartUploadOptions;
+import com.github.kulminaator.s3.options.ParallelListOptions;
 import com.github.kulminaator.s3.options.PutObjectOptions;
+import com.github.kulminaator.s3.options.RangedDownloadOptions;
+import com.github.kulminaator.s3.retry.AdaptiveRateLimiter;
+import com.github.kulminaator.s3.retry.RetryPolicy;
+import com.github.kulminaator.s3.xml.ListingPage;
 import com.github.kulminaator.s3.xml.S3XmlParser;
 import org.w3c.dom.Document;
 
@@ -15,24 +32,65 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class PicoClient implements Client {
+public class PicoClient implements Client, AsyncClient {
 
     public static final int DEFAULT_CONNECT_TIMEOUT = 60_000;
     public static final int DEFAULT_READ_TIMEOUT = 60_000;
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final int DELETE_BATCH_SIZE = 1000;
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(?:(\\d+)|\\*)");
 
     private boolean https;
+    private boolean unsignedPayload;
+    private boolean checksumValidation;
     private final String region;
     private final String host;
     private HttpClient httpClient;
     private CredentialsProvider credentialsProvider;
     private int connectTimeout;
     private int readTimeout;
+    private ExecutorService executorService;
+    private ScheduledExecutorService scheduler;
+    private RetryPolicy retryPolicy;
+    private AdaptiveRateLimiter rateLimiter;
+    private ObjectCache objectCache;
+    private MetadataCache metadataCache;
+    private final PicoSignatureCalculator signatureCalculator = new PicoSignatureCalculator();
 
     private PicoClient(String region, String host) {
 		this.region = region;
@@ -41,23 +99,75 @@ public class PicoClient implements Client {
 
 	@Override
     public S3Object getObject(String bucket, String object) throws S3AccessException {
+        if (this.metadataCache != null) {
+            return this.metadataCache.get(cacheKey(bucket, object), key -> this.headObject(bucket, object));
+        }
+        return this.headObject(bucket, object);
+    }
+
+    @Override
+    public CompletableFuture<S3Object> getObjectAsync(String bucket, String object) {
+        if (this.metadataCache != null) {
+            return this.metadataCache.getAsync(cacheKey(bucket, object), key -> this.headObjectAsync(bucket, object));
+        }
+        return this.headObjectAsync(bucket, object);
+    }
+
+    /**
+     * Always asks s3, the metadata cache is not consulted. Ranged downloads take the size and ETag from here.
+     */
+    S3Object headObject(String bucket, String object) throws S3AccessException {
+        final CachedObject cached = this.getCached(bucket, object);
+        final HttpRequest request = this.buildObjectInfoRequest(bucket, object, cached);
+        return this.toObjectInfo(bucket, object, cached, this.makeCachedRequest(bucket, object, request));
+    }
+
+    private CompletableFuture<S3Object> headObjectAsync(String bucket, String object) {
+        final CachedObject cached = this.getCached(bucket, object);
+        return this.makeRequestAsync(() -> this.buildObjectInfoRequest(bucket, object, cached))
+                .whenComplete((response, failure) -> this.dropCachedIfGone(bucket, object, failure))
+                .thenApply(response -> this.toObjectInfo(bucket, object, cached, response));
+    }
+
+    private HttpRequest buildObjectInfoRequest(String bucket, String object, CachedObject cached) {
         final Map<String,List<String>> headers = new HashMap<>();
         final HttpRequest request = this.buildRequestBase("HEAD", bucket);
+        addRevalidationHeader(headers, cached);
         request.setHeaders(headers);
         request.setPath(this.getS3Path(object));
         this.secureRequest(request);
+        return request;
+    }
 
-        final HttpResponse response = this.makeRequest(request);
+    /**
+     * A HEAD has no body to cache, but a 304 answer to it confirms the cached copy and a changed ETag outdates it.
+     */
+    private S3Object toObjectInfo(String bucket, String object, CachedObject cached, HttpResponse response) {
+        if (cached == null) {
+            return this.toObjectInfo(object, response);
+        }
+        if (response.getHttpCode() == HTTP_NOT_MODIFIED) {
+            final S3Object result = new S3Object();
+            result.setKey(object);
+            result.setETag(cached.getETag());
+            result.setContentType(cached.getContentType());
+            result.setLastModified(cached.getLastModified());
+            result.setSize((long) cached.getData().length);
+            result.setServerSideEncryption(cached.getServerSideEncryption());
+            return result;
+        }
+        this.objectCache.remove(cacheKey(bucket, object));
+        return this.toObjectInfo(object, response);
+    }
+
+    private S3Object toObjectInfo(String object, HttpResponse response) {
         final S3Object result = new S3Object();
         result.setKey(object);
         result.setETag(this.extractResponseHeader(response, "ETag"));
         result.setContentType(this.extractResponseHeader(response, "Content-Type"));
         result.setLastModified(this.extractResponseHeader(response, "Last-Modified"));
         result.setSize(Long.valueOf(this.extractResponseHeader(response, "Content-Length")));
-
-        if (response.getHeaders().containsKey("x-amz-server-side-encryption")) {
-            result.setServerSideEncryption(this.extractResponseHeader(response, "x-amz-server-side-encryption"));
-        }
+        result.setServerSideEncryption(this.extractResponseHeader(response, "x-amz-server-side-encryption"));
         return result;
     }
 
@@ -69,21 +179,187 @@ public class PicoClient implements Client {
         request.setRegion(this.region);
         request.setConnectTimeout(this.connectTimeout);
         request.setReadTimeout(this.readTimeout);
+        request.setUnsignedPayload(this.unsignedPayload);
         return request;
     }
 
     private HttpResponse makeRequest(final HttpRequest httpRequest) throws S3AccessException {
+        return this.withRetries(httpRequest, () -> this.httpClient.makeRequest(httpRequest));
+    }
+
+    /**
+     * Runs the request without blocking the caller. The request is built (and signed) lazily, so the signature
+     * time is as close to sending as possible. Http clients that are asynchronous themselves are used directly,
+     * blocking ones run on the client executor.
+     */
+    private CompletableFuture<HttpResponse> makeRequestAsync(final Supplier<HttpRequest> requestSupplier) {
+        if (this.httpClient instanceof AsyncHttpClient) {
+            return this.makeRequestAsync((AsyncHttpClient) this.httpClient, requestSupplier, 1);
+        }
+        return CompletableFuture.supplyAsync(() -> this.makeRequest(requestSupplier.get()),
+                this.getExecutorService());
+    }
+
+    /**
+     * Retrying variant for asynchronous http clients, every attempt builds and signs the request anew. The waits
+     * for the rate limit and between attempts are scheduled, no thread sleeps through them.
+     */
+    private CompletableFuture<HttpResponse> makeRequestAsync(final AsyncHttpClient asyncHttpClient,
+                                                             final Supplier<HttpRequest> requestSupplier,
+                                                             final int attempt) {
+        final long rateLimitMillis = this.rateLimiter == null
+                ? 0
+                : TimeUnit.NANOSECONDS.toMillis(this.rateLimiter.reserve());
+        return this.schedule(rateLimitMillis, () -> asyncHttpClient.makeRequestAsync(requestSupplier.get()))
+                .handle((response, failure) -> {
+                    if (failure == null) {
+                        this.recordOutcome(null);
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause()
+                            : failure;
+                    final CompletableFuture<HttpResponse> failed = new CompletableFuture<>();
+                    if (!(cause instanceof Exception)) {
+                        failed.completeExceptionally(cause);
+                        return failed;
+                    }
+                    final Exception classified = this.classifyFailure((Exception) cause);
+                    this.recordOutcome(classified);
+                    if (this.retryPolicy.shouldRetry(attempt, classified)) {
+                        return this.schedule(this.retryPolicy.getDelayMillis(attempt, classified),
+                                () -> this.makeRequestAsync(asyncHttpClient, requestSupplier, attempt + 1));
+                    }
+                    failed.completeExceptionally(classified);
+                    return failed;
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<T> schedule(long delayMillis, Supplier<CompletableFuture<T>> action) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Runnable run = () -> {
+            try {
+                action.get().whenComplete((value, failure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (RuntimeException exception) {
+                result.completeExceptionally(exception);
+            }
+        };
+        if (delayMillis <= 0) {
+            run.run();
+        } else {
+            this.getScheduler().schedule(run, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    private HttpResponse makeStreamingRequest(final HttpRequest httpRequest) throws S3AccessException {
+        return this.withRetries(httpRequest, () -> this.httpClient.makeStreamingRequest(httpRequest));
+    }
+
+    /**
+     * Makes the attempts the retry policy allows. Every further attempt is signed again, so it carries a fresh
+     * date and the current credentials. Requests with a body stream are tried only once, the stream is used up.
+     */
+    private HttpResponse withRetries(final HttpRequest httpRequest, final HttpCall call) throws S3AccessException {
+        for (int attempt = 1; ; attempt++) {
+            this.awaitRateLimit();
+            try {
+                final HttpResponse response = call.call();
+                this.recordOutcome(null);
+                return response;
+            } catch (final IOException | RuntimeException exception) {
+                final Exception failure = this.classifyFailure(exception);
+                this.recordOutcome(failure);
+                if (httpRequest.getBodyStream() != null || !this.retryPolicy.shouldRetry(attempt, failure)) {
+                    if (failure instanceof IOException) {
+                        throw new S3AccessException(failure);
+                    }
+                    throw (RuntimeException) failure;
+                }
+                this.sleepBeforeRetry(this.retryPolicy.getDelayMillis(attempt, failure));
+                httpRequest.removeHeader("Authorization");
+                this.secureRequest(httpRequest);
+            }
+        }
+    }
+
+    /**
+     * Turns an error response into an S3ServiceException with the details of the s3 error document, the error is
+     * parsed once here so retries and callers can look at the fields. Other failures are returned as they are.
+     */
+    private Exception classifyFailure(Exception failure) {
+        if (!(failure instanceof HttpStatusException)) {
+            return failure;
+        }
+        final HttpStatusException statusException = (HttpStatusException) failure;
+        final byte[] body = statusException.getBody() == null ? new byte[0] : statusException.getBody();
+        final Map<String, String> error = S3XmlParser.parseError(new ByteArrayInputStream(body));
+        return this.buildServiceException(statusException.getHttpCode(), error,
+                statusException.getHeader("x-amz-request-id"), statusException);
+    }
+
+    private S3ServiceException buildServiceException(int httpCode, Map<String, String> error,
+                                                     String headerRequestId, Exception cause) {
+        final String errorCode = error.get("Code");
+        final String requestId = error.containsKey("RequestId") ? error.get("RequestId") : headerRequestId;
+        return new S3ServiceException(httpCode, errorCode, error.get("Message"), requestId,
+                this.retryPolicy.isRetryable(httpCode, errorCode), cause);
+    }
+
+    private void awaitRateLimit() throws S3AccessException {
+        if (this.rateLimiter == null) {
+            return;
+        }
         try {
-            return this.httpClient.makeRequest(httpRequest);
-        } catch (final IOException ioException) {
-            throw new S3AccessException(ioException);
+            this.rateLimiter.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new S3AccessException("Interrupted while waiting for the rate limit", exception);
+        }
+    }
+
+    private void recordOutcome(Exception failure) {
+        if (this.rateLimiter == null) {
+            return;
+        }
+        if (failure == null) {
+            this.rateLimiter.onSuccess();
+        } else if (this.retryPolicy.isThrottling(failure)) {
+            this.rateLimiter.onThrottle();
         }
     }
 
+    private void sleepBeforeRetry(long delayMillis) throws S3AccessException {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new S3AccessException("Interrupted while waiting to retry", exception);
+        }
+    }
+
+    private interface HttpCall {
+        HttpResponse call() throws IOException;
+    }
+
     private String extractResponseHeader(HttpResponse response, String headerName) {
         String headerValue = null;
         if (response.getHeaders().containsKey(headerName)) {
             headerValue = response.getHeaders().get(headerName).get(0);
+        } else {
+            // header names are case insensitive, not every server uses the canonical spelling
+            for (final Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+                if (headerName.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                    return header.getValue().get(0);
+                }
+            }
         }
         return headerValue;
     }
@@ -95,57 +371,222 @@ public class PicoClient implements Client {
 
     @Override
     public List<S3Object> listObjects(String bucket, String prefix) throws S3AccessException {
-        /*make a url request to  https://s3-eu-west-1.amazonaws.com/bucket/?list-type=2&start-after=prefix */
-        final Map<String,List<String>> headers = new HashMap<>();
-        final String listParams = "list-type=2";
-
-        boolean hasMorePages = true;
         final List<S3Object> finalList = new ArrayList<>();
-        String continuation = null;
+        this.listObjectsIterator(bucket, prefix).forEachRemaining(finalList::add);
+        return finalList;
+    }
 
-        while (hasMorePages) {
+    @Override
+    public Iterator<S3Object> listObjectsIterator(String bucket, String prefix) {
+        return this.listObjectsIterator(bucket, new ListObjectsOptions.Builder().withPrefix(prefix).build());
+    }
 
-            final StringBuilder paramsBuilder = new StringBuilder();
+    @Override
+    public Iterator<S3Object> listObjectsIterator(String bucket, ListObjectsOptions options) {
+        if (options.isPrefetch()) {
+            return new PrefetchingListingIterator(this, this.getExecutorService(), bucket, options);
+        }
+        return new ListingIterator(this, bucket, options);
+    }
 
-            if (continuation != null) {
-                paramsBuilder.append("continuation-token=");
-                paramsBuilder.append(uriEncode(continuation));
-                paramsBuilder.append("&");
-                paramsBuilder.append(listParams);
-            } else {
-                paramsBuilder.append(listParams);
-            }
+    @Override
+    public Stream<S3Object> listObjectsStream(String bucket, String prefix) {
+        return this.listObjectsStream(bucket, new ListObjectsOptions.Builder().withPrefix(prefix).build());
+    }
 
-            if (prefix != null) {
-                paramsBuilder.append("&prefix=");
-                paramsBuilder.append(uriEncode(prefix, true));
-            }
+    @Override
+    public Stream<S3Object> listObjectsStream(String bucket, ListObjectsOptions options) {
+        final Spliterator<S3Object> spliterator = Spliterators.spliteratorUnknownSize(
+                this.listObjectsIterator(bucket, options), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
 
-            final HttpRequest request = this.buildRequestBase("GET", bucket);
-            request.setHeaders(headers);
-            request.setPath(this.getS3Path(null));
-            request.setParams(paramsBuilder.toString());
+    @Override
+    public Stream<S3Object> listObjectsParallel(String bucket, ParallelListOptions options) {
+        return new ParallelLister(this, bucket, options).stream();
+    }
 
-            this.secureRequest(request);
+    /**
+     * Fetches one page of a listing.
+     * @param continuation Continuation token from the previous page, null for the first page.
+     * @param objectConsumer Receives the objects of the page.
+     * @return Paging details of the page.
+     */
+    ListingPage listPage(String bucket, ListObjectsOptions options, String continuation,
+                         Consumer<S3Object> objectConsumer) throws S3AccessException {
+        /*make a url request to  https://s3-eu-west-1.amazonaws.com/bucket/?list-type=2&start-after=prefix */
+        final HttpRequest request = this.buildListRequest(bucket, options, continuation);
+        return this.parseListing(this.makeRequest(request), objectConsumer);
+    }
 
-            final HttpResponse response = this.makeRequest(request);
+    /**
+     * Fetches one page of a listing, parsing it while it streams in.
+     * @param continuationTokenListener Receives the token of the next page as soon as it has been parsed.
+     */
+    ListingPage listPageStreaming(String bucket, ListObjectsOptions options, String continuation,
+                                  Consumer<S3Object> objectConsumer, Consumer<String> continuationTokenListener)
+            throws S3AccessException {
+        final HttpRequest request = this.buildListRequest(bucket, options, continuation);
+        try (InputStream body = this.makeStreamingRequest(request).getBodyStream()) {
+            return S3XmlParser.parseListing(body, objectConsumer, continuationTokenListener);
+        } catch (IOException exception) {
+            throw new S3AccessException(exception);
+        }
+    }
 
-            final Document s3ListingDocument = S3XmlParser.parseS3Xml(new String(response.getBody(),
-                    StandardCharsets.UTF_8));
+    @Override
+    public CompletableFuture<List<S3Object>> listObjectsAsync(String bucket) {
+        return this.listObjectsAsync(bucket, null);
+    }
 
-            final List<S3Object> collectedList = S3XmlParser.parseObjectsFromXml(s3ListingDocument);
-            finalList.addAll(collectedList);
+    @Override
+    public CompletableFuture<List<S3Object>> listObjectsAsync(String bucket, String prefix) {
+        final ListObjectsOptions options = new ListObjectsOptions.Builder().withPrefix(prefix).build();
+        return this.listPagesAsync(bucket, options, null, new ArrayList<>());
+    }
+
+    private CompletableFuture<List<S3Object>> listPagesAsync(String bucket, ListObjectsOptions options,
+                                                             String continuation, List<S3Object> collected) {
+        return this.makeRequestAsync(() -> this.buildListRequest(bucket, options, continuation))
+                .thenCompose(response -> {
+                    final String nextContinuation = this.parseListing(response, collected::add)
+                            .getNextContinuationToken();
+                    if (nextContinuation == null) {
+                        return CompletableFuture.completedFuture(collected);
+                    }
+                    return this.listPagesAsync(bucket, options, nextContinuation, collected);
+                });
+    }
 
-            continuation = S3XmlParser.getNextContinuationToken(s3ListingDocument);
-            hasMorePages = continuation != null;
+    private HttpRequest buildListRequest(String bucket, ListObjectsOptions options, String continuation) {
+        final Map<String,List<String>> headers = new HashMap<>();
+        // the signature needs the params sorted by name
+        final StringBuilder paramsBuilder = new StringBuilder();
+
+        if (continuation != null) {
+            paramsBuilder.append("continuation-token=");
+            Encoding.appendUriEncoded(paramsBuilder, continuation, true);
+            paramsBuilder.append("&");
+        }
+        if (options.getDelimiter() != null) {
+            paramsBuilder.append("delimiter=");
+            Encoding.appendUriEncoded(paramsBuilder, options.getDelimiter(), true);
+            paramsBuilder.append("&");
+        }
+        paramsBuilder.append("list-type=2");
+        if (options.getMaxKeys() > 0) {
+            paramsBuilder.append("&max-keys=").append(options.getMaxKeys());
+        }
+        if (options.getPrefix() != null) {
+            paramsBuilder.append("&prefix=");
+            Encoding.appendUriEncoded(paramsBuilder, options.getPrefix(), true);
+        }
+        // S3 ignores start-after once there is a continuation token
+        if (options.getStartAfter() != null && continuation == null) {
+            paramsBuilder.append("&start-after=");
+            Encoding.appendUriEncoded(paramsBuilder, options.getStartAfter(), true);
         }
 
-        return finalList;
+        final HttpRequest request = this.buildRequestBase("GET", bucket);
+        request.setHeaders(headers);
+        request.setPath(this.getS3Path(null));
+        request.setParams(paramsBuilder.toString());
+
+        this.secureRequest(request);
+        return request;
     }
 
     @Override
     public InputStream getObjectDataAsInputStream(String bucket, String object) throws S3AccessException {
-        return new ByteArrayInputStream(this.getObjectData(bucket, object));
+        final HttpRequest request = this.buildObjectDataRequest(bucket, object);
+        return this.checkedBodyStream(this.makeStreamingRequest(request));
+    }
+
+    @Override
+    public InputStream getObjectDataAsInputStream(String bucket, String object, RangedDownloadOptions options)
+            throws S3AccessException {
+        return new RangedDownloader(this, this.getExecutorService(), options).openStream(bucket, object);
+    }
+
+    @Override
+    public void getObjectToFile(String bucket, String object, Path file, RangedDownloadOptions options)
+            throws S3AccessException {
+        new RangedDownloader(this, this.getExecutorService(), options).downloadToFile(bucket, object, file);
+    }
+
+    @Override
+    public InputStream getObjectRangeAsInputStream(String bucket, String object, long first, long last)
+            throws S3AccessException {
+        return this.getObjectRange(bucket, object, first, last, null);
+    }
+
+    InputStream getObjectRange(String bucket, String object, long first, long last, String eTag)
+            throws S3AccessException {
+        final Map<String,List<String>> headers = new HashMap<>();
+        final HttpRequest request = this.buildRequestBase("GET", bucket);
+        headers.put("Range", Collections.singletonList("bytes=" + first + "-" + last));
+        if (eTag != null) {
+            headers.put("If-Match", Collections.singletonList(eTag));
+        }
+        request.setHeaders(headers);
+        request.setPath(this.getS3Path(object));
+        this.secureRequest(request);
+        final HttpResponse response = this.makeStreamingRequest(request);
+        try {
+            this.checkContentRange(response, object, first, last);
+        } catch (S3AccessException exception) {
+            closeQuietly(response.getBodyStream());
+            throw exception;
+        }
+        return response.getBodyStream();
+    }
+
+    /**
+     * A server that ignores the Range header answers 200 with the whole object, which must not pass as the range.
+     * The end may be short of the one asked for only where the object ends.
+     */
+    private void checkContentRange(HttpResponse response, String object, long first, long last) {
+        final String contentRange = response.getHeaders() == null ? null
+                : this.extractResponseHeader(response, "Content-Range");
+        if (response.getHttpCode() != HTTP_PARTIAL_CONTENT || contentRange == null) {
+            throw new S3AccessException("Expected 206 with Content-Range for bytes " + first + "-" + last + " of "
+                    + object + ", got " + response.getHttpCode());
+        }
+        final Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        final boolean matching;
+        if (matcher.matches() && Long.parseLong(matcher.group(1)) == first) {
+            final long end = Long.parseLong(matcher.group(2));
+            final long size = matcher.group(3) == null ? -1 : Long.parseLong(matcher.group(3));
+            matching = end == last || (end < last && end == size - 1);
+        } else {
+            matching = false;
+        }
+        if (!matching) {
+            throw new S3AccessException("Content-Range " + contentRange + " does not match bytes " + first + "-"
+                    + last + " of " + object);
+        }
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // the range is refused anyway
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getObjectDataAsync(String bucket, String object) {
+        final CachedObject cached = this.getCached(bucket, object);
+        final CompletableFuture<byte[]> data = this.makeRequestAsync(
+                        () -> this.buildObjectDataRequest(bucket, object, cached))
+                .whenComplete((response, failure) -> this.dropCachedIfGone(bucket, object, failure))
+                .thenApply(response -> this.toObjectData(bucket, object, cached, response));
+        // the caller owns the array it gets, the cache keeps its own
+        return this.objectCache == null ? data : data.thenApply(byte[]::clone);
     }
 
     @Override
@@ -163,14 +604,71 @@ public class PicoClient implements Client {
     public void putObject(String bucket, String object, byte[] data, PutObjectOptions putObjectOptions)
             throws S3AccessException
     {
+        final HttpRequest request = this.buildPutRequest(bucket, object, data.length, putObjectOptions);
+        request.setBody(data);
+        this.addChecksumHeaders(request, putObjectOptions, data);
+
+        this.secureRequest(request);
+
+        try {
+            this.makeRequest(request);
+        } finally {
+            this.objectChanged(bucket, object);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> putObjectAsync(String bucket, String object, byte[] data,
+                                                  PutObjectOptions putObjectOptions) {
+        return this.makeRequestAsync(() -> {
+            final HttpRequest request = this.buildPutRequest(bucket, object, data.length, putObjectOptions);
+            request.setBody(data);
+            this.addChecksumHeaders(request, putObjectOptions, data);
+            this.secureRequest(request);
+            return request;
+        }).whenComplete((response, failure) -> this.objectChanged(bucket, object))
+                .thenApply(response -> null);
+    }
+
+    @Override
+    public void putObject(String bucket, String object, InputStream data, long length,
+                          PutObjectOptions putObjectOptions) throws S3AccessException
+    {
+        final HttpRequest request = this.buildPutRequest(bucket, object, length, putObjectOptions);
+        request.setBodyStream(data, length);
+        this.addChecksumHeaders(request, putObjectOptions, null);
+
+        this.secureRequest(request);
+
+        try {
+            this.makeRequest(request);
+        } finally {
+            this.objectChanged(bucket, object);
+        }
+    }
+
+    @Override
+    public void putObject(String bucket, String object, Path file, PutObjectOptions putObjectOptions)
+            throws S3AccessException
+    {
+        try (InputStream data = Files.newInputStream(file)) {
+            this.putObject(bucket, object, data, Files.size(file), putObjectOptions);
+        } catch (IOException ioException) {
+            throw new S3AccessException(ioException);
+        }
+    }
+
+    private HttpRequest buildPutRequest(String bucket, String object, long length, PutObjectOptions putObjectOptions) {
         final Map<String,List<String>> headers = new HashMap<>();
 
         final HttpRequest request = this.buildRequestBase("PUT", bucket);
         request.setPath(this.getS3Path(object));
-        request.setBody(data);
+        if (putObjectOptions.getUnsignedPayload() != null) {
+            request.setUnsignedPayload(putObjectOptions.getUnsignedPayload());
+        }
 
         headers.put("Content-Type", Collections.singletonList(putObjectOptions.getContentType()));
-        headers.put("Content-Length", Collections.singletonList( String.valueOf(data.length)));
+        headers.put("Content-Length", Collections.singletonList( String.valueOf(length)));
 
         // this looks like some weird pattern, should make it look nicer
         if (putObjectOptions.getServerSideEncryption() != null) {
@@ -182,25 +680,481 @@ public class PicoClient implements Client {
             }
         }
         request.setHeaders(headers);
+        return request;
+    }
+
+    /**
+     * Byte array bodies get their checksum in a header. Streamed ones only name the algorithm, the signature
+     * calculator sends the checksum in a trailer after the data. Anonymous requests are not signed and so not
+     * chunked, their streamed uploads go without.
+     * @param data The body, null if it is streamed.
+     */
+    private void addChecksumHeaders(HttpRequest request, PutObjectOptions putObjectOptions, byte[] data) {
+        final ChecksumAlgorithm algorithm = putObjectOptions.getChecksumAlgorithm();
+        if (algorithm == null || (data == null && this.credentialsProvider == null)) {
+            return;
+        }
+        request.setHeader(ChecksumAlgorithm.ALGORITHM_HEADER, algorithm.name());
+        if (data != null) {
+            request.setHeader(algorithm.getHeaderName(), algorithm.checksum(data));
+        }
+    }
+
+    @Override
+    public void putObjectMultipart(String bucket, String object, InputStream data, MultipartUploadOptions options)
+            throws S3AccessException
+    {
+        new MultipartUploader(this, this.getExecutorService(), options).upload(bucket, object, data);
+    }
+
+    @Override
+    public void putObjectMultipart(String bucket, String object, Path file, MultipartUploadOptions options)
+            throws S3AccessException
+    {
+        try (InputStream data = Files.newInputStream(file)) {
+            this.putObjectMultipart(bucket, object, data, options);
+        } catch (IOException ioException) {
+            throw new S3AccessException(ioException);
+        }
+    }
 
+    /**
+     * Starts a multipart upload (CreateMultipartUpload). Most users want putObjectMultipart instead. With a checksum
+     * algorithm in the options every part has to be uploaded with a checksum of that algorithm. CRC32C gives a
+     * checksum of the part checksums, CRC64NVME one of the whole object, s3 supports no other kind for it.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param putObjectOptions Content type, encryption and checksum algorithm of the resulting object.
+     * @return The upload id to use with the other multipart calls.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    public String createMultipartUpload(String bucket, String object, PutObjectOptions putObjectOptions)
+            throws S3AccessException
+    {
+        final HttpRequest request = this.buildPutRequest(bucket, object, 0, putObjectOptions);
+        request.setMethod("POST");
+        request.setParams("uploads=");
+        final ChecksumAlgorithm algorithm = putObjectOptions.getChecksumAlgorithm();
+        if (algorithm != null) {
+            request.setHeader("x-amz-checksum-algorithm", algorithm.name());
+            if (algorithm == ChecksumAlgorithm.CRC64NVME) {
+                request.setHeader("x-amz-checksum-type", "FULL_OBJECT");
+            }
+        }
+        this.secureRequest(request);
+
+        final HttpResponse response = this.makeRequest(request);
+        return S3XmlParser.getUploadId(this.parseResponseXml(response));
+    }
+
+    /**
+     * Uploads one part of a multipart upload (UploadPart).
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param uploadId Id from createMultipartUpload.
+     * @param partNumber Number of the part, starting from 1.
+     * @param data Buffer holding the part data.
+     * @param length How many bytes of the buffer belong to the part.
+     * @return The ETag of the part, needed to complete the upload.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    public String uploadPart(String bucket, String object, String uploadId, int partNumber, byte[] data, int length)
+            throws S3AccessException
+    {
+        return this.uploadPart(bucket, object, uploadId, partNumber, data, length, null).getETag();
+    }
+
+    /**
+     * Uploads one part of a multipart upload (UploadPart) with a checksum of the part, which s3 checks before it
+     * accepts the part.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param uploadId Id from createMultipartUpload.
+     * @param partNumber Number of the part, starting from 1.
+     * @param data Buffer holding the part data.
+     * @param length How many bytes of the buffer belong to the part.
+     * @param checksumAlgorithm The algorithm given to createMultipartUpload, null for none.
+     * @return The part with its ETag and checksum, needed to complete the upload.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    public UploadedPart uploadPart(String bucket, String object, String uploadId, int partNumber, byte[] data,
+                                   int length, ChecksumAlgorithm checksumAlgorithm) throws S3AccessException
+    {
+        final HttpRequest request = this.buildRequestBase("PUT", bucket);
+        request.setPath(this.getS3Path(object));
+        request.setParams("partNumber=" + partNumber + "&uploadId=" + uriEncode(uploadId));
+        request.setHeader("Content-Length", String.valueOf(length));
+        final String checksum = checksumAlgorithm == null ? null : checksumAlgorithm.checksum(data, 0, length);
+        if (checksum != null) {
+            request.setHeader(checksumAlgorithm.getHeaderName(), checksum);
+        }
+        request.setBodyStream(new ByteArrayInputStream(data, 0, length), length);
+        this.secureRequest(request);
+
+        final HttpResponse response = this.makeRequest(request);
+        final String eTag = this.extractResponseHeader(response, "ETag");
+        if (eTag == null) {
+            throw new S3AccessException("No ETag returned for part " + partNumber + " of " + object);
+        }
+        return new UploadedPart(partNumber, eTag, checksumAlgorithm, checksum);
+    }
+
+    /**
+     * Finishes a multipart upload (CompleteMultipartUpload), only after this the object becomes visible.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param uploadId Id from createMultipartUpload.
+     * @param parts All uploaded parts ordered by part number.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    public void completeMultipartUpload(String bucket, String object, String uploadId, List<UploadedPart> parts)
+            throws S3AccessException
+    {
+        final HttpRequest request = this.buildRequestBase("POST", bucket);
+        request.setPath(this.getS3Path(object));
+        request.setParams("uploadId=" + uriEncode(uploadId));
+        final byte[] body = S3XmlParser.buildCompleteMultipartUploadXml(parts).getBytes(StandardCharsets.UTF_8);
+        request.setHeader("Content-Type", "application/xml");
+        request.setHeader("Content-Length", String.valueOf(body.length));
+        request.setBody(body);
+        this.secureRequest(request);
+
+        try {
+            this.withRetries(request, () -> {
+                final HttpResponse response = this.httpClient.makeRequest(request);
+                // the completion can fail after the http 200 has been sent already, then the body is an error
+                // document, checked here so the retry policy gets to see e.g. an InternalError
+                final Map<String, String> error = S3XmlParser.parseError(
+                        new ByteArrayInputStream(response.getBody()));
+                if (!error.isEmpty()) {
+                    throw this.buildServiceException(response.getHttpCode(), error,
+                            this.extractResponseHeader(response, "x-amz-request-id"), null);
+                }
+                return response;
+            });
+        } finally {
+            this.objectChanged(bucket, object);
+        }
+    }
+
+    /**
+     * Cancels a multipart upload (AbortMultipartUpload) and frees the storage of the uploaded parts.
+     * @param bucket Bucket name.
+     * @param object Object path in bucket.
+     * @param uploadId Id from createMultipartUpload.
+     * @throws S3AccessException In case there's a communication issue with s3.
+     */
+    public void abortMultipartUpload(String bucket, String object, String uploadId) throws S3AccessException {
+        final HttpRequest request = this.buildRequestBase("DELETE", bucket);
+        request.setPath(this.getS3Path(object));
+        request.setParams("uploadId=" + uriEncode(uploadId));
         this.secureRequest(request);
 
         this.makeRequest(request);
     }
 
+    @Override
+    public Map<String, Exception> getObjects(String bucket, Collection<String> objects,
+                                             BiConsumer<String, InputStream> consumer) throws S3AccessException {
+        return this.getObjects(bucket, objects, consumer, new BulkOptions.Builder().build());
+    }
+
+    @Override
+    public Map<String, Exception> getObjects(String bucket, Collection<String> objects,
+                                             BiConsumer<String, InputStream> consumer, BulkOptions options)
+            throws S3AccessException
+    {
+        return this.bulkTransfer(options).run(objects, object -> {
+            try (InputStream data = this.getObjectDataAsInputStream(bucket, object)) {
+                consumer.accept(object, data);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Exception> putObjects(String bucket, Map<String, byte[]> objects) throws S3AccessException {
+        return this.putObjects(bucket, objects, new BulkOptions.Builder().build());
+    }
+
+    @Override
+    public Map<String, Exception> putObjects(String bucket, Map<String, byte[]> objects, BulkOptions options)
+            throws S3AccessException
+    {
+        return this.bulkTransfer(options).run(objects.keySet(),
+                object -> this.putObject(bucket, object, objects.get(object), options.getPutObjectOptions()));
+    }
+
+    private BulkTransfer bulkTransfer(BulkOptions options) {
+        final ExecutorService executor = options.getExecutor() != null
+                ? options.getExecutor()
+                : this.getExecutorService();
+        return new BulkTransfer(executor, options);
+    }
+
+    @Override
+    public void deleteObject(String bucket, String object) throws S3AccessException {
+        final HttpRequest request = this.buildRequestBase("DELETE", bucket);
+        request.setPath(this.getS3Path(object));
+        this.secureRequest(request);
+
+        try {
+            this.makeRequest(request);
+        } finally {
+            this.objectChanged(bucket, object);
+        }
+    }
+
+    @Override
+    public List<DeleteResult> deleteObjects(String bucket, Collection<String> objects) throws S3AccessException {
+        final List<String> keys = new ArrayList<>(objects);
+        // s3 refuses a Delete without objects as MalformedXML
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (keys.size() <= DELETE_BATCH_SIZE) {
+            return this.deleteBatch(bucket, keys);
+        }
+        final List<Future<List<DeleteResult>>> batches = new ArrayList<>();
+        for (int start = 0; start < keys.size(); start += DELETE_BATCH_SIZE) {
+            final List<String> batch = keys.subList(start, Math.min(keys.size(), start + DELETE_BATCH_SIZE));
+            batches.add(this.getExecutorService().submit(() -> this.deleteBatch(bucket, batch)));
+        }
+        final List<DeleteResult> results = new ArrayList<>(keys.size());
+        try {
+            for (final Future<List<DeleteResult>> batch : batches) {
+                results.addAll(batch.get());
+            }
+        } catch (InterruptedException | ExecutionException exception) {
+            for (final Future<List<DeleteResult>> batch : batches) {
+                batch.cancel(true);
+            }
+            if (exception instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else if (exception.getCause() instanceof S3AccessException) {
+                throw (S3AccessException) exception.getCause();
+            }
+            throw new S3AccessException("Deleting objects from " + bucket + " failed", exception);
+        }
+        return results;
+    }
+
+    @Override
+    public String presignGet(String bucket, String object, Duration expiresIn) {
+        return this.presign("GET", bucket, object, expiresIn);
+    }
+
+    @Override
+    public String presignPut(String bucket, String object, Duration expiresIn) {
+        return this.presign("PUT", bucket, object, expiresIn);
+    }
+
+    private String presign(String method, String bucket, String object, Duration expiresIn) {
+        if (this.credentialsProvider == null) {
+            throw new IllegalStateException("Presigning needs a credentials provider");
+        }
+        final HttpRequest request = this.buildRequestBase(method, bucket);
+        request.setPath(this.getS3Path(object));
+        this.signatureCalculator.presign(request, this.credentialsProvider, expiresIn.getSeconds());
+        return request.getProtocol() + "://" + request.getHost() + request.getPath() + "?" + request.getParams();
+    }
+
+    /**
+     * One DeleteObjects request, in quiet mode s3 only reports the keys it failed to delete.
+     */
+    private List<DeleteResult> deleteBatch(String bucket, List<String> keys) throws S3AccessException {
+        final HttpRequest request = this.buildRequestBase("POST", bucket);
+        request.setPath("/");
+        request.setParams("delete=");
+        final byte[] body = S3XmlParser.buildDeleteXml(keys).getBytes(StandardCharsets.UTF_8);
+        request.setHeader("Content-Type", "application/xml");
+        request.setHeader("Content-Length", String.valueOf(body.length));
+        // required by s3 for multi-object delete
+        request.setHeader("Content-MD5", md5Base64(body));
+        request.setBody(body);
+        this.secureRequest(request);
+
+        final HttpResponse response;
+        try {
+            response = this.makeRequest(request);
+        } finally {
+            for (final String key : keys) {
+                this.objectChanged(bucket, key);
+            }
+        }
+        final Map<String, DeleteResult> failed = new HashMap<>();
+        S3XmlParser.parseDeleteResult(new ByteArrayInputStream(response.getBody()), result -> {
+            if (!result.isDeleted()) {
+                failed.put(result.getKey(), result);
+            }
+        });
+        final List<DeleteResult> results = new ArrayList<>(keys.size());
+        for (final String key : keys) {
+            final DeleteResult failure = failed.get(key);
+            results.add(failure != null ? failure : new DeleteResult(key));
+        }
+        return results;
+    }
+
+    private static String md5Base64(byte[] data) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Platform doesn't support MD5", e);
+        }
+    }
+
+    private ListingPage parseListing(HttpResponse response, Consumer<S3Object> objectConsumer) {
+        return S3XmlParser.parseListing(new ByteArrayInputStream(response.getBody()), objectConsumer);
+    }
+
+    private Document parseResponseXml(HttpResponse response) {
+        return S3XmlParser.parseS3Xml(new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (this.scheduler == null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "pico-s3-retry-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.scheduler;
+    }
+
+    private synchronized ExecutorService getExecutorService() {
+        if (this.executorService == null) {
+            this.executorService = Executors.newFixedThreadPool(DEFAULT_PARALLELISM, runnable -> {
+                final Thread thread = new Thread(runnable, "pico-s3-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.executorService;
+    }
+
+    /**
+     * @return The contents, shared with the cache if there is one.
+     */
     private byte[] getObjectData(String bucket, String object) throws S3AccessException {
+        final CachedObject cached = this.getCached(bucket, object);
+        final HttpRequest request = this.buildObjectDataRequest(bucket, object, cached);
+        return this.toObjectData(bucket, object, cached, this.makeCachedRequest(bucket, object, request));
+    }
+
+    private HttpRequest buildObjectDataRequest(String bucket, String object) {
+        return this.buildObjectDataRequest(bucket, object, null);
+    }
+
+    private HttpRequest buildObjectDataRequest(String bucket, String object, CachedObject cached) {
         final Map<String,List<String>> headers = new HashMap<>();
         final HttpRequest request = this.buildRequestBase("GET", bucket);
+        addRevalidationHeader(headers, cached);
+        if (this.checksumValidation) {
+            headers.put("x-amz-checksum-mode", Collections.singletonList("ENABLED"));
+        }
         request.setHeaders(headers);
         request.setPath(this.getS3Path(object));
         this.secureRequest(request);
-        final HttpResponse response = this.makeRequest(request);
+        return request;
+    }
+
+    /**
+     * Serves the cached contents on 304 Not Modified, otherwise caches what came.
+     */
+    private byte[] toObjectData(String bucket, String object, CachedObject cached, HttpResponse response) {
+        if (cached != null && response.getHttpCode() == HTTP_NOT_MODIFIED) {
+            return cached.getData();
+        }
+        this.verifyChecksum(response);
+        final String eTag = this.objectCache == null ? null : this.extractResponseHeader(response, "ETag");
+        if (eTag != null) {
+            this.objectCache.put(cacheKey(bucket, object), new CachedObject(eTag,
+                    this.extractResponseHeader(response, "Last-Modified"),
+                    this.extractResponseHeader(response, "Content-Type"),
+                    this.extractResponseHeader(response, "x-amz-server-side-encryption"),
+                    response.getBody()));
+        }
         return response.getBody();
     }
 
+    private InputStream checkedBodyStream(HttpResponse response) {
+        for (final ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            final String expected = this.getFullObjectChecksum(response, algorithm);
+            if (expected != null) {
+                return new ChecksumInputStream(response.getBodyStream(), algorithm, expected);
+            }
+        }
+        return response.getBodyStream();
+    }
+
+    private void verifyChecksum(HttpResponse response) {
+        for (final ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            final String expected = this.getFullObjectChecksum(response, algorithm);
+            final String actual = expected == null ? null : algorithm.checksum(response.getBody());
+            if (actual != null && !actual.equals(expected)) {
+                throw new S3AccessException(algorithm + " checksum mismatch, expected " + expected
+                        + " but the data has " + actual);
+            }
+        }
+    }
+
+    /**
+     * @return The checksum s3 sent for the whole object, null if validation is off or there is none. Objects
+     * uploaded in parts may have a checksum of the part checksums instead ("...-3"), that can not be checked.
+     */
+    private String getFullObjectChecksum(HttpResponse response, ChecksumAlgorithm algorithm) {
+        if (!this.checksumValidation || response.getHeaders() == null) {
+            return null;
+        }
+        final String checksum = this.extractResponseHeader(response, algorithm.getHeaderName());
+        return checksum == null || checksum.contains("-") ? null : checksum;
+    }
+
+    private CachedObject getCached(String bucket, String object) {
+        return this.objectCache == null ? null : this.objectCache.get(cacheKey(bucket, object));
+    }
+
+    private HttpResponse makeCachedRequest(String bucket, String object, HttpRequest request)
+            throws S3AccessException {
+        try {
+            return this.makeRequest(request);
+        } catch (S3AccessException exception) {
+            this.dropCachedIfGone(bucket, object, exception);
+            throw exception;
+        }
+    }
+
+    private void dropCachedIfGone(String bucket, String object, Throwable failure) {
+        final Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        if (this.objectCache != null && cause instanceof S3ServiceException
+                && ((S3ServiceException) cause).getHttpCode() == HTTP_NOT_FOUND) {
+            this.objectCache.remove(cacheKey(bucket, object));
+        }
+    }
+
+    /**
+     * Forgets the metadata of an object this client wrote or deleted, also when the request failed, it may have
+     * gone through anyway. The ObjectCache needs no such care, its entries are revalidated on every read.
+     */
+    private void objectChanged(String bucket, String object) {
+        if (this.metadataCache != null) {
+            this.metadataCache.invalidate(cacheKey(bucket, object));
+        }
+    }
+
+    private static void addRevalidationHeader(Map<String, List<String>> headers, CachedObject cached) {
+        if (cached != null) {
+            headers.put("If-None-Match", Collections.singletonList(cached.getETag()));
+        }
+    }
+
+    private static String cacheKey(String bucket, String object) {
+        return bucket + "/" + object;
+    }
+
     private void secureRequest(HttpRequest request) {
-        final PicoSignatureCalculator calculator = new PicoSignatureCalculator();
-        calculator.addSignatureHeaderForRequest(request, this.credentialsProvider);
+        this.signatureCalculator.addSignatureHeaderForRequest(request, this.credentialsProvider);
     }
 
     private String getS3Host(String region, String bucket) {
@@ -232,6 +1186,14 @@ public class PicoClient implements Client {
         this.https = https;
     }
 
+    private void setUnsignedPayload(boolean unsignedPayload) {
+        this.unsignedPayload = unsignedPayload;
+    }
+
+    private void setChecksumValidation(boolean checksumValidation) {
+        this.checksumValidation = checksumValidation;
+    }
+
     private void setHttpClient(HttpClient httpClient) {
         this.httpClient = httpClient;
     }
@@ -248,6 +1210,27 @@ public class PicoClient implements Client {
         this.readTimeout = readTimeout;
     }
 
+    private void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    private void setObjectCache(ObjectCache objectCache) {
+        this.objectCache = objectCache;
+    }
+
+    private void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return this.retryPolicy;
+    }
+
+    private void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        this.rateLimiter = retryPolicy.isAdaptiveRateLimiting() ? new AdaptiveRateLimiter() : null;
+    }
+
     /**
      * Encodes uri components for http safety, also encodes slashes.
      * Slightly modified code from amazon's example on their web page in authorization part.
@@ -259,39 +1242,11 @@ public class PicoClient implements Client {
 
     /**
      * Encodes uri components for http safety.
-     * Slightly modified code from amazon's example on their web page in authorization part.
      * @param input The input string.
      * @param encodeSlash Should slash be encoded or not.
      */
     protected static String uriEncode(CharSequence input, boolean encodeSlash) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < input.length(); i++) {
-            char ch = input.charAt(i);
-            if ((ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z')
-                    || (ch >= '0' && ch <= '9') || ch == '_' || ch == '-' || ch == '~' || ch == '.') {
-                result.append(ch);
-            } else if (ch == '/') {
-                result.append(encodeSlash ? "%2F" : ch);
-            } else {
-                result.append(toUrlHexUTF8(ch));
-            }
-        }
-        return result.toString();
-    }
-
-    /**
-     * Turns the char into utf8 string, grabs it's bytes in utf8 shape and encodes them one by one with url syntax.
-     * @param ch The char to encode.
-     * @return The encoded data.
-     */
-    protected static String toUrlHexUTF8(char ch) {
-        final byte[] raw = ("" + ch).getBytes(StandardCharsets.UTF_8);
-        final StringBuilder hexString = new StringBuilder();
-        for (final byte rawByte : raw) {
-            hexString.append("%");
-            hexString.append(String.format("%02X", rawByte & 0XFF));
-        }
-        return hexString.toString().toUpperCase();
+        return Encoding.uriEncode(input, encodeSlash);
     }
 
     public static class Builder {
@@ -299,10 +1254,16 @@ public class PicoClient implements Client {
         private String region;
         private String host = "amazonaws.com";
         private boolean https = true;
+        private boolean unsignedPayload;
+        private boolean checksumValidation;
         private HttpClient httpClient = new PicoHttpClient();
         private CredentialsProvider credentialsProvider;
         private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
         private int readTimeout = DEFAULT_READ_TIMEOUT;
+        private ExecutorService executorService;
+        private RetryPolicy retryPolicy = new RetryPolicy.Builder().build();
+        private ObjectCache objectCache;
+        private MetadataCache metadataCache;
 
         public Builder() {}
 
@@ -336,6 +1297,29 @@ public class PicoClient implements Client {
             return this;
         }
 
+        /**
+         * Signs requests over https with UNSIGNED-PAYLOAD instead of the sha256 of the body, tls already protects
+         * the body on the way. Saves hashing every uploaded byte and streamed uploads go out without aws-chunked
+         * framing. Plain http requests are still hashed. PutObjectOptions can override this per upload.
+         * @return The builder.
+         */
+        public Builder withUnsignedPayload() {
+            this.unsignedPayload = true;
+            return this;
+        }
+
+        /**
+         * Asks s3 for the stored checksum (see PutObjectOptions.Builder.withChecksumAlgorithm) when whole objects
+         * are read and checks the data against it. Streams fail with an IOException at the end of a corrupted
+         * object, the other reads with an S3AccessException. Ranged reads and objects without a checksum are not
+         * checked.
+         * @return The builder.
+         */
+        public Builder withChecksumValidation() {
+            this.checksumValidation = true;
+            return this;
+        }
+
 
         /**
          * Defines the timeout of connect operation in milliseconds.
@@ -357,13 +1341,66 @@ public class PicoClient implements Client {
             return this;
         }
 
+        /**
+         * Defines the executor that runs the parallel parts of transfers (e.g. multipart uploads). By default the
+         * client creates its own pool of DEFAULT_PARALLELISM daemon threads the first time it needs one.
+         * @param executorService The executor, the client never shuts it down.
+         * @return The builder.
+         */
+        public Builder withExecutorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        /**
+         * Defines which failed requests are retried and how. By default 429, 500, 502, 503 and 504 responses and io
+         * failures are tried up to 3 times with jittered exponential backoff.
+         * @param retryPolicy The policy, RetryPolicy.none() to disable retries.
+         * @return The builder.
+         */
+        public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Keeps copies of the objects read with getObjectDataAsString and getObjectDataAsync. Repeated reads only
+         * ask s3 whether the copy is still current and skip the download when it is, e.g. config files read over
+         * and over. getObject answers from the copy too when s3 confirms it. Streamed, ranged and listing reads do
+         * not use the cache.
+         * @param objectCache The cache, e.g. a MemoryObjectCache, optionally backed by a DiskObjectCache.
+         * @return The builder.
+         */
+        public Builder withObjectCache(ObjectCache objectCache) {
+            this.objectCache = objectCache;
+            return this;
+        }
+
+        /**
+         * Remembers the answers of getObject for a while, including 404s, so repeated existence and size checks do
+         * not cost a request each. Writes and deletes through this client drop the entries of their objects,
+         * changes made elsewhere show up once the entries expire.
+         * @param metadataCache The cache, shared by clients only if they talk to the same s3.
+         * @return The builder.
+         */
+        public Builder withMetadataCache(MetadataCache metadataCache) {
+            this.metadataCache = metadataCache;
+            return this;
+        }
+
         public PicoClient build() {
             final PicoClient client = new PicoClient(this.region, this.host);
             client.setHttps(this.https);
+            client.setUnsignedPayload(this.unsignedPayload);
+            client.setChecksumValidation(this.checksumValidation);
             client.setHttpClient(this.httpClient);
             client.setCredentialsProvider(this.credentialsProvider);
             client.setConnectTimeout(this.connectTimeout);
             client.setReadTimeout(this.readTimeout);
+            client.setExecutorService(this.executorService);
+            client.setRetryPolicy(this.retryPolicy);
+            client.setObjectCache(this.objectCache);
+            client.setMetadataCache(this.metadataCache);
             return client;
         }
     }
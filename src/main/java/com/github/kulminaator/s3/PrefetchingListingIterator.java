@@ -0,0 +1,115 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.options.ListObjectsOptions;
+import com.github.kulminaator.s3.xml.ListingPage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Listing iterator that keeps one page in flight ahead of the reader. Pages are parsed while they stream in and
+ * the request for the next page goes out the moment the continuation token of the page being read has been
+ * parsed, so the network wait overlaps with the reading and using of the current page.
+ */
+class PrefetchingListingIterator implements Iterator<S3Object> {
+
+    private final PicoClient client;
+    private final ExecutorService executor;
+    private final String bucket;
+    private final ListObjectsOptions options;
+    private final ArrayDeque<S3Object> currentPage = new ArrayDeque<>();
+
+    // completes with null once there are no more pages
+    private CompletableFuture<PageFetch> nextPage;
+    // the next page is already underway when a page fails, going on would skip the failed page
+    private RuntimeException failure;
+
+    PrefetchingListingIterator(PicoClient client, ExecutorService executor, String bucket,
+                               ListObjectsOptions options) {
+        this.client = client;
+        this.executor = executor;
+        this.bucket = bucket;
+        this.options = options;
+        this.nextPage = CompletableFuture.completedFuture(this.fetch(null));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.failure != null) {
+            throw this.failure;
+        }
+        try {
+            return this.fillCurrentPage();
+        } catch (RuntimeException exception) {
+            this.failure = exception;
+            throw exception;
+        }
+    }
+
+    private boolean fillCurrentPage() {
+        while (this.currentPage.isEmpty()) {
+            if (this.nextPage == null) {
+                return false;
+            }
+            final PageFetch page = join(this.nextPage);
+            if (page == null) {
+                this.nextPage = null;
+                return false;
+            }
+            // the page after this one is requested as soon as this one tells its token, not when it is used up
+            this.nextPage = page.continuationToken.thenApply(token -> token == null ? null : this.fetch(token));
+            this.currentPage.addAll(join(page.objects));
+        }
+        return true;
+    }
+
+    @Override
+    public S3Object next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException("No more objects in " + this.bucket);
+        }
+        return this.currentPage.poll();
+    }
+
+    private PageFetch fetch(String continuation) {
+        final PageFetch page = new PageFetch();
+        this.executor.execute(() -> {
+            try {
+                final List<S3Object> objects = new ArrayList<>();
+                final ListingPage listing = this.client.listPageStreaming(this.bucket, this.options, continuation,
+                        objects::add, page.continuationToken::complete);
+                page.continuationToken.complete(null);
+                final List<S3Object> entries = new ArrayList<>();
+                ListingIterator.addPage(entries, objects, listing.getCommonPrefixes());
+                page.objects.complete(entries);
+            } catch (RuntimeException exception) {
+                page.continuationToken.completeExceptionally(exception);
+                page.objects.completeExceptionally(exception);
+            }
+        });
+        return page;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw new S3AccessException(exception);
+        }
+    }
+
+    private static class PageFetch {
+        private final CompletableFuture<String> continuationToken = new CompletableFuture<>();
+        private final CompletableFuture<List<S3Object>> objects = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,290 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.options.RangedDownloadOptions;
+import com.github.kulminaator.s3.retry.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Downloads one object as a set of byte ranges fetched in parallel. The object size and ETag come from a HEAD
+ * request, every range GET carries If-Match with that ETag so a concurrent overwrite cannot mix two versions. The
+ * HEAD skips the metadata cache, a stale size or ETag would fail or truncate the download.
+ *
+ * A range whose body breaks off half way is fetched again as the client's RetryPolicy allows, up to maxRangeAttempts
+ * times. Failed responses are not, the client has already retried them.
+ */
+class RangedDownloader {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final PicoClient client;
+    private final ExecutorService executor;
+    private final RangedDownloadOptions options;
+
+    RangedDownloader(PicoClient client, ExecutorService executor, RangedDownloadOptions options) {
+        this.client = client;
+        this.executor = executor;
+        this.options = options;
+    }
+
+    /**
+     * Writes the ranges straight into the file at their offsets, nothing is reassembled in memory.
+     */
+    void downloadToFile(String bucket, String object, Path file) throws S3AccessException {
+        final S3Object objectInfo = this.client.headObject(bucket, object);
+        final long size = objectInfo.getSize();
+        final String eTag = objectInfo.getETag();
+
+        final Semaphore inFlight = new Semaphore(this.options.getMaxConcurrency());
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final List<Future<?>> pendingRanges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            try {
+                for (long start = 0; start < size && failure.get() == null; start += this.options.getRangeSize()) {
+                    final long first = start;
+                    final long last = Math.min(size, start + this.options.getRangeSize()) - 1;
+                    inFlight.acquire();
+                    pendingRanges.add(this.executor.submit(() -> {
+                        try {
+                            return this.withRetries(failure,
+                                    () -> this.writeRange(channel, bucket, object, eTag, first, last));
+                        } catch (Exception exception) {
+                            failure.compareAndSet(null, exception);
+                            throw exception;
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                }
+                for (final Future<?> pendingRange : pendingRanges) {
+                    pendingRange.get();
+                }
+            } catch (Exception exception) {
+                // no interrupts, they would close the channel under the other ranges, and the channel may only
+                // close once the ranges still running are done with it
+                failure.compareAndSet(null, exception);
+                awaitQuietly(pendingRanges);
+                // the first failure, not one of the ranges skipped because of it
+                throw toAccessException(object, failure.get());
+            }
+        } catch (IOException exception) {
+            throw toAccessException(object, exception);
+        }
+    }
+
+    /**
+     * Reassembles the ranges into one ordered stream, at most maxConcurrency ranges are fetched ahead of the reader.
+     */
+    InputStream openStream(String bucket, String object) throws S3AccessException {
+        if (this.options.getRangeSize() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Range size has to fit into a byte array for stream reads");
+        }
+        final S3Object objectInfo = this.client.headObject(bucket, object);
+        return new RangedInputStream(bucket, object, objectInfo.getSize(), objectInfo.getETag());
+    }
+
+    private Long writeRange(FileChannel channel, String bucket, String object, String eTag, long first, long last)
+            throws IOException {
+        long position = first;
+        try (InputStream range = this.client.getObjectRange(bucket, object, first, last, eTag)) {
+            final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = range.read(buffer)) >= 0) {
+                position = write(channel, ByteBuffer.wrap(buffer, 0, read), position, object);
+            }
+        }
+        if (position != last + 1) {
+            throw new IOException("Range " + first + "-" + last + " of " + object + " ended at " + position);
+        }
+        return position;
+    }
+
+    /**
+     * Failures of the file are not failures of the download, they must not pass as a retryable IOException.
+     */
+    private static long write(FileChannel channel, ByteBuffer data, long position, String object) {
+        try {
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+            return position;
+        } catch (IOException exception) {
+            throw new S3AccessException("Writing " + object + " to file failed", exception);
+        }
+    }
+
+    private byte[] readRange(String bucket, String object, String eTag, long first, long last) throws IOException {
+        final byte[] data = new byte[(int) (last - first + 1)];
+        int filled = 0;
+        try (InputStream range = this.client.getObjectRange(bucket, object, first, last, eTag)) {
+            while (filled < data.length) {
+                final int read = range.read(data, filled, data.length - filled);
+                if (read < 0) {
+                    break;
+                }
+                filled += read;
+            }
+        }
+        if (filled != data.length) {
+            throw new IOException("Range " + first + "-" + last + " of " + object + " ended after " + filled);
+        }
+        return data;
+    }
+
+    /**
+     * Only io failures while the body is read are retried here. Failed responses (S3AccessException) have been
+     * retried by the client already, e.g. a 412 when the object changed under the ETag fails at once.
+     */
+    private <T> T withRetries(AtomicReference<Exception> failure, Callable<T> rangeFetch) throws Exception {
+        final RetryPolicy retryPolicy = this.client.getRetryPolicy();
+        int attempt = 1;
+        while (true) {
+            // once the download has failed the ranges not fetched yet are skipped, no more attempts are made
+            if (failure.get() != null) {
+                throw new CancellationException("Ranged download has already failed");
+            }
+            try {
+                return rangeFetch.call();
+            } catch (IOException exception) {
+                if (attempt >= this.options.getMaxRangeAttempts() || !retryPolicy.isRetryable(exception)) {
+                    throw exception;
+                }
+                Thread.sleep(retryPolicy.getDelayMillis(attempt, exception));
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * Waits for every submitted range, their own failures are not interesting once the download has failed.
+     */
+    private static void awaitQuietly(List<Future<?>> pendingRanges) {
+        for (final Future<?> pendingRange : pendingRanges) {
+            try {
+                pendingRange.get();
+            } catch (ExecutionException ignored) {
+                // reported by the range that failed first
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static S3AccessException toAccessException(String object, Exception exception) {
+        if (exception instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        final Throwable cause = exception instanceof ExecutionException ? exception.getCause() : exception;
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof S3AccessException) {
+            return (S3AccessException) cause;
+        }
+        return new S3AccessException("Ranged download of " + object + " failed", (Exception) cause);
+    }
+
+    private class RangedInputStream extends InputStream {
+        private final String bucket;
+        private final String object;
+        private final long size;
+        private final String eTag;
+        private final Deque<Future<byte[]>> readAhead = new ArrayDeque<>();
+        // set by close, stops the retries of the ranges read ahead
+        private final AtomicReference<Exception> closed = new AtomicReference<>();
+
+        private long nextRangeStart;
+        private byte[] current;
+        private int position;
+
+        RangedInputStream(String bucket, String object, long size, String eTag) {
+            this.bucket = bucket;
+            this.object = object;
+            this.size = size;
+            this.eTag = eTag;
+            this.fillReadAhead();
+        }
+
+        private void fillReadAhead() {
+            while (this.readAhead.size() < options.getMaxConcurrency() && this.nextRangeStart < this.size) {
+                final long first = this.nextRangeStart;
+                final long last = Math.min(this.size, first + options.getRangeSize()) - 1;
+                this.readAhead.add(executor.submit(() ->
+                        withRetries(this.closed, () -> readRange(this.bucket, this.object, this.eTag, first, last))));
+                this.nextRangeStart = last + 1;
+            }
+        }
+
+        private boolean advance() throws IOException {
+            while (this.current == null || this.position >= this.current.length) {
+                final Future<byte[]> next = this.readAhead.poll();
+                if (next == null) {
+                    return false;
+                }
+                try {
+                    this.current = next.get();
+                    this.position = 0;
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for " + this.object, exception);
+                } catch (ExecutionException exception) {
+                    throw new IOException("Ranged download of " + this.object + " failed", exception.getCause());
+                }
+                this.fillReadAhead();
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!this.advance()) {
+                return -1;
+            }
+            return this.current[this.position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.advance()) {
+                return -1;
+            }
+            final int count = Math.min(length, this.current.length - this.position);
+            System.arraycopy(this.current, this.position, buffer, offset, count);
+            this.position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            this.closed.compareAndSet(null, new IOException("Stream of " + this.object + " closed"));
+            for (final Future<byte[]> pending : this.readAhead) {
+                pending.cancel(true);
+            }
+            this.readAhead.clear();
+            this.current = null;
+            this.nextRangeStart = this.size;
+        }
+    }
+}
@@ -7,6 +7,7 @@ public class S3Object {
     private String lastModified;
     private String contentType;
     private String serverSideEncryption;
+    private boolean prefix;
 
     public void setKey(String key) {
         this.key = key;
@@ -59,4 +60,17 @@ public class S3Object {
     public String getServerSideEncryption() {
         return serverSideEncryption;
     }
+
+    /**
+     * Tells the common prefixes ("folders") of a listing with a delimiter from the objects, only the key is set
+     * for them.
+     * @return True if this is a common prefix and not an object.
+     */
+    public boolean isPrefix() {
+        return this.prefix;
+    }
+
+    public void setPrefix(boolean prefix) {
+        this.prefix = prefix;
+    }
 }
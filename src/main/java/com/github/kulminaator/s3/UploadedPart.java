@@ -0,0 +1,46 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+
+/**
+ * A part of a multipart upload that S3 has accepted.
+ */
+public class UploadedPart {
+    private final int partNumber;
+    private final String ETag;
+    private final ChecksumAlgorithm checksumAlgorithm;
+    private final String checksum;
+
+    public UploadedPart(int partNumber, String eTag) {
+        this(partNumber, eTag, null, null);
+    }
+
+    /**
+     * @param partNumber Number of the part, starting from 1.
+     * @param eTag The ETag s3 returned for the part.
+     * @param checksumAlgorithm Algorithm of the checksum sent with the part, null for none.
+     * @param checksum The checksum sent with the part, CompleteMultipartUpload has to repeat it.
+     */
+    public UploadedPart(int partNumber, String eTag, ChecksumAlgorithm checksumAlgorithm, String checksum) {
+        this.partNumber = partNumber;
+        this.ETag = eTag;
+        this.checksumAlgorithm = checksumAlgorithm;
+        this.checksum = checksum;
+    }
+
+    public int getPartNumber() {
+        return this.partNumber;
+    }
+
+    public String getETag() {
+        return this.ETag;
+    }
+
+    public ChecksumAlgorithm getChecksumAlgorithm() {
+        return this.checksumAlgorithm;
+    }
+
+    public String getChecksum() {
+        return this.checksum;
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.kulminaator.s3.auth;
+
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+import com.github.kulminaator.s3.http.Encoding;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.zip.Checksum;
+
+/**
+ * Turns a plain body stream into the aws-chunked encoding, signing each chunk with the signature of the previous one
+ * as it passes through. Data is read only once and only one chunk is held in memory at a time.
+ *
+ * Optionally a checksum of the data is computed on the way and sent as a trailer after the last chunk, signed as
+ * well. Without a signing key the chunks go unsigned, that is only used with a trailer, over https.
+ *
+ * https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html
+ * https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming-trailers.html
+ */
+class AwsChunkedInputStream extends InputStream {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    // ";chunk-signature=" + 64 hex characters of the signature
+    private static final int SIGNATURE_OVERHEAD = 17 + 64;
+    // "\r\n" after the chunk header and "\r\n" after the data
+    private static final int CHUNK_OVERHEAD = 2 + 2;
+    // "x-amz-trailer-signature:" + 64 hex characters of the signature + "\r\n"
+    private static final int TRAILER_SIGNATURE_OVERHEAD = 24 + 64 + 2;
+
+    private final InputStream source;
+    private final String dateTime;
+    private final String scope;
+    private final Mac mac;
+    private final MessageDigest digest;
+    private final ChecksumAlgorithm trailer;
+    private final Checksum checksum;
+    private final byte[] data = new byte[CHUNK_SIZE];
+
+    private String previousSignature;
+    private long remaining;
+    private boolean finished;
+
+    // the parts of the current chunk and the read position in them
+    private byte[] header = new byte[0];
+    private int dataLength;
+    private byte[] footer = CRLF;
+    private int part;
+    private int position;
+
+    /**
+     * @param signingKey Key to sign the chunks with, null for unsigned chunks.
+     * @param trailer Algorithm of the checksum to send after the data, null for none.
+     */
+    AwsChunkedInputStream(InputStream source, long decodedLength, byte[] signingKey, String dateTime,
+                          String scope, String seedSignature, ChecksumAlgorithm trailer) {
+        this.source = source;
+        this.remaining = decodedLength;
+        this.dateTime = dateTime;
+        this.scope = scope;
+        this.previousSignature = seedSignature;
+        this.trailer = trailer;
+        this.checksum = trailer == null ? null : trailer.newChecksum();
+        if (signingKey == null) {
+            this.mac = null;
+            this.digest = null;
+        } else {
+            try {
+                this.mac = Mac.getInstance("HmacSHA256");
+                this.mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("Platform not sane, missing sha256 or failing to construct key", e);
+            }
+        }
+        // nothing prepared yet, the first read will load the first chunk
+        this.part = 3;
+    }
+
+    /**
+     * Calculates the length of the encoded stream, this is what goes into the Content-Length header.
+     * @param decodedLength Length of the original data.
+     * @param signed Are the chunks signed.
+     * @param trailer Algorithm of the checksum trailer, null for none.
+     * @return Length of the data in aws-chunked encoding.
+     */
+    static long encodedLength(long decodedLength, boolean signed, ChecksumAlgorithm trailer) {
+        final int overhead = CHUNK_OVERHEAD + (signed ? SIGNATURE_OVERHEAD : 0);
+        final long fullChunks = decodedLength / CHUNK_SIZE;
+        final int lastChunk = (int) (decodedLength % CHUNK_SIZE);
+        long length = fullChunks * (Integer.toHexString(CHUNK_SIZE).length() + overhead + CHUNK_SIZE);
+        if (lastChunk > 0) {
+            length += Integer.toHexString(lastChunk).length() + overhead + lastChunk;
+        }
+        // the terminating zero length chunk
+        length += 1 + overhead;
+        if (trailer != null) {
+            // "name:value\r\n", the signature line and "\r\n" instead of the "\r\n" after the empty data
+            length += trailer.getHeaderName().length() + 1 + trailer.getEncodedLength() + 2
+                    + (signed ? TRAILER_SIGNATURE_OVERHEAD : 0);
+        }
+        return length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        final int read = this.read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int total = 0;
+        while (total < length) {
+            if (this.part > 2) {
+                if (this.finished) {
+                    break;
+                }
+                this.loadNextChunk();
+            }
+            final byte[] current;
+            final int currentLength;
+            if (this.part == 0) {
+                current = this.header;
+                currentLength = this.header.length;
+            } else if (this.part == 1) {
+                current = this.data;
+                currentLength = this.dataLength;
+            } else {
+                current = this.footer;
+                currentLength = this.footer.length;
+            }
+            final int count = Math.min(length - total, currentLength - this.position);
+            System.arraycopy(current, this.position, buffer, offset + total, count);
+            total += count;
+            this.position += count;
+            if (this.position >= currentLength) {
+                this.part++;
+                this.position = 0;
+            }
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    private void loadNextChunk() throws IOException {
+        final int wanted = (int) Math.min(CHUNK_SIZE, this.remaining);
+        int filled = 0;
+        while (filled < wanted) {
+            final int read = this.source.read(this.data, filled, wanted - filled);
+            if (read < 0) {
+                throw new IOException("Stream ended " + (this.remaining - filled) + " bytes before declared length");
+            }
+            filled += read;
+        }
+        this.remaining -= filled;
+        this.dataLength = filled;
+        if (filled == 0) {
+            this.finished = true;
+        }
+        if (this.checksum != null) {
+            this.checksum.update(this.data, 0, filled);
+        }
+
+        if (this.mac == null) {
+            this.header = (Integer.toHexString(filled) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        } else {
+            this.digest.update(this.data, 0, filled);
+            final String signature = this.sign("AWS4-HMAC-SHA256-PAYLOAD\n" +
+                    this.dateTime + "\n" +
+                    this.scope + "\n" +
+                    this.previousSignature + "\n" +
+                    EMPTY_SHA256 + "\n" +
+                    Encoding.hex(this.digest.digest()));
+            this.header = (Integer.toHexString(filled) + ";chunk-signature=" + signature + "\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+        this.footer = this.finished && this.trailer != null ? this.buildTrailer() : CRLF;
+        this.part = 0;
+        this.position = 0;
+    }
+
+    private byte[] buildTrailer() {
+        final String trailingHeader = this.trailer.getHeaderName() + ":" + this.trailer.encode(this.checksum);
+        if (this.mac == null) {
+            return (trailingHeader + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        }
+        this.digest.update((trailingHeader + "\n").getBytes(StandardCharsets.US_ASCII));
+        final String signature = this.sign("AWS4-HMAC-SHA256-TRAILER\n" +
+                this.dateTime + "\n" +
+                this.scope + "\n" +
+                this.previousSignature + "\n" +
+                Encoding.hex(this.digest.digest()));
+        return (trailingHeader + "\r\nx-amz-trailer-signature:" + signature + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private String sign(String stringToSign) {
+        final String signature = Encoding.hex(this.mac.doFinal(stringToSign.getBytes(StandardCharsets.UTF_8)));
+        this.previousSignature = signature;
+        return signature;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.source.close();
+    }
+}
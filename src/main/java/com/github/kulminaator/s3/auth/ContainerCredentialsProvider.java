@@ -0,0 +1,139 @@
+package com.github.kulminaator.s3.auth;
+
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.http.PicoHttpClient;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Credentials of an ecs task role (or eks pod identity), served by the container credentials endpoint that the
+ * container agent announces in environment variables:
+ *
+ * AWS_CONTAINER_CREDENTIALS_RELATIVE_URI - path on 169.254.170.2 (ecs)
+ * AWS_CONTAINER_CREDENTIALS_FULL_URI - complete url, used if there is no relative one. As the authorization token
+ * goes there, it has to be https, a loopback address or one of the ecs and eks endpoints, like in the aws sdks.
+ * AWS_CONTAINER_AUTHORIZATION_TOKEN or AWS_CONTAINER_AUTHORIZATION_TOKEN_FILE - Authorization header, if any
+ *
+ * Refreshed ahead of expiry in the background, see RefreshingCredentialsProvider.
+ */
+public class ContainerCredentialsProvider extends RefreshingCredentialsProvider {
+
+    static final String RELATIVE_URI_VARIABLE = "AWS_CONTAINER_CREDENTIALS_RELATIVE_URI";
+    static final String FULL_URI_VARIABLE = "AWS_CONTAINER_CREDENTIALS_FULL_URI";
+    static final String TOKEN_VARIABLE = "AWS_CONTAINER_AUTHORIZATION_TOKEN";
+    static final String TOKEN_FILE_VARIABLE = "AWS_CONTAINER_AUTHORIZATION_TOKEN_FILE";
+
+    private static final String ECS_HOST = "169.254.170.2";
+    // ecs, eks pod identity over ipv4 and ipv6
+    private static final List<String> ALLOWED_HTTP_HOSTS = Arrays.asList(ECS_HOST, "169.254.170.23", "fd00:ec2::23");
+    private static final int TIMEOUT_MILLIS = 1000;
+
+    private HttpClient client = new PicoHttpClient();
+    private Function<String, String> environment = System::getenv;
+
+    public ContainerCredentialsProvider() {}
+
+    public ContainerCredentialsProvider(HttpClient customHttpClient) {
+        this.client = customHttpClient;
+    }
+
+    /**
+     * Constructor used in unit tests only.
+     */
+    ContainerCredentialsProvider(HttpClient customHttpClient, Function<String, String> environment) {
+        this.client = customHttpClient;
+        this.environment = environment;
+    }
+
+    /**
+     * @throws IllegalStateException If not running in a container with a role, or the endpoint fails.
+     */
+    @Override
+    protected Credentials loadCredentials() {
+        final HttpRequest request = this.buildRequest();
+        try {
+            final String token = this.getAuthorizationToken();
+            if (token != null) {
+                request.setHeader("Authorization", token);
+            }
+            final HttpResponse response = this.client.makeRequest(request);
+            return Credentials.fromJson(new String(response.getBody(), StandardCharsets.UTF_8));
+        } catch (Exception exception) {
+            throw new IllegalStateException("Cannot load credentials from the container endpoint", exception);
+        }
+    }
+
+    private HttpRequest buildRequest() {
+        final HttpRequest request = new HttpRequest();
+        request.setConnectTimeout(TIMEOUT_MILLIS);
+        request.setReadTimeout(TIMEOUT_MILLIS);
+        final String relativeUri = this.environment.apply(RELATIVE_URI_VARIABLE);
+        if (relativeUri != null && !relativeUri.isEmpty()) {
+            final URI uri = URI.create(relativeUri);
+            request.setProtocol("http");
+            request.setHost(ECS_HOST);
+            request.setPath(uri.getRawPath());
+            request.setParams(uri.getRawQuery());
+            return request;
+        }
+        final String fullUri = this.environment.apply(FULL_URI_VARIABLE);
+        if (fullUri != null && !fullUri.isEmpty()) {
+            final URI uri = URI.create(fullUri);
+            if (!isAllowedFullUri(uri)) {
+                throw new IllegalStateException(FULL_URI_VARIABLE + " has to be https, loopback or a container "
+                        + "endpoint, not " + uri.getScheme() + "://" + uri.getHost());
+            }
+            request.setProtocol(uri.getScheme());
+            request.setHost(uri.getRawAuthority());
+            request.setPath(uri.getRawPath().isEmpty() ? "/" : uri.getRawPath());
+            request.setParams(uri.getRawQuery());
+            return request;
+        }
+        throw new IllegalStateException("Neither " + RELATIVE_URI_VARIABLE + " nor " + FULL_URI_VARIABLE + " is set");
+    }
+
+    private static boolean isAllowedFullUri(URI uri) {
+        if ("https".equalsIgnoreCase(uri.getScheme())) {
+            return uri.getHost() != null;
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            return false;
+        }
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        if (ALLOWED_HTTP_HOSTS.contains(host) || "localhost".equals(host)) {
+            return true;
+        }
+        // only literal addresses are checked, a name is not resolved just to be refused
+        if (host.contains(":") || host.matches("[0-9.]+")) {
+            try {
+                return InetAddress.getByName(host).isLoopbackAddress();
+            } catch (UnknownHostException exception) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private String getAuthorizationToken() throws Exception {
+        final String tokenFile = this.environment.apply(TOKEN_FILE_VARIABLE);
+        if (tokenFile != null && !tokenFile.isEmpty()) {
+            // rotated by the agent, so read for every refresh
+            return new String(Files.readAllBytes(Paths.get(tokenFile)), StandardCharsets.UTF_8).trim();
+        }
+        return this.environment.apply(TOKEN_VARIABLE);
+    }
+}
@@ -5,4 +5,13 @@ public interface CredentialsProvider {
     String getAccessKeyId();
     String getSecretAccessKey();
     String getSessionToken();
+
+    /**
+     * Requests are signed with what this returns. Providers whose credentials change must return all three values
+     * of the same moment here, separate getter calls may straddle a refresh.
+     * @return The current credentials.
+     */
+    default Credentials getCredentials() {
+        return new Credentials(this.getAccessKeyId(), this.getSecretAccessKey(), this.getSessionToken(), null);
+    }
 }
@@ -0,0 +1,95 @@
+package com.github.kulminaator.s3.auth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the credentials wherever the code happens to run. The default chain asks, in this order:
+ *
+ * 1. environment variables (EnvironmentCredentialsProvider), e.g. in lambda
+ * 2. the shared credentials file (ProfileCredentialsProvider), e.g. on a developer machine
+ * 3. the container credentials endpoint (ContainerCredentialsProvider), in ecs
+ * 4. sts with a web identity token (WebIdentityCredentialsProvider), in eks
+ * 5. the instance metadata service (InstanceCredentialsProvider), in ec2
+ *
+ * The cheap local checks come first, the network ones last, and the instance metadata service only gets its short
+ * connect timeout when nothing else matched. The first provider that gives credentials is remembered and used
+ * from then on without probing the others again. Thread safe.
+ */
+public class CredentialsProviderChain implements CredentialsProvider {
+
+    private final List<CredentialsProvider> providers;
+    private volatile CredentialsProvider chosen;
+
+    public CredentialsProviderChain() {
+        this(new EnvironmentCredentialsProvider(), new ProfileCredentialsProvider(),
+                new ContainerCredentialsProvider(), new WebIdentityCredentialsProvider(),
+                new InstanceCredentialsProvider());
+    }
+
+    /**
+     * @param providers The providers to ask, in order.
+     */
+    public CredentialsProviderChain(CredentialsProvider... providers) {
+        this.providers = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(providers)));
+    }
+
+    @Override
+    public String getAccessKeyId() {
+        return this.getCredentials().getAccessKeyId();
+    }
+
+    @Override
+    public String getSecretAccessKey() {
+        return this.getCredentials().getSecretAccessKey();
+    }
+
+    @Override
+    public String getSessionToken() {
+        return this.getCredentials().getSessionToken();
+    }
+
+    /**
+     * @throws IllegalStateException If none of the providers has credentials, with what each of them said.
+     */
+    @Override
+    public Credentials getCredentials() {
+        final CredentialsProvider provider = this.chosen;
+        if (provider != null) {
+            return provider.getCredentials();
+        }
+        return this.choose();
+    }
+
+    /**
+     * @return The provider that gave credentials, null if none has been asked yet.
+     */
+    public CredentialsProvider getChosenProvider() {
+        return this.chosen;
+    }
+
+    private synchronized Credentials choose() {
+        if (this.chosen != null) {
+            return this.chosen.getCredentials();
+        }
+        final StringBuilder reasons = new StringBuilder();
+        for (final CredentialsProvider provider : this.providers) {
+            try {
+                final Credentials credentials = provider.getCredentials();
+                if (credentials != null && credentials.getAccessKeyId() != null
+                        && credentials.getSecretAccessKey() != null) {
+                    this.chosen = provider;
+                    return credentials;
+                }
+                reasons.append(", ").append(provider.getClass().getSimpleName()).append(": no keys");
+            } catch (RuntimeException exception) {
+                reasons.append(", ").append(provider.getClass().getSimpleName()).append(": ")
+                        .append(exception.getMessage());
+            }
+        }
+        throw new IllegalStateException("No credentials found" + (reasons.length() > 0
+                ? " (" + reasons.substring(2) + ")" : ""));
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.kulminaator.s3.auth;
 
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+import com.github.kulminaator.s3.http.Encoding;
 import com.github.kulminaator.s3.http.HttpRequest;
 
 import javax.crypto.Mac;
@@ -10,7 +12,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.Instant;
-import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
@@ -23,10 +25,43 @@ import java.util.TreeMap;
  * https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-auth-using-authorization-header.html
  *
  * Also i think amazon people are all over the place with the whole messy if-or-not-then-what-is-even-going-on-approach.
+ *
+ * One calculator is meant to be shared by all requests of a client and is thread safe. The signing key derived from
+ * the date, region and secret is cached until one of those changes, Mac and MessageDigest instances are reused per
+ * thread.
  */
 public class PicoSignatureCalculator {
 
+    static final String STREAMING_PAYLOAD = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
+    static final String STREAMING_PAYLOAD_TRAILER = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD-TRAILER";
+    static final String STREAMING_UNSIGNED_PAYLOAD_TRAILER = "STREAMING-UNSIGNED-PAYLOAD-TRAILER";
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    // the longest a presigned url can be valid, 7 days
+    static final long MAX_PRESIGN_SECONDS = 604800;
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Platform not sane, missing sha256", e);
+        }
+    });
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Platform doesn't support SHA-256", e);
+        }
+    });
+
     private Clock clock = Clock.systemUTC();
+    private volatile SigningKey signingKey;
 
     public PicoSignatureCalculator() {
     }
@@ -45,19 +80,82 @@ public class PicoSignatureCalculator {
         this.addSignatureHeader(request, credentialsProvider);
     }
 
+    /**
+     * Signs the request in its query string instead of the Authorization header, see
+     * https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-query-string-auth.html
+     *
+     * Only the host header is signed and the payload is not (UNSIGNED-PAYLOAD), so the url works as it is from any
+     * http client. Nothing is sent, this is local work only, the signing key is cached like for the other requests.
+     * @param request Request with the method, host, path and region set, the X-Amz-* parameters are added to the
+     * params.
+     * @param credentialsProvider Credentials to sign with, their session token goes into the url too.
+     * @param expiresInSeconds How long the url is valid, 1 second to 7 days.
+     */
+    public void presign(HttpRequest request, CredentialsProvider credentialsProvider, long expiresInSeconds) {
+        if (expiresInSeconds < 1 || expiresInSeconds > MAX_PRESIGN_SECONDS) {
+            throw new IllegalArgumentException("A presigned url expires in 1 to " + MAX_PRESIGN_SECONDS + " seconds");
+        }
+        final Instant now = this.clock.instant();
+        final String date = this.getFormattedDate(now);
+        final String dateTime = this.getFormattedDateTime(now);
+        final Credentials credentials = credentialsProvider.getCredentials();
+        final String scope = date + "/" + request.getRegion() + "/s3/aws4_request";
+
+        request.setHeader("Host", request.getHost());
+        // the canonical query string is sorted by name, the params given are expected to be encoded already
+        final Map<String, String> params = new TreeMap<>();
+        if (request.getParams() != null && !request.getParams().isEmpty()) {
+            for (final String param : request.getParams().split("&")) {
+                final int separator = param.indexOf('=');
+                params.put(separator < 0 ? param : param.substring(0, separator),
+                        separator < 0 ? "" : param.substring(separator + 1));
+            }
+        }
+        params.put("X-Amz-Algorithm", "AWS4-HMAC-SHA256");
+        params.put("X-Amz-Credential", Encoding.uriEncode(credentials.getAccessKeyId() + "/" + scope, true));
+        params.put("X-Amz-Date", dateTime);
+        params.put("X-Amz-Expires", String.valueOf(expiresInSeconds));
+        if (credentials.getSessionToken() != null) {
+            params.put("X-Amz-Security-Token", Encoding.uriEncode(credentials.getSessionToken(), true));
+        }
+        params.put("X-Amz-SignedHeaders", this.getSignedHeaders(request));
+        final StringBuilder query = new StringBuilder();
+        for (final Map.Entry<String, String> param : params.entrySet()) {
+            query.append(query.length() == 0 ? "" : "&").append(param.getKey()).append('=').append(param.getValue());
+        }
+        request.setParams(query.toString());
+
+        final String stringToSign = this.getStringToSign(dateTime, scope,
+                this.getCanonicalRequest(request, UNSIGNED_PAYLOAD));
+        final byte[] signingKey = this.getSigningKey(date, request.getRegion(), credentials.getSecretAccessKey());
+        final String signature = Encoding.hex(hmacSha256(stringToSign.getBytes(StandardCharsets.UTF_8), signingKey));
+
+        request.setParams(query.append("&X-Amz-Signature=").append(signature).toString());
+    }
+
     private void addSignatureHeader(HttpRequest request, CredentialsProvider credentialsProvider) {
         final Instant now = this.clock.instant();
         final String date = this.getFormattedDate(now);
         final String dateTime = this.getFormattedDateTime(now);
 
-        this.addRequiredHeaders(request, dateTime, credentialsProvider);
+        // one snapshot, so the key id, secret and token can not come from different refreshes
+        final Credentials credentials = credentialsProvider.getCredentials();
+        // the body is hashed once here, the header and the canonical request share the result
+        final String payloadHash = this.getPayloadHash(request);
+        final boolean streaming = payloadHash.startsWith("STREAMING-");
+        final boolean signedChunks = !STREAMING_UNSIGNED_PAYLOAD_TRAILER.equals(payloadHash);
+        final ChecksumAlgorithm trailer = this.getTrailerChecksum(request);
+        this.addRequiredHeaders(request, dateTime, credentials, payloadHash);
+        if (streaming) {
+            this.addStreamingHeaders(request, signedChunks, trailer);
+        }
 
-        final String accessKey = credentialsProvider.getAccessKeyId();
-        final String secretAccessKey = credentialsProvider.getSecretAccessKey();
+        final String accessKey = credentials.getAccessKeyId();
+        final String secretAccessKey = credentials.getSecretAccessKey();
 
         final String scope = date + "/" + request.getRegion() + "/s3/aws4_request";
 
-        final String canonical = this.getCanonicalRequest(request);
+        final String canonical = this.getCanonicalRequest(request, payloadHash);
 
         //System.out.println("*** Canonical is : \n" + canonical + "//END");
 
@@ -65,14 +163,11 @@ public class PicoSignatureCalculator {
 
         //System.out.println("*** <> *** String to sign : \n" + stringToSign + "//END");
 
-        final byte[] dateKey = hmacSha256(date, "AWS4"+secretAccessKey);
-        final byte[] dateRegionKey = hmacSha256(request.getRegion(), dateKey);
-        final byte[] dateRegionServiceKey = hmacSha256("s3", dateRegionKey);
-        final byte[] signingKey = hmacSha256("aws4_request", dateRegionServiceKey);
+        final byte[] signingKey = this.getSigningKey(date, request.getRegion(), secretAccessKey);
 
         final byte[] signature = hmacSha256(stringToSign.getBytes(StandardCharsets.UTF_8), signingKey);
 
-        final String hexSignature = this.hex(signature);
+        final String hexSignature = Encoding.hex(signature);
 
         final StringBuilder authHeaderContent = new StringBuilder();
         final String signedHeaders = this.getSignedHeaders(request);
@@ -84,14 +179,55 @@ public class PicoSignatureCalculator {
                 .append(",").append("Signature=").append(hexSignature);
 
         request.setHeader("Authorization", authHeaderContent.toString());
+
+        if (streaming) {
+            // every chunk gets signed with the previous signature as we go, the seed is the header signature
+            final long decodedLength = request.getBodyLength();
+            request.setBodyStream(new AwsChunkedInputStream(request.getBodyStream(), decodedLength,
+                    signedChunks ? signingKey : null, dateTime, scope, hexSignature, trailer),
+                    AwsChunkedInputStream.encodedLength(decodedLength, signedChunks, trailer));
+        }
+    }
+
+    /**
+     * The key only changes with the date, region or secret, so the four hmac rounds are done once per day and
+     * credentials instead of once per request. Racing threads may both derive it, either result is correct.
+     */
+    private byte[] getSigningKey(String date, String region, String secretAccessKey) {
+        final SigningKey cached = this.signingKey;
+        if (cached != null && cached.matches(date, region, secretAccessKey)) {
+            return cached.key;
+        }
+        final byte[] dateKey = hmacSha256(date, "AWS4"+secretAccessKey);
+        final byte[] dateRegionKey = hmacSha256(region, dateKey);
+        final byte[] dateRegionServiceKey = hmacSha256("s3", dateRegionKey);
+        final byte[] key = hmacSha256("aws4_request", dateRegionServiceKey);
+        this.signingKey = new SigningKey(date, region, secretAccessKey, key);
+        return key;
     }
 
-    private void addRequiredHeaders(HttpRequest request, String dateTime, CredentialsProvider credentialsProvider) {
+    private void addRequiredHeaders(HttpRequest request, String dateTime, Credentials credentials,
+                                    String payloadHash) {
         request.setHeader("Host", request.getHost());
         request.setHeader("x-amz-date", dateTime);
-        request.setHeader("x-amz-content-sha256", this.sha256(request.getBody()));
-        if (credentialsProvider.getSessionToken() != null) {
-            request.setHeader("x-amz-security-token", credentialsProvider.getSessionToken());
+        request.setHeader("x-amz-content-sha256", payloadHash);
+        if (credentials.getSessionToken() != null) {
+            request.setHeader("x-amz-security-token", credentials.getSessionToken());
+        }
+    }
+
+    /**
+     * Headers of the aws-chunked upload, see
+     * https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html
+     */
+    private void addStreamingHeaders(HttpRequest request, boolean signedChunks, ChecksumAlgorithm trailer) {
+        final long decodedLength = request.getBodyLength();
+        request.setHeader("Content-Encoding", "aws-chunked");
+        request.setHeader("x-amz-decoded-content-length", String.valueOf(decodedLength));
+        request.setHeader("Content-Length",
+                String.valueOf(AwsChunkedInputStream.encodedLength(decodedLength, signedChunks, trailer)));
+        if (trailer != null) {
+            request.setHeader("x-amz-trailer", trailer.getHeaderName());
         }
     }
 
@@ -108,6 +244,43 @@ public class PicoSignatureCalculator {
     }
 
     protected String getCanonicalRequest(HttpRequest request) {
+        return this.getCanonicalRequest(request, this.getPayloadHash(request));
+    }
+
+    /**
+     * Tls already guards the body on the wire, so over https the payload may be left unsigned on request. That
+     * skips hashing the body, and streamed bodies go out as they are instead of as signed aws-chunked chunks. A
+     * streamed body that wants a checksum trailer is chunked either way, the trailer needs the framing.
+     */
+    private String getPayloadHash(HttpRequest request) {
+        final boolean trailer = this.getTrailerChecksum(request) != null;
+        if (request.isUnsignedPayload() && "https".equalsIgnoreCase(request.getProtocol())) {
+            return trailer ? STREAMING_UNSIGNED_PAYLOAD_TRAILER : UNSIGNED_PAYLOAD;
+        }
+        if (request.getBodyStream() != null) {
+            return trailer ? STREAMING_PAYLOAD_TRAILER : STREAMING_PAYLOAD;
+        }
+        return this.sha256(request.getBody());
+    }
+
+    /**
+     * A streamed body can not have its checksum in a header up front, it is computed on the way and sent after
+     * the data when the request names an algorithm but carries no value.
+     * @return The algorithm of the trailer or null if there is none.
+     */
+    private ChecksumAlgorithm getTrailerChecksum(HttpRequest request) {
+        final List<String> algorithm = request.getHeaders().get(ChecksumAlgorithm.ALGORITHM_HEADER);
+        if (request.getBodyStream() == null || algorithm == null || algorithm.isEmpty()) {
+            return null;
+        }
+        final ChecksumAlgorithm trailer = ChecksumAlgorithm.valueOf(algorithm.get(0));
+        return request.getHeaders().containsKey(trailer.getHeaderName()) ? null : trailer;
+    }
+
+    /**
+     * @param payloadHash Hex sha256 of the body, or one of the special values that stand in for it.
+     */
+    private String getCanonicalRequest(HttpRequest request, String payloadHash) {
         final StringBuilder builder = new StringBuilder();
         builder.append(request.getMethod()).append("\n")
             .append(request.getPath()).append("\n");
@@ -126,7 +299,7 @@ public class PicoSignatureCalculator {
         }
         builder.append("\n")
             .append(String.join(";", canonicalHeaders.keySet())).append("\n")
-            .append(sha256(request.getBody()));
+            .append(payloadHash);
 
         return builder.toString();
     }
@@ -143,12 +316,12 @@ public class PicoSignatureCalculator {
 
     private byte[] hmacSha256(byte[] data, byte[] key) {
         try {
-            final Mac sha256_HMAC = Mac.getInstance("HmacSHA256");
+            final Mac sha256_HMAC = HMAC_SHA256.get();
             final SecretKeySpec secret_key = new SecretKeySpec(key, "HmacSHA256");
             sha256_HMAC.init(secret_key);
             return sha256_HMAC.doFinal(data);
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            throw new RuntimeException("Platform not sane, missing sha256 or failing to construct key", e);
+        } catch (InvalidKeyException e) {
+            throw new RuntimeException("Platform not sane, failing to construct key", e);
         }
     }
 
@@ -160,39 +333,48 @@ public class PicoSignatureCalculator {
 
     private String sha256(byte[] body) {
         byte[] digested = this.rawSha256(body);
-        return this.hex(digested);
-    }
-
-    private String hex(byte[] data) {
-        final StringBuilder hexString = new StringBuilder();
-        for (final byte rawByte : data) {
-            hexString.append(String.format("%02x", rawByte & 0XFF));
-        }
-        return hexString.toString().toLowerCase();
+        return Encoding.hex(digested);
     }
 
     private MessageDigest getSha256Digest() {
-        try {
-            return MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Platform doesn't support SHA-256", e);
-        }
+        final MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest;
     }
 
     private Map<String, String> getCanonicalHeaders(HttpRequest request) {
         final TreeMap<String, String> map = new TreeMap<>();
         for (Map.Entry<String, List<String>> e : request.getHeaders().entrySet()) {
-            final String value = String.join(";", e.getValue()).replaceAll(" +", " ");
+            final String value = Encoding.collapseSpaces(String.join(";", e.getValue()));
             map.put(e.getKey().toLowerCase().trim(), value);
         }
         return map;
     }
 
     private String getFormattedDate(Instant instant) {
-        return instant.atZone(ZoneId.of("UTC")).format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        return DATE_FORMAT.format(instant);
     }
 
     private String getFormattedDateTime(Instant instant) {
-        return instant.atZone(ZoneId.of("UTC")).format(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'"));
+        return DATE_TIME_FORMAT.format(instant);
+    }
+
+    private static final class SigningKey {
+        private final String date;
+        private final String region;
+        private final String secretAccessKey;
+        private final byte[] key;
+
+        SigningKey(String date, String region, String secretAccessKey, byte[] key) {
+            this.date = date;
+            this.region = region;
+            this.secretAccessKey = secretAccessKey;
+            this.key = key;
+        }
+
+        boolean matches(String date, String region, String secretAccessKey) {
+            return this.date.equals(date) && this.region.equals(region)
+                    && this.secretAccessKey.equals(secretAccessKey);
+        }
     }
 }
@@ -0,0 +1,168 @@
+package com.github.kulminaator.s3.auth;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base of the providers of temporary credentials that come from a service (instance metadata, container endpoint,
+ * sts).
+ *
+ * The credentials are fetched once and handed out as an immutable snapshot. A few minutes before they expire (with
+ * some jitter, so a fleet does not refresh in step) one background thread fetches the next ones while requests keep
+ * using the current ones. If the service is slow or failing the current credentials are used until they actually
+ * expire, only then (and on the first use) do requests wait for the service, one of them making the request and
+ * the others waiting for its result. Thread safe.
+ */
+public abstract class RefreshingCredentialsProvider implements CredentialsProvider {
+
+    private static final Duration REFRESH_AHEAD = Duration.ofMinutes(4);
+    private static final long REFRESH_JITTER_MILLIS = 60_000;
+    // the soonest next attempt after a failed refresh or one that got the old credentials again
+    private static final Duration REFRESH_RETRY = Duration.ofSeconds(30);
+
+    private final Object loadLock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    private Clock clock = Clock.systemUTC();
+    private Executor refresher = RefreshingCredentialsProvider::runInDaemonThread;
+
+    /**
+     * Fetches the credentials from the service. Never called by two threads at once.
+     * @return Fresh credentials.
+     * @throws IllegalStateException If there are none to be had.
+     */
+    protected abstract Credentials loadCredentials();
+
+    @Override
+    public String getAccessKeyId() {
+        return this.getCredentials().getAccessKeyId();
+    }
+
+    @Override
+    public String getSecretAccessKey() {
+        return this.getCredentials().getSecretAccessKey();
+    }
+
+    @Override
+    public String getSessionToken() {
+        return this.getCredentials().getSessionToken();
+    }
+
+    /**
+     * @throws IllegalStateException If there are no credentials to be had.
+     */
+    @Override
+    public Credentials getCredentials() {
+        final Snapshot current = this.snapshot;
+        final Instant now = this.clock.instant();
+        if (current == null || current.credentials.isExpired(now)) {
+            return this.loadBlocking(current);
+        }
+        if (!now.isBefore(current.refreshAt)) {
+            this.refreshInBackground();
+        }
+        return current.credentials;
+    }
+
+    protected Instant now() {
+        return this.clock.instant();
+    }
+
+    /**
+     * Used in time related unit tests only.
+     */
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Used in unit tests only, to run the background refresh where the test can wait for it.
+     */
+    void setRefresher(Executor refresher) {
+        this.refresher = refresher;
+    }
+
+    private Credentials loadBlocking(Snapshot seen) {
+        synchronized (this.loadLock) {
+            final Snapshot current = this.snapshot;
+            if (current != null && current != seen && !current.credentials.isExpired(this.clock.instant())) {
+                // another thread loaded them while this one waited
+                return current.credentials;
+            }
+            return this.load().credentials;
+        }
+    }
+
+    private void refreshInBackground() {
+        if (!this.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.refresher.execute(() -> {
+                try {
+                    synchronized (this.loadLock) {
+                        this.refreshIfDue();
+                    }
+                } finally {
+                    this.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException rejected) {
+            this.refreshing.set(false);
+        }
+    }
+
+    private void refreshIfDue() {
+        final Snapshot current = this.snapshot;
+        if (this.clock.instant().isBefore(current.refreshAt)) {
+            // a request that found them expired has loaded new ones meanwhile
+            return;
+        }
+        try {
+            this.load();
+        } catch (RuntimeException failure) {
+            // stale while revalidate, the current credentials are good until they expire
+            this.snapshot = new Snapshot(current.credentials, this.clock.instant().plus(REFRESH_RETRY));
+        }
+    }
+
+    private Snapshot load() {
+        final Credentials credentials = this.loadCredentials();
+        final Instant now = this.clock.instant();
+        Instant refreshAt = now.plus(REFRESH_RETRY);
+        if (credentials.getExpiration() != null) {
+            final Instant planned = credentials.getExpiration().minus(REFRESH_AHEAD)
+                    .minusMillis(ThreadLocalRandom.current().nextLong(REFRESH_JITTER_MILLIS + 1));
+            if (planned.isAfter(refreshAt)) {
+                refreshAt = planned;
+            }
+        }
+        final Snapshot loaded = new Snapshot(credentials, refreshAt);
+        this.snapshot = loaded;
+        return loaded;
+    }
+
+    private static void runInDaemonThread(Runnable task) {
+        final Thread thread = new Thread(task, "pico-s3-credentials-refresh");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The credentials and when to start fetching the next ones.
+     */
+    private static class Snapshot {
+        private final Credentials credentials;
+        private final Instant refreshAt;
+
+        private Snapshot(Credentials credentials, Instant refreshAt) {
+            this.credentials = credentials;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
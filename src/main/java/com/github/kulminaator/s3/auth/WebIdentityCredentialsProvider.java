@@ -0,0 +1,106 @@
+package com.github.kulminaator.s3.auth;
+
+import com.github.kulminaator.s3.http.Encoding;
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.http.PicoHttpClient;
+import com.github.kulminaator.s3.xml.S3XmlParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Credentials of a role assumed with a web identity token (eks service accounts and the like), configured by
+ * environment variables:
+ *
+ * AWS_WEB_IDENTITY_TOKEN_FILE - file with the token, re-read on every refresh as it gets rotated
+ * AWS_ROLE_ARN - role to assume
+ * AWS_ROLE_SESSION_NAME - optional, names the session in cloudtrail
+ * AWS_REGION or AWS_DEFAULT_REGION - optional, the regional sts endpoint is used if set
+ *
+ * The role is assumed with an unsigned sts AssumeRoleWithWebIdentity request. Refreshed ahead of expiry in the
+ * background, see RefreshingCredentialsProvider.
+ */
+public class WebIdentityCredentialsProvider extends RefreshingCredentialsProvider {
+
+    static final String TOKEN_FILE_VARIABLE = "AWS_WEB_IDENTITY_TOKEN_FILE";
+    static final String ROLE_ARN_VARIABLE = "AWS_ROLE_ARN";
+    static final String SESSION_NAME_VARIABLE = "AWS_ROLE_SESSION_NAME";
+
+    private HttpClient client = new PicoHttpClient();
+    private Function<String, String> environment = System::getenv;
+
+    public WebIdentityCredentialsProvider() {}
+
+    public WebIdentityCredentialsProvider(HttpClient customHttpClient) {
+        this.client = customHttpClient;
+    }
+
+    /**
+     * Constructor used in unit tests only.
+     */
+    WebIdentityCredentialsProvider(HttpClient customHttpClient, Function<String, String> environment) {
+        this.client = customHttpClient;
+        this.environment = environment;
+    }
+
+    /**
+     * @throws IllegalStateException If the environment variables are missing or sts refuses.
+     */
+    @Override
+    protected Credentials loadCredentials() {
+        final String tokenFile = this.environment.apply(TOKEN_FILE_VARIABLE);
+        final String roleArn = this.environment.apply(ROLE_ARN_VARIABLE);
+        if (tokenFile == null || tokenFile.isEmpty() || roleArn == null || roleArn.isEmpty()) {
+            throw new IllegalStateException(TOKEN_FILE_VARIABLE + " or " + ROLE_ARN_VARIABLE + " is not set");
+        }
+        try {
+            final String token = new String(Files.readAllBytes(Paths.get(tokenFile)), StandardCharsets.UTF_8).trim();
+            final HttpResponse response = this.client.makeRequest(this.buildRequest(roleArn, token));
+            final Map<String, String> fields = S3XmlParser.parseStsCredentials(
+                    new ByteArrayInputStream(response.getBody()));
+            if (fields.get("AccessKeyId") == null) {
+                throw new IllegalStateException("No credentials in the sts response");
+            }
+            final String expiration = fields.get("Expiration");
+            return new Credentials(fields.get("AccessKeyId"), fields.get("SecretAccessKey"), fields.get("SessionToken"),
+                    expiration == null ? null : ZonedDateTime.parse(expiration).toInstant());
+        } catch (Exception exception) {
+            throw new IllegalStateException("Cannot assume " + roleArn + " with web identity", exception);
+        }
+    }
+
+    private HttpRequest buildRequest(String roleArn, String token) {
+        String sessionName = this.environment.apply(SESSION_NAME_VARIABLE);
+        if (sessionName == null || sessionName.isEmpty()) {
+            sessionName = "pico-s3-" + System.currentTimeMillis();
+        }
+        final String body = "Action=AssumeRoleWithWebIdentity&Version=2011-06-15" +
+                "&RoleArn=" + Encoding.uriEncode(roleArn, true) +
+                "&RoleSessionName=" + Encoding.uriEncode(sessionName, true) +
+                "&WebIdentityToken=" + Encoding.uriEncode(token, true);
+
+        final HttpRequest request = new HttpRequest();
+        request.setMethod("POST");
+        request.setProtocol("https");
+        request.setHost(this.getStsHost());
+        request.setPath("/");
+        request.setHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
+        request.setBody(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private String getStsHost() {
+        String region = this.environment.apply("AWS_REGION");
+        if (region == null || region.isEmpty()) {
+            region = this.environment.apply("AWS_DEFAULT_REGION");
+        }
+        return region == null || region.isEmpty() ? "sts.amazonaws.com" : "sts." + region + ".amazonaws.com";
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.kulminaator.s3.cache;
+
+/**
+ * Contents and metadata of an object as it was when fetched. The ETag is what the next read revalidates with.
+ */
+public class CachedObject {
+    private final String eTag;
+    private final String lastModified;
+    private final String contentType;
+    private final String serverSideEncryption;
+    private final byte[] data;
+
+    public CachedObject(String eTag, String lastModified, String contentType, String serverSideEncryption,
+                        byte[] data) {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+        this.serverSideEncryption = serverSideEncryption;
+        this.data = data;
+    }
+
+    public String getETag() {
+        return this.eTag;
+    }
+
+    public String getLastModified() {
+        return this.lastModified;
+    }
+
+    public String getContentType() {
+        return this.contentType;
+    }
+
+    public String getServerSideEncryption() {
+        return this.serverSideEncryption;
+    }
+
+    /**
+     * @return The contents, shared with the cache, so not to be modified.
+     */
+    public byte[] getData() {
+        return this.data;
+    }
+}
@@ -0,0 +1,208 @@
+package com.github.kulminaator.s3.cache;
+
+import com.github.kulminaator.s3.http.Encoding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Objects in files of a directory, bounded by the total size of the files. When the bound is passed the files
+ * used least recently go first. Usually the next tier of a MemoryObjectCache, so it survives restarts and holds
+ * more than fits in memory.
+ *
+ * Files are written to a temporary name and moved in place, readers never see half written ones. A file that can
+ * not be read counts as a miss and is dropped, the cache never fails a read of s3.
+ */
+public class DiskObjectCache implements ObjectCache {
+
+    private static final String SUFFIX = ".object";
+
+    private final Path directory;
+    private final long maxBytes;
+    // sizes of the files as written, what the bound is checked against
+    private final Map<Path, Long> sizes = new HashMap<>();
+    private long bytes;
+
+    /**
+     * @param directory Where the files go, created if missing. Files of earlier runs are used.
+     * @param maxBytes Upper bound of the total size of the files.
+     */
+    public DiskObjectCache(Path directory, long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size can not be negative");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+            for (final Path file : this.listFiles()) {
+                this.track(file, Files.size(file));
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Cannot use " + directory + " for caching", exception);
+        }
+    }
+
+    @Override
+    public CachedObject get(String key) {
+        final Path file = this.fileOf(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!key.equals(input.readUTF())) {
+                return null;
+            }
+            final String eTag = readNullable(input);
+            final String lastModified = readNullable(input);
+            final String contentType = readNullable(input);
+            final String serverSideEncryption = readNullable(input);
+            final byte[] data = new byte[input.readInt()];
+            input.readFully(data);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new CachedObject(eTag, lastModified, contentType, serverSideEncryption, data);
+        } catch (IOException exception) {
+            this.remove(key);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, CachedObject object) {
+        final Path file = this.fileOf(key);
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(this.directory, "put", ".tmp");
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeUTF(key);
+                writeNullable(output, object.getETag());
+                writeNullable(output, object.getLastModified());
+                writeNullable(output, object.getContentType());
+                writeNullable(output, object.getServerSideEncryption());
+                output.writeInt(object.getData().length);
+                output.write(object.getData());
+            }
+            final long size = Files.size(temporary);
+            if (size > this.maxBytes) {
+                Files.delete(temporary);
+                this.removeFile(file);
+                return;
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.track(file, size);
+            this.evict();
+        } catch (IOException exception) {
+            // a full or read only disk only costs the caching
+            deleteQuietly(temporary);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        try {
+            this.removeFile(this.fileOf(key));
+        } catch (IOException ignored) {
+            // gone already or not ours to delete, either way it will not be read
+        }
+    }
+
+    /**
+     * @return Total size of the files.
+     */
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    private void track(Path file, long size) {
+        final Long replaced = this.sizes.put(file, size);
+        this.bytes += size - (replaced == null ? 0 : replaced);
+    }
+
+    private void removeFile(Path file) throws IOException {
+        final Long size = this.sizes.remove(file);
+        if (size != null) {
+            this.bytes -= size;
+        }
+        Files.deleteIfExists(file);
+    }
+
+    private void evict() throws IOException {
+        if (this.bytes <= this.maxBytes) {
+            return;
+        }
+        final List<Path> files = new ArrayList<>(this.sizes.keySet());
+        files.sort(Comparator.comparing(DiskObjectCache::lastModifiedTime));
+        for (int i = 0; i < files.size() && this.bytes > this.maxBytes; i++) {
+            this.removeFile(files.get(i));
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+            for (final Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Keys may hold anything, the file name is a hash of them.
+     */
+    private Path fileOf(String key) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return this.directory.resolve(Encoding.hex(hash) + SUFFIX);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("No SHA-256 in this jvm", exception);
+        }
+    }
+
+    private static FileTime lastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException exception) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // left behind in the cache directory, does not end in SUFFIX so it is never read
+        }
+    }
+}
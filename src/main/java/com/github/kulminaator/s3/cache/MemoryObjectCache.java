@@ -0,0 +1,100 @@
+package com.github.kulminaator.s3.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used objects in memory, bounded by the total size of their contents. Objects bigger than the
+ * whole cache are not kept.
+ *
+ * An optional next tier (e.g. DiskObjectCache) gets every object put here as well and is asked on a miss, hits
+ * from it are moved back into memory. That keeps the hot objects in memory and many more on disk.
+ */
+public class MemoryObjectCache implements ObjectCache {
+
+    private final long maxBytes;
+    private final ObjectCache nextTier;
+    private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * @param maxBytes Upper bound of the contents held in memory.
+     */
+    public MemoryObjectCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * @param maxBytes Upper bound of the contents held in memory.
+     * @param nextTier Cache asked on misses and written through to, null for none.
+     */
+    public MemoryObjectCache(long maxBytes, ObjectCache nextTier) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size can not be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.nextTier = nextTier;
+    }
+
+    @Override
+    public CachedObject get(String key) {
+        synchronized (this) {
+            final CachedObject object = this.entries.get(key);
+            if (object != null || this.nextTier == null) {
+                return object;
+            }
+        }
+        final CachedObject object = this.nextTier.get(key);
+        if (object != null) {
+            this.putInMemory(key, object);
+        }
+        return object;
+    }
+
+    @Override
+    public void put(String key, CachedObject object) {
+        this.putInMemory(key, object);
+        if (this.nextTier != null) {
+            this.nextTier.put(key, object);
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        synchronized (this) {
+            final CachedObject removed = this.entries.remove(key);
+            if (removed != null) {
+                this.bytes -= removed.getData().length;
+            }
+        }
+        if (this.nextTier != null) {
+            this.nextTier.remove(key);
+        }
+    }
+
+    /**
+     * @return Total size of the contents held in memory.
+     */
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    private synchronized void putInMemory(String key, CachedObject object) {
+        final CachedObject replaced = this.entries.remove(key);
+        if (replaced != null) {
+            this.bytes -= replaced.getData().length;
+        }
+        if (object.getData().length > this.maxBytes) {
+            return;
+        }
+        this.entries.put(key, object);
+        this.bytes += object.getData().length;
+        // access order, the first entries are the least recently used
+        final Iterator<Map.Entry<String, CachedObject>> iterator = this.entries.entrySet().iterator();
+        while (this.bytes > this.maxBytes && iterator.hasNext()) {
+            this.bytes -= iterator.next().getValue().getData().length;
+            iterator.remove();
+        }
+    }
+}
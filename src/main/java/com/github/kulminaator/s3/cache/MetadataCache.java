@@ -0,0 +1,294 @@
+package com.github.kulminaator.s3.cache;
+
+import com.github.kulminaator.s3.S3Object;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the answers of getObject (HEAD) for a while, so existence and size checks in loops do not cost a
+ * request each. Unlike the ObjectCache nothing is revalidated, an entry is served as it is until its time to live
+ * runs out, so changes made by others show up with that delay. Changes made through the client that uses the
+ * cache drop the entries right away.
+ *
+ * 404 answers are remembered too (usually shorter), they are thrown again as S3ServiceException. At most maxEntries
+ * entries are kept, the least recently used go first. Use the builder to create an instance, it is thread safe.
+ */
+public class MetadataCache {
+
+    private static final int HTTP_NOT_FOUND = 404;
+
+    private long ttlNanos;
+    private long notFoundTtlNanos;
+    private int maxEntries;
+    private LongSupplier nanoClock = System::nanoTime;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    // bumped by every invalidation, answers of requests that were in flight meanwhile may be outdated
+    private long generation;
+
+    /**
+     * Answers from the cache or asks the loader and caches its answer.
+     * @param key Bucket and object, "bucket/path/to/object".
+     * @param loader Makes the request, throws S3ServiceException for missing objects.
+     * @return The metadata, a copy of its own for every caller.
+     * @throws S3ServiceException With http code 404 if the object is missing (cached or not).
+     */
+    public S3Object get(String key, Function<String, S3Object> loader) {
+        final Entry cached = this.lookup(key);
+        if (cached != null) {
+            return cached.answer(key);
+        }
+        final long generation = this.getGeneration();
+        final S3Object loaded;
+        try {
+            loaded = loader.apply(key);
+        } catch (S3ServiceException exception) {
+            this.storeIfNotFound(key, exception, generation);
+            throw exception;
+        }
+        this.store(key, new Entry(loaded, this.expiry(this.ttlNanos)), generation);
+        return copy(loaded);
+    }
+
+    /**
+     * Asynchronous variant of get, the loader is only called on a miss.
+     * @param key Bucket and object, "bucket/path/to/object".
+     * @param loader Makes the request, the future fails with S3ServiceException for missing objects.
+     * @return The metadata, a copy of its own for every caller.
+     */
+    public CompletableFuture<S3Object> getAsync(String key, Function<String, CompletableFuture<S3Object>> loader) {
+        final Entry cached = this.lookup(key);
+        if (cached != null) {
+            final CompletableFuture<S3Object> result = new CompletableFuture<>();
+            try {
+                result.complete(cached.answer(key));
+            } catch (S3ServiceException notFound) {
+                result.completeExceptionally(notFound);
+            }
+            return result;
+        }
+        final long generation = this.getGeneration();
+        return loader.apply(key).whenComplete((loaded, failure) -> {
+            final Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            if (cause instanceof S3ServiceException) {
+                this.storeIfNotFound(key, (S3ServiceException) cause, generation);
+            } else if (failure == null) {
+                this.store(key, new Entry(loaded, this.expiry(this.ttlNanos)), generation);
+            }
+        }).thenApply(MetadataCache::copy);
+    }
+
+    /**
+     * Drops what is known of an object, e.g. after it has been written.
+     * @param key Bucket and object, "bucket/path/to/object".
+     */
+    public synchronized void invalidate(String key) {
+        this.entries.remove(key);
+        this.generation++;
+    }
+
+    public synchronized void invalidateAll() {
+        this.entries.clear();
+        this.generation++;
+    }
+
+    /**
+     * @return Entries held, expired ones included until they are looked up or pushed out.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return Lookups answered from the cache, 404s included.
+     */
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * @return Lookups that had to make a request.
+     */
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * @return Entries pushed out to stay within maxEntries.
+     */
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    public long getTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.ttlNanos);
+    }
+
+    private void setTtlNanos(long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+    }
+
+    public long getNotFoundTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.notFoundTtlNanos);
+    }
+
+    private void setNotFoundTtlNanos(long notFoundTtlNanos) {
+        this.notFoundTtlNanos = notFoundTtlNanos;
+    }
+
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    private void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Used in time related unit tests only.
+     */
+    void setNanoClock(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    private synchronized Entry lookup(String key) {
+        final Entry entry = this.entries.get(key);
+        if (entry != null && entry.expiresAt - this.nanoClock.getAsLong() > 0) {
+            this.hitCount++;
+            return entry;
+        }
+        if (entry != null) {
+            this.entries.remove(key);
+        }
+        this.missCount++;
+        return null;
+    }
+
+    private synchronized long getGeneration() {
+        return this.generation;
+    }
+
+    private void storeIfNotFound(String key, S3ServiceException exception, long generation) {
+        if (exception.getHttpCode() == HTTP_NOT_FOUND && this.notFoundTtlNanos > 0) {
+            this.store(key, new Entry(null, this.expiry(this.notFoundTtlNanos)), generation);
+        }
+    }
+
+    private synchronized void store(String key, Entry entry, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        this.entries.put(key, entry);
+        // access order, the first entries are the least recently used
+        final Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+        while (this.entries.size() > this.maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            this.evictionCount++;
+        }
+    }
+
+    private long expiry(long ttlNanos) {
+        return this.nanoClock.getAsLong() + ttlNanos;
+    }
+
+    private static S3Object copy(S3Object object) {
+        final S3Object copy = new S3Object();
+        copy.setKey(object.getKey());
+        copy.setETag(object.getETag());
+        copy.setSize(object.getSize());
+        copy.setLastModified(object.getLastModified());
+        copy.setContentType(object.getContentType());
+        copy.setServerSideEncryption(object.getServerSideEncryption());
+        return copy;
+    }
+
+    /**
+     * Metadata of an object, or null metadata for an object that was not found.
+     */
+    private static class Entry {
+        private final S3Object metadata;
+        private final long expiresAt;
+
+        private Entry(S3Object metadata, long expiresAt) {
+            this.metadata = metadata;
+            this.expiresAt = expiresAt;
+        }
+
+        private S3Object answer(String key) {
+            if (this.metadata == null) {
+                throw new S3ServiceException(HTTP_NOT_FOUND, null, "No object " + key + " (cached)", null,
+                        false, null);
+            }
+            return copy(this.metadata);
+        }
+    }
+
+    /**
+     * Helps to build MetadataCache objects.
+     */
+    public static class Builder {
+
+        public static final long DEFAULT_TTL_MILLIS = 60_000;
+        public static final long DEFAULT_NOT_FOUND_TTL_MILLIS = 5_000;
+        public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+        private long ttlMillis = DEFAULT_TTL_MILLIS;
+        private long notFoundTtlMillis = DEFAULT_NOT_FOUND_TTL_MILLIS;
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+        public Builder(){}
+
+        /**
+         * Sets how long the metadata of an existing object is served without asking s3.
+         * @param ttlMillis Time to live in milliseconds.
+         * @return Builder.
+         */
+        public Builder withTtl(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * Sets how long an object is known to be missing without asking s3.
+         * @param notFoundTtlMillis Time to live in milliseconds, 0 to not cache 404s at all.
+         * @return Builder.
+         */
+        public Builder withNotFoundTtl(long notFoundTtlMillis) {
+            this.notFoundTtlMillis = notFoundTtlMillis;
+            return this;
+        }
+
+        /**
+         * Sets how many objects are remembered at most.
+         * @param maxEntries The bound, the least recently used entries go first.
+         * @return Builder.
+         */
+        public Builder withMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public MetadataCache build() {
+            if (this.ttlMillis < 0 || this.notFoundTtlMillis < 0 || this.maxEntries < 1) {
+                throw new IllegalArgumentException("Negative time to live or no room for entries");
+            }
+            final MetadataCache cache = new MetadataCache();
+            cache.setTtlNanos(TimeUnit.MILLISECONDS.toNanos(this.ttlMillis));
+            cache.setNotFoundTtlNanos(TimeUnit.MILLISECONDS.toNanos(this.notFoundTtlMillis));
+            cache.setMaxEntries(this.maxEntries);
+            return cache;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.kulminaator.s3.cache;
+
+/**
+ * Local copies of objects the client has read. Entries are never trusted as they are, every read asks s3 whether
+ * the copy is still current (If-None-Match with the ETag) and only a 304 Not Modified serves the cached bytes.
+ * So a cache saves the transfer, not the round trip, and can never serve stale data.
+ *
+ * Implementations have to be thread safe, one cache is shared by all requests of a client.
+ */
+public interface ObjectCache {
+
+    /**
+     * @param key Bucket and object, "bucket/path/to/object".
+     * @return The cached copy, null if there is none.
+     */
+    CachedObject get(String key);
+
+    /**
+     * Stores or replaces the copy of an object. A cache may decline to keep it (e.g. too big).
+     * @param key Bucket and object, "bucket/path/to/object".
+     * @param object The copy.
+     */
+    void put(String key, CachedObject object);
+
+    /**
+     * Drops the copy of an object, if there is one.
+     * @param key Bucket and object, "bucket/path/to/object".
+     */
+    void remove(String key);
+}
@@ -0,0 +1,108 @@
+package com.github.kulminaator.s3.checksum;
+
+import java.lang.reflect.Constructor;
+import java.util.Base64;
+import java.util.zip.Checksum;
+
+/**
+ * The s3 additional checksums this client can send and check, see
+ * https://docs.aws.amazon.com/AmazonS3/latest/userguide/checking-object-integrity.html
+ *
+ * Both are computed as the data streams by, at close to memory copy speed, instead of a second pass of sha256 or md5
+ * over the whole object. CRC32C uses java.util.zip.CRC32C where the jvm has it (java 9 and newer, intrinsified on
+ * modern cpus), a table driven implementation on java 8. CRC64NVME is always the table driven one.
+ */
+public enum ChecksumAlgorithm {
+
+    CRC32C("x-amz-checksum-crc32c", 32),
+    CRC64NVME("x-amz-checksum-crc64nvme", 64);
+
+    /**
+     * Names the algorithm of a checksum sent along with an upload, as the header or as a trailer after the data.
+     */
+    public static final String ALGORITHM_HEADER = "x-amz-sdk-checksum-algorithm";
+
+    private static final Constructor<? extends Checksum> JDK_CRC32C = findJdkCrc32c();
+
+    private final String headerName;
+    private final int width;
+
+    ChecksumAlgorithm(String headerName, int width) {
+        this.headerName = headerName;
+        this.width = width;
+    }
+
+    /**
+     * @return Name of the header (or trailer) that carries the base64 checksum, e.g. x-amz-checksum-crc32c.
+     */
+    public String getHeaderName() {
+        return this.headerName;
+    }
+
+    /**
+     * @return A fresh checksum in its initial state, not thread safe.
+     */
+    public Checksum newChecksum() {
+        if (this == CRC64NVME) {
+            return new ReflectedCrc(ReflectedCrc.CRC64NVME_TABLES, 64);
+        }
+        if (JDK_CRC32C != null) {
+            try {
+                return JDK_CRC32C.newInstance();
+            } catch (ReflectiveOperationException e) {
+                // not expected once the constructor was found, the table driven one gives the same result
+            }
+        }
+        return new ReflectedCrc(ReflectedCrc.CRC32C_TABLES, 32);
+    }
+
+    /**
+     * @param data The data.
+     * @return The checksum of the data in the form s3 uses in the headers.
+     */
+    public String checksum(byte[] data) {
+        return this.checksum(data, 0, data.length);
+    }
+
+    /**
+     * @param data Buffer holding the data.
+     * @param offset Where the data starts in the buffer.
+     * @param length How many bytes of the buffer are data.
+     * @return The checksum of the data in the form s3 uses in the headers.
+     */
+    public String checksum(byte[] data, int offset, int length) {
+        final Checksum checksum = this.newChecksum();
+        checksum.update(data, offset, length);
+        return this.encode(checksum);
+    }
+
+    /**
+     * @param checksum A checksum of this algorithm.
+     * @return Its current value as big endian bytes in base64, the form s3 uses in the headers.
+     */
+    public String encode(Checksum checksum) {
+        final int bytes = this.width / 8;
+        final long value = checksum.getValue();
+        final byte[] encoded = new byte[bytes];
+        for (int i = 0; i < bytes; i++) {
+            encoded[i] = (byte) (value >>> (8 * (bytes - 1 - i)));
+        }
+        return Base64.getEncoder().encodeToString(encoded);
+    }
+
+    /**
+     * @return Length of the base64 value, the same for every checksum of the algorithm.
+     */
+    public int getEncodedLength() {
+        return (this.width / 8 + 2) / 3 * 4;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Constructor<? extends Checksum> findJdkCrc32c() {
+        try {
+            return (Constructor<? extends Checksum>) Class.forName("java.util.zip.CRC32C").getConstructor();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.kulminaator.s3.checksum;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Checks the data against the checksum s3 gave for it while it is being read, no second pass over the data. Once
+ * the end is reached a mismatch fails the read with an IOException, so a corrupted download can not pass as
+ * complete. Streams closed before the end are not checked.
+ */
+public class ChecksumInputStream extends FilterInputStream {
+
+    private final ChecksumAlgorithm algorithm;
+    private final String expected;
+    private final Checksum checksum;
+    private boolean verified;
+
+    /**
+     * @param source The data.
+     * @param algorithm Algorithm of the expected checksum.
+     * @param expected The base64 checksum, as in the x-amz-checksum-* header.
+     */
+    public ChecksumInputStream(InputStream source, ChecksumAlgorithm algorithm, String expected) {
+        super(source);
+        this.algorithm = algorithm;
+        this.expected = expected;
+        this.checksum = algorithm.newChecksum();
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int read = super.read();
+        if (read < 0) {
+            this.verify();
+        } else {
+            this.checksum.update(read);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        final int read = super.read(buffer, offset, length);
+        if (read < 0) {
+            this.verify();
+        } else {
+            this.checksum.update(buffer, offset, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        if (count <= 0) {
+            return 0;
+        }
+        // skipped data has to be checked too
+        final byte[] buffer = new byte[(int) Math.min(count, 8192)];
+        long skipped = 0;
+        while (skipped < count) {
+            final int read = this.read(buffer, 0, (int) Math.min(buffer.length, count - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void verify() throws IOException {
+        if (this.verified) {
+            return;
+        }
+        final String actual = this.algorithm.encode(this.checksum);
+        if (!actual.equals(this.expected)) {
+            throw new IOException(this.algorithm + " checksum mismatch, expected " + this.expected
+                    + " but the data has " + actual);
+        }
+        this.verified = true;
+    }
+}
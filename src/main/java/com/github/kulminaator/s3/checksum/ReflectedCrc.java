@@ -0,0 +1,94 @@
+package com.github.kulminaator.s3.checksum;
+
+import java.util.zip.Checksum;
+
+/**
+ * Table driven crc of the reflected kind (crc32c, crc64nvme), working through 8 bytes per step with the slicing-by-8
+ * tables. Starts from all ones and inverts the result, like both of the s3 checksums expect.
+ */
+final class ReflectedCrc implements Checksum {
+
+    static final long[][] CRC32C_TABLES = tables(0x82F63B78L);
+    static final long[][] CRC64NVME_TABLES = tables(0x9A6C9329AC4BC9B5L);
+
+    private final long[][] tables;
+    private final long mask;
+    private long crc;
+
+    /**
+     * @param tables One of the tables above.
+     * @param width Bits of the crc, 32 or 64.
+     */
+    ReflectedCrc(long[][] tables, int width) {
+        this.tables = tables;
+        this.mask = width == 64 ? -1L : (1L << width) - 1;
+        this.crc = this.mask;
+    }
+
+    @Override
+    public void update(int b) {
+        this.crc = (this.crc >>> 8) ^ this.tables[0][(int) ((this.crc ^ b) & 0xFF)];
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        final long[][] t = this.tables;
+        long value = this.crc;
+        int position = offset;
+        final int end = offset + length;
+        while (end - position >= 8) {
+            value ^= (bytes[position] & 0xFFL)
+                    | (bytes[position + 1] & 0xFFL) << 8
+                    | (bytes[position + 2] & 0xFFL) << 16
+                    | (bytes[position + 3] & 0xFFL) << 24
+                    | (bytes[position + 4] & 0xFFL) << 32
+                    | (bytes[position + 5] & 0xFFL) << 40
+                    | (bytes[position + 6] & 0xFFL) << 48
+                    | (bytes[position + 7] & 0xFFL) << 56;
+            value = t[7][(int) (value & 0xFF)]
+                    ^ t[6][(int) ((value >>> 8) & 0xFF)]
+                    ^ t[5][(int) ((value >>> 16) & 0xFF)]
+                    ^ t[4][(int) ((value >>> 24) & 0xFF)]
+                    ^ t[3][(int) ((value >>> 32) & 0xFF)]
+                    ^ t[2][(int) ((value >>> 40) & 0xFF)]
+                    ^ t[1][(int) ((value >>> 48) & 0xFF)]
+                    ^ t[0][(int) (value >>> 56)];
+            position += 8;
+        }
+        while (position < end) {
+            value = (value >>> 8) ^ t[0][(int) ((value ^ bytes[position++]) & 0xFF)];
+        }
+        this.crc = value;
+    }
+
+    @Override
+    public long getValue() {
+        return this.crc ^ this.mask;
+    }
+
+    @Override
+    public void reset() {
+        this.crc = this.mask;
+    }
+
+    /**
+     * Table k holds the crc of byte i followed by k zero bytes, so 8 bytes are folded in with 8 lookups.
+     */
+    private static long[][] tables(long polynomial) {
+        final long[][] tables = new long[8][256];
+        for (int i = 0; i < 256; i++) {
+            long value = i;
+            for (int bit = 0; bit < 8; bit++) {
+                value = (value & 1) != 0 ? (value >>> 1) ^ polynomial : value >>> 1;
+            }
+            tables[0][i] = value;
+        }
+        for (int k = 1; k < 8; k++) {
+            for (int i = 0; i < 256; i++) {
+                final long previous = tables[k - 1][i];
+                tables[k][i] = (previous >>> 8) ^ tables[0][(int) (previous & 0xFF)];
+            }
+        }
+        return tables;
+    }
+}
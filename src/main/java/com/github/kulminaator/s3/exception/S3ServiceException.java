@@ -0,0 +1,70 @@
+package com.github.kulminaator.s3.exception;
+
+/**
+ * S3 answered, but with an error. Carries what s3 said about it, so callers can tell e.g. NoSuchKey, AccessDenied
+ * and SlowDown apart without looking into messages.
+ *
+ * The error code is null for responses without an error document, HEAD requests never have one, there only the
+ * http code tells what happened.
+ */
+public class S3ServiceException extends S3AccessException {
+    private final int httpCode;
+    private final String errorCode;
+    private final String errorMessage;
+    private final String requestId;
+    private final boolean retryable;
+
+    public S3ServiceException(int httpCode, String errorCode, String errorMessage, String requestId,
+                              boolean retryable, Exception cause) {
+        super(describe(httpCode, errorCode, errorMessage, requestId), cause);
+        this.httpCode = httpCode;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+        this.requestId = requestId;
+        this.retryable = retryable;
+    }
+
+    public int getHttpCode() {
+        return this.httpCode;
+    }
+
+    /**
+     * @return The s3 error code, e.g. NoSuchKey, null if the response had no error document.
+     */
+    public String getErrorCode() {
+        return this.errorCode;
+    }
+
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    /**
+     * @return Id of the failed request, the thing to quote to aws support. Null if s3 did not send one.
+     */
+    public String getRequestId() {
+        return this.requestId;
+    }
+
+    /**
+     * @return Is the error a transient one (e.g. InternalError, SlowDown) that may go away when tried again, as
+     * classified by the retry policy of the client.
+     */
+    public boolean isRetryable() {
+        return this.retryable;
+    }
+
+    private static String describe(int httpCode, String errorCode, String errorMessage, String requestId) {
+        final StringBuilder builder = new StringBuilder("S3 responded with http code ").append(httpCode);
+        if (errorCode != null) {
+            builder.append(" ").append(errorCode);
+        }
+        if (errorMessage != null) {
+            builder.append(": ").append(errorMessage);
+        }
+        if (requestId != null) {
+            builder.append(" (request id ").append(requestId).append(")");
+        }
+        return builder.toString();
+    }
+}
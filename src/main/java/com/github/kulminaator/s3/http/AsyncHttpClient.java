@@ -0,0 +1,16 @@
+package com.github.kulminaator.s3.http;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Http client that can make requests without holding a thread for each of them. PicoClient uses this for its
+ * asynchronous calls when the configured HttpClient implements it as well.
+ */
+public interface AsyncHttpClient {
+    /**
+     * Make a request (probably against S3) as pointed out in the details of HttpRequest class.
+     * @param request The request to perform.
+     * @return The future of the http response, completes exceptionally in case communication fails.
+     */
+    CompletableFuture<HttpResponse> makeRequestAsync(HttpRequest request);
+}
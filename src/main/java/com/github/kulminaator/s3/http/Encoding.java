@@ -0,0 +1,138 @@
+package com.github.kulminaator.s3.http;
+
+/**
+ * Hex and uri encoding used on every request (signatures, object paths, query params), written to avoid the
+ * per byte String.format and per char string building of the straightforward versions.
+ */
+public final class Encoding {
+
+    private static final char[] LOWER_HEX = "0123456789abcdef".toCharArray();
+    private static final char[] UPPER_HEX = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] UNRESERVED = new boolean[128];
+
+    static {
+        for (char ch = 'A'; ch <= 'Z'; ch++) {
+            UNRESERVED[ch] = true;
+        }
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            UNRESERVED[ch] = true;
+        }
+        for (char ch = '0'; ch <= '9'; ch++) {
+            UNRESERVED[ch] = true;
+        }
+        UNRESERVED['_'] = true;
+        UNRESERVED['-'] = true;
+        UNRESERVED['~'] = true;
+        UNRESERVED['.'] = true;
+    }
+
+    private Encoding() {
+    }
+
+    /**
+     * @param data Bytes to encode.
+     * @return Lowercase hex of the bytes, as used in aws signatures.
+     */
+    public static String hex(byte[] data) {
+        final char[] chars = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            chars[i * 2] = LOWER_HEX[(data[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = LOWER_HEX[data[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Encodes uri components the way aws expects them in signed requests: everything except unreserved characters
+     * is percent encoded as utf-8 with uppercase hex.
+     * @param input The input string.
+     * @param encodeSlash Should slash be encoded or not.
+     * @return The encoded string, the input itself when nothing needed encoding.
+     */
+    public static String uriEncode(CharSequence input, boolean encodeSlash) {
+        final int firstEncoded = firstToEncode(input, encodeSlash);
+        if (firstEncoded == input.length()) {
+            return input.toString();
+        }
+        final StringBuilder result = new StringBuilder(input.length() + 16);
+        result.append(input, 0, firstEncoded);
+        appendUriEncoded(result, input, firstEncoded, encodeSlash);
+        return result.toString();
+    }
+
+    /**
+     * Same as uriEncode, appending to the given builder instead of creating a string.
+     */
+    public static StringBuilder appendUriEncoded(StringBuilder result, CharSequence input, boolean encodeSlash) {
+        return appendUriEncoded(result, input, 0, encodeSlash);
+    }
+
+    /**
+     * Collapses runs of spaces into one, as the canonical headers of aws signatures require.
+     * @param value Header value.
+     * @return The value without repeated spaces, the value itself when there were none.
+     */
+    public static String collapseSpaces(String value) {
+        final int firstRun = value.indexOf("  ");
+        if (firstRun < 0) {
+            return value;
+        }
+        final StringBuilder result = new StringBuilder(value.length());
+        result.append(value, 0, firstRun + 1);
+        for (int i = firstRun + 1; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            if (ch != ' ' || value.charAt(i - 1) != ' ') {
+                result.append(ch);
+            }
+        }
+        return result.toString();
+    }
+
+    private static int firstToEncode(CharSequence input, boolean encodeSlash) {
+        for (int i = 0; i < input.length(); i++) {
+            final char ch = input.charAt(i);
+            if (!isUnreserved(ch) && (ch != '/' || encodeSlash)) {
+                return i;
+            }
+        }
+        return input.length();
+    }
+
+    private static StringBuilder appendUriEncoded(StringBuilder result, CharSequence input, int start,
+                                                  boolean encodeSlash) {
+        for (int i = start; i < input.length(); i++) {
+            final char ch = input.charAt(i);
+            if (isUnreserved(ch) || (ch == '/' && !encodeSlash)) {
+                result.append(ch);
+            } else if (ch < 0x80) {
+                appendPercentEncoded(result, ch);
+            } else if (ch < 0x800) {
+                appendPercentEncoded(result, 0xC0 | (ch >> 6));
+                appendPercentEncoded(result, 0x80 | (ch & 0x3F));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < input.length()
+                    && Character.isLowSurrogate(input.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(ch, input.charAt(++i));
+                appendPercentEncoded(result, 0xF0 | (codePoint >> 18));
+                appendPercentEncoded(result, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendPercentEncoded(result, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendPercentEncoded(result, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                // unpaired surrogates are not valid utf-16, encoded as '?' just like String.getBytes does
+                appendPercentEncoded(result, '?');
+            } else {
+                appendPercentEncoded(result, 0xE0 | (ch >> 12));
+                appendPercentEncoded(result, 0x80 | ((ch >> 6) & 0x3F));
+                appendPercentEncoded(result, 0x80 | (ch & 0x3F));
+            }
+        }
+        return result;
+    }
+
+    private static boolean isUnreserved(char ch) {
+        return ch < 128 && UNRESERVED[ch];
+    }
+
+    private static void appendPercentEncoded(StringBuilder result, int utf8Byte) {
+        result.append('%').append(UPPER_HEX[(utf8Byte >> 4) & 0xF]).append(UPPER_HEX[utf8Byte & 0xF]);
+    }
+}
@@ -1,13 +1,30 @@
 package com.github.kulminaator.s3.http;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 public interface HttpClient {
     /**
      * Make a simple request (probably against S3) as pointed out in the details of HttpRequest class.
+     * Responses other than 2xx and 304 Not Modified are expected to fail with HttpStatusException.
      * @param request The request to perform.
      * @return The resulting http response.
      * @throws IOException In case communication fails.
      */
     HttpResponse makeRequest(HttpRequest request) throws IOException;
+
+    /**
+     * Make a request but do not buffer the response body, the body is handed back as a live stream instead
+     * (see HttpResponse.getBodyStream). The caller must close the stream, closing it releases the connection.
+     * The default implementation falls back to buffering, so custom clients keep working unchanged.
+     * @param request The request to perform.
+     * @return The resulting http response with the body stream set.
+     * @throws IOException In case communication fails.
+     */
+    default HttpResponse makeStreamingRequest(HttpRequest request) throws IOException {
+        final HttpResponse response = this.makeRequest(request);
+        final byte[] body = response.getBody() == null ? new byte[0] : response.getBody();
+        response.setBodyStream(new ByteArrayInputStream(body));
+        return response;
+    }
 }
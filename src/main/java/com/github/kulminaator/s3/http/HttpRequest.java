@@ -1,5 +1,6 @@
 package com.github.kulminaator.s3.http;
 
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -12,10 +13,13 @@ public class HttpRequest {
     private String path;
     private String params;
     private byte[] body = new byte[0];
+    private InputStream bodyStream;
+    private long bodyLength;
     private Map<String, List<String>> headers = new HashMap<>();
     private String region;
     private int connectTimeout;
     private int readTimeout;
+    private boolean unsignedPayload;
 
     public HttpRequest() {
     }
@@ -24,6 +28,31 @@ public class HttpRequest {
         this.body = bytes;
     }
 
+    /**
+     * Sets a body that is streamed to the server instead of being held in memory. The length has to be known up
+     * front as it is sent as the Content-Length of the request.
+     * @param stream The body data.
+     * @param length Exact number of bytes the stream will provide.
+     */
+    public void setBodyStream(InputStream stream, long length) {
+        this.bodyStream = stream;
+        this.bodyLength = length;
+    }
+
+    /**
+     * @return The streamed body or null if the request has a plain byte array body.
+     */
+    public InputStream getBodyStream() {
+        return this.bodyStream;
+    }
+
+    /**
+     * @return Length of the streamed body, only meaningful when getBodyStream is not null.
+     */
+    public long getBodyLength() {
+        return this.bodyLength;
+    }
+
     public void setHeaders(Map<String, List<String>> headers) {
         HashMap<String, List<String>> safeHeaders = new HashMap<>();
         safeHeaders.putAll(headers);
@@ -95,6 +124,14 @@ public class HttpRequest {
         this.headers.put(key, Collections.singletonList(value));
     }
 
+    /**
+     * Remove a header.
+     * @param key The key.
+     */
+    public void removeHeader(String key) {
+        this.headers.remove(key);
+    }
+
     public int getConnectTimeout() {
         return this.connectTimeout;
     }
@@ -110,4 +147,15 @@ public class HttpRequest {
     public void setReadTimeout(int readTimeout) {
         this.readTimeout = readTimeout;
     }
+
+    /**
+     * @return True if the body should be signed as UNSIGNED-PAYLOAD, honoured over https only.
+     */
+    public boolean isUnsignedPayload() {
+        return this.unsignedPayload;
+    }
+
+    public void setUnsignedPayload(boolean unsignedPayload) {
+        this.unsignedPayload = unsignedPayload;
+    }
 }
@@ -1,10 +1,12 @@
 package com.github.kulminaator.s3.http;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
 public class HttpResponse {
     private byte[] body;
+    private InputStream bodyStream;
     private int httpCode;
     private Map<String, List<String>> headers;
 
@@ -31,6 +33,19 @@ public class HttpResponse {
         return this.body;
     }
 
+    /**
+     * Live stream of the response body, only present for responses of streaming requests (body is null then).
+     * Whoever receives it has to close it, otherwise the underlying connection is not released.
+     * @return The body stream or null for buffered responses.
+     */
+    public InputStream getBodyStream() {
+        return this.bodyStream;
+    }
+
+    public void setBodyStream(InputStream bodyStream) {
+        this.bodyStream = bodyStream;
+    }
+
     public int getHttpCode() {
         return httpCode;
     }
@@ -0,0 +1,49 @@
+package com.github.kulminaator.s3.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response with a non 2xx http code. Extends IllegalStateException, which is what the http clients threw for
+ * these before, so existing error handling keeps working.
+ */
+public class HttpStatusException extends IllegalStateException {
+    private final int httpCode;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+
+    public HttpStatusException(int httpCode, Map<String, List<String>> headers, byte[] body) {
+        super("Unexpected http code " + httpCode + " with response body '" +
+                new String(body, StandardCharsets.UTF_8) + "'");
+        this.httpCode = httpCode;
+        this.headers = headers == null ? Collections.emptyMap() : headers;
+        this.body = body;
+    }
+
+    public int getHttpCode() {
+        return this.httpCode;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * @param name Header name, in any case.
+     * @return First value of the header, null if the response did not have it.
+     */
+    public String getHeader(String name) {
+        for (final Map.Entry<String, List<String>> header : this.headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    public byte[] getBody() {
+        return this.body;
+    }
+}
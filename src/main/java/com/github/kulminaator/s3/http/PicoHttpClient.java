@@ -1,8 +1,10 @@
 package com.github.kulminaator.s3.http;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -12,35 +14,124 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Implementing the bare minimum to create a http client good enough to access aws s3.
+ *
+ * Connections are kept alive between requests: every response body is read to its end and closed instead of
+ * tearing the socket down, so the jdk's keep-alive cache can hand the same socket (and tls session) to the next
+ * request to that host. The jdk cache evicts idle sockets after the server's keep-alive timeout and throws away
+ * sockets that went stale while idle. The number of idle sockets it keeps per host is set by the system property
+ * http.maxConnections (5 by default), keep maxConnectionsPerHost at or below it to reuse every connection.
+ * Only connections that failed mid-request are disconnected. Error responses without a body (e.g. 404 on HEAD)
+ * cannot be handed back by HttpURLConnection, those cost a new connection.
  */
 public class PicoHttpClient implements HttpClient {
 
     private static final int BLOCK_SIZE = 16 * 1024;
+    // abandoned streams with more left than this are cut instead of drained
+    private static final int DRAIN_LIMIT = 64 * 1024;
+
     private final boolean debug;
+    private final int maxConnectionsPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
 
     public PicoHttpClient() {this(false);}
 
     public PicoHttpClient(boolean debug) {
+        this(debug, 0);
+    }
+
+    private PicoHttpClient(boolean debug, int maxConnectionsPerHost) {
         this.debug = debug;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
     }
 
     @Override
     public HttpResponse makeRequest(HttpRequest request) throws IOException {
-        final String urlString = this.buildUrlString(request);
-        final Map <String, String> headers = this.remapHeaders(request.getHeaders());
+        final Runnable permit = this.acquirePermit(request);
+        final HttpURLConnection connection = this.createConnection(request, permit);
+        boolean reusable = false;
+        try {
+            this.sendRequest(connection, request);
+            final int responseCode = connection.getResponseCode();
+            if (!isSuccessful(responseCode)) {
+                final byte[] errorBody = this.readErrorBody(connection);
+                reusable = true;
+                throw this.unexpectedResponse(connection, responseCode, errorBody);
+            }
+            final HttpResponse response = this.buildResponse(connection, responseCode);
+            final byte[] bytes;
+            try (InputStream input = connection.getInputStream()) {
+                bytes = this.readDataToBytes(input);
+            }
+            response.setBody(bytes);
+            reusable = true;
+            this.debug(() -> "Response to " + new String(bytes));
+            return response;
+        } catch (IOException exception) {
+            throw this.failure(connection, exception);
+        } finally {
+            this.release(connection, reusable, permit);
+        }
+    }
 
-        // request is prepared
-        final URL url = new URL(urlString);
+    @Override
+    public HttpResponse makeStreamingRequest(HttpRequest request) throws IOException {
+        final Runnable permit = this.acquirePermit(request);
+        final HttpURLConnection connection = this.createConnection(request, permit);
+        boolean reusable = false;
+        boolean handedOver = false;
+        try {
+            this.sendRequest(connection, request);
+            final int responseCode = connection.getResponseCode();
+            if (!isSuccessful(responseCode)) {
+                final byte[] errorBody = this.readErrorBody(connection);
+                reusable = true;
+                throw this.unexpectedResponse(connection, responseCode, errorBody);
+            }
+            final HttpResponse response = this.buildResponse(connection, responseCode);
+            response.setBodyStream(new ConnectionInputStream(connection.getInputStream(), connection, permit));
+            handedOver = true;
+            this.debug(() -> "Streaming response to " + connection.getURL());
+            return response;
+        } catch (IOException exception) {
+            throw this.failure(connection, exception);
+        } finally {
+            if (!handedOver) {
+                this.release(connection, reusable, permit);
+            }
+        }
+    }
 
-        this.debug(() -> "Request to " + url.toExternalForm());
+    /**
+     * Hands the permit back if no connection comes of it, e.g. for a malformed url or an unknown method.
+     */
+    private HttpURLConnection createConnection(HttpRequest request, Runnable permit) throws IOException {
+        try {
+            final String urlString = this.buildUrlString(request);
 
-        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setConnectTimeout(request.getConnectTimeout());
-        connection.setReadTimeout(request.getReadTimeout());
-        connection.setRequestMethod(request.getMethod());
+            // request is prepared
+            final URL url = new URL(urlString);
+
+            this.debug(() -> "Request to " + url.toExternalForm());
+
+            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(request.getConnectTimeout());
+            connection.setReadTimeout(request.getReadTimeout());
+            connection.setRequestMethod(request.getMethod());
+            return connection;
+        } catch (IOException | RuntimeException exception) {
+            permit.run();
+            throw exception;
+        }
+    }
+
+    private void sendRequest(HttpURLConnection connection, HttpRequest request) throws IOException {
+        final Map <String, String> headers = this.remapHeaders(request.getHeaders());
         this.debug(() -> "Sending headers" + headers);
 
         if (headers != null) {
@@ -50,39 +141,95 @@ public class PicoHttpClient implements HttpClient {
             }
         }
 
-        final HttpResponse response = new HttpResponse();
         // request is being made now
-        if (request.getBody().length > 0) {
+        if (request.getBodyStream() != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(request.getBodyLength());
+            this.copyStreamToStream(request.getBodyStream(), connection.getOutputStream());
+        } else if (request.getBody().length > 0) {
             connection.setDoOutput(true);
             this.writeBytesToStream(request.getBody(), connection.getOutputStream());
         }
+    }
 
-        try {
-            final int responseCode = connection.getResponseCode();
+    private HttpResponse buildResponse(HttpURLConnection connection, int responseCode) {
+        final HttpResponse response = new HttpResponse();
+        response.setHttpCode(responseCode);
+        response.setHeaders(connection.getHeaderFields());
+        return response;
+    }
 
-            if (responseCode < 200 || responseCode > 299) {
-                final byte[] bytes = this.readDataToBytes(connection.getInputStream());
-                this.debug(() -> String.format("Response: '%s'", new String(bytes, StandardCharsets.UTF_8)));
-                throw new IllegalStateException("Unexpected http code " + responseCode);
+    /**
+     * Reads the body of a non 2xx response to its end, which also leaves the connection fit for reuse.
+     */
+    private byte[] readErrorBody(HttpURLConnection connection) throws IOException {
+        InputStream errorStream = connection.getErrorStream();
+        if (errorStream == null) {
+            try {
+                errorStream = connection.getInputStream();
+            } catch (IOException noBody) {
+                return new byte[0];
             }
+        }
+        try (InputStream input = errorStream) {
+            final byte[] bytes = this.readDataToBytes(input);
+            this.debug(() -> String.format("Response: '%s'", new String(bytes, StandardCharsets.UTF_8)));
+            return bytes;
+        }
+    }
 
-            response.setHttpCode(responseCode);
-            response.setHeaders(connection.getHeaderFields());
+    /**
+     * 304 Not Modified only comes to conditional requests, it answers the question the caller asked.
+     */
+    private static boolean isSuccessful(int responseCode) {
+        return (responseCode >= 200 && responseCode <= 299) || responseCode == 304;
+    }
 
-            final byte[] bytes = this.readDataToBytes(connection.getInputStream());
-            response.setBody(bytes);
-            this.debug(() -> "Response to " + new String(bytes));
-        } catch (IOException exception) {
-            final byte[] bytes = this.readDataToBytes(connection.getErrorStream());
-            this.debug(() -> String.format("Response: '%s'", new String(bytes, StandardCharsets.UTF_8)));
-            throw new IllegalStateException("Unexpected http result (" +
-                    exception.getMessage() + ") with response body '" + new String(bytes) + "'", exception);
-        } finally {
-            connection.disconnect();
+    private HttpStatusException unexpectedResponse(HttpURLConnection connection, int responseCode, byte[] errorBody) {
+        return new HttpStatusException(responseCode, connection.getHeaderFields(), errorBody);
+    }
+
+    private IllegalStateException failure(HttpURLConnection connection, IOException exception) {
+        byte[] bytes = new byte[0];
+        try {
+            bytes = this.readDataToBytes(connection.getErrorStream());
+        } catch (IOException ignored) {
+            // the connection is broken, there is nothing more to learn from it
         }
+        final String errorBody = new String(bytes, StandardCharsets.UTF_8);
+        this.debug(() -> String.format("Response: '%s'", errorBody));
+        return new IllegalStateException("Unexpected http result (" +
+                exception.getMessage() + ") with response body '" + errorBody + "'", exception);
+    }
 
+    private Runnable acquirePermit(HttpRequest request) throws IOException {
+        if (this.maxConnectionsPerHost < 1) {
+            return () -> {};
+        }
+        final Semaphore permits = this.hostPermits.computeIfAbsent(request.getHost(),
+                host -> new Semaphore(this.maxConnectionsPerHost, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + request.getHost());
+        }
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+    }
 
-        return response;
+    private void release(HttpURLConnection connection, boolean reusable, Runnable permit) {
+        try {
+            if (!reusable) {
+                connection.disconnect();
+            }
+        } finally {
+            permit.run();
+        }
     }
 
     private void writeBytesToStream(byte[] body, OutputStream outputStream) throws IOException {
@@ -93,6 +240,18 @@ public class PicoHttpClient implements HttpClient {
         }
     }
 
+    private void copyStreamToStream(InputStream input, OutputStream outputStream) throws IOException {
+        try {
+            final byte[] buffer = new byte[BLOCK_SIZE];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                outputStream.write(buffer, 0, read);
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
     private Map<String, String> remapHeaders(Map<String, List<String>> headers) {
         final Map<String, String> map = new HashMap<>();
         for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
@@ -135,4 +294,99 @@ public class PicoHttpClient implements HttpClient {
         byte[] bytes = baos.toByteArray();
         return bytes;
     }
+
+    /**
+     * Body stream of a streaming response, releases the connection once the reader closes it. A stream that was
+     * not read to its end is drained if only a little is left, otherwise the connection is cut.
+     */
+    private class ConnectionInputStream extends FilterInputStream {
+        private final HttpURLConnection connection;
+        private final Runnable permit;
+        private boolean closed;
+        private boolean finished;
+
+        ConnectionInputStream(InputStream in, HttpURLConnection connection, Runnable permit) {
+            super(in);
+            this.connection = connection;
+            this.permit = permit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int read = super.read();
+            this.finished = read < 0;
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            this.finished = read < 0;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            boolean reusable = false;
+            try {
+                reusable = this.finished || this.drain();
+                super.close();
+            } catch (IOException exception) {
+                reusable = false;
+            } finally {
+                release(this.connection, reusable, this.permit);
+            }
+        }
+
+        private boolean drain() throws IOException {
+            final byte[] buffer = new byte[BLOCK_SIZE];
+            long drained = 0;
+            while (drained <= DRAIN_LIMIT) {
+                final int read = this.in.read(buffer);
+                if (read < 0) {
+                    return true;
+                }
+                drained += read;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Helps to build PicoHttpClient objects with a connection limit.
+     */
+    public static class Builder {
+        private boolean debug;
+        private int maxConnectionsPerHost;
+
+        public Builder() {}
+
+        /**
+         * Prints requests and responses to standard output.
+         * @return The builder.
+         */
+        public Builder withDebug() {
+            this.debug = true;
+            return this;
+        }
+
+        /**
+         * Limits how many requests to one host are in progress at once, further requests wait for a free
+         * connection. Unlimited by default.
+         * @param maxConnectionsPerHost The limit, 0 for unlimited.
+         * @return The builder.
+         */
+        public Builder withMaxConnectionsPerHost(int maxConnectionsPerHost) {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        public PicoHttpClient build() {
+            return new PicoHttpClient(this.debug, this.maxConnectionsPerHost);
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package com.github.kulminaator.s3.options;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Options of the bulk get and put calls. Use the builder to create an instance.
+ */
+public class BulkOptions {
+
+    private int maxConcurrency;
+    private ExecutorService executor;
+    private PutObjectOptions putObjectOptions;
+
+    /**
+     * @return How many objects are transferred at once. No more keys than this are taken from the collection
+     * ahead of the transfers, so nothing piles up in memory however many keys there are.
+     */
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    private void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return Executor the transfers run on, null to use the executor of the client.
+     */
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    private void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return Content type and encryption of the objects put.
+     */
+    public PutObjectOptions getPutObjectOptions() {
+        return this.putObjectOptions;
+    }
+
+    private void setPutObjectOptions(PutObjectOptions putObjectOptions) {
+        this.putObjectOptions = putObjectOptions;
+    }
+
+    /**
+     * Helps to build BulkOptions objects.
+     */
+    public static class Builder {
+
+        public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private ExecutorService executor;
+        private PutObjectOptions putObjectOptions;
+
+        public Builder(){}
+
+        /**
+         * Sets how many objects are transferred in parallel. The executor needs at least as many threads for all
+         * of them to actually run at once.
+         * @param maxConcurrency Number of transfers in flight.
+         * @return Builder.
+         */
+        public Builder withMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Runs the transfers on the given executor instead of the one of the client. The executor is not shut down.
+         * @param executor The executor.
+         * @return Builder.
+         */
+        public Builder withExecutor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the content type and encryption of the objects put, application/octet-stream without encryption
+         * by default.
+         * @param putObjectOptions The options used for every object.
+         * @return Builder.
+         */
+        public Builder withPutObjectOptions(PutObjectOptions putObjectOptions) {
+            this.putObjectOptions = putObjectOptions;
+            return this;
+        }
+
+        public BulkOptions build() {
+            if (this.maxConcurrency < 1) {
+                throw new IllegalArgumentException("Concurrency has to be positive");
+            }
+            final BulkOptions options = new BulkOptions();
+            options.setMaxConcurrency(this.maxConcurrency);
+            options.setExecutor(this.executor);
+            options.setPutObjectOptions(this.putObjectOptions != null
+                    ? this.putObjectOptions
+                    : new PutObjectOptions.Builder().build());
+            return options;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.kulminaator.s3.options;
+
+/**
+ * Listing options. Use the builder to create an instance.
+ */
+public class ListObjectsOptions {
+
+    private String prefix;
+    private String delimiter;
+    private int maxKeys;
+    private String startAfter;
+    private boolean prefetch;
+
+    /**
+     * @return Only keys starting with the prefix are listed, null to list all.
+     */
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    private void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return Keys containing the delimiter after the prefix are rolled up into common prefixes instead of being
+     * listed, the listing has one entry flagged with S3Object.isPrefix per common prefix. Null to list the keys of
+     * all "subfolders".
+     */
+    public String getDelimiter() {
+        return this.delimiter;
+    }
+
+    private void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return Maximum number of keys fetched per request, 0 for the S3 default (1000).
+     */
+    public int getMaxKeys() {
+        return this.maxKeys;
+    }
+
+    private void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return Listing starts with the first key after this one, null to start from the beginning.
+     */
+    public String getStartAfter() {
+        return this.startAfter;
+    }
+
+    private void setStartAfter(String startAfter) {
+        this.startAfter = startAfter;
+    }
+
+    /**
+     * @return Should the next page be requested while the current one is still being read and used.
+     */
+    public boolean isPrefetch() {
+        return this.prefetch;
+    }
+
+    private void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Helps to build ListObjectsOptions objects.
+     */
+    public static class Builder {
+
+        public static final int MAX_KEYS_LIMIT = 1000;
+
+        private String prefix;
+        private String delimiter;
+        private int maxKeys;
+        private String startAfter;
+        private boolean prefetch;
+
+        public Builder(){}
+
+        /**
+         * Sets the prefix of the listed keys.
+         * @param prefix The prefix, e.g. "folder/subfolder/".
+         * @return Builder.
+         */
+        public Builder withPrefix(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * Sets the delimiter that groups keys, usually "/".
+         * @param delimiter The delimiter.
+         * @return Builder.
+         */
+        public Builder withDelimiter(String delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Sets the page size. Smaller pages mean less waiting for the first keys and less wasted work when the
+         * listing is abandoned early, but more requests for a full scan.
+         * @param maxKeys Keys per request, 1 to 1000.
+         * @return Builder.
+         */
+        public Builder withMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+            return this;
+        }
+
+        /**
+         * Sets the key after which the listing starts (in UTF-8 binary order, like S3 lists).
+         * @param startAfter The key to start after, it need not exist.
+         * @return Builder.
+         */
+        public Builder withStartAfter(String startAfter) {
+            this.startAfter = startAfter;
+            return this;
+        }
+
+        /**
+         * Pipelines the listing: the next page is requested as soon as the continuation token of the current page
+         * has been parsed, while the rest of the page still streams in and gets used. Runs on the executor of the
+         * client. At most one page more than used is fetched when the listing is abandoned.
+         * @return Builder.
+         */
+        public Builder withPrefetch() {
+            this.prefetch = true;
+            return this;
+        }
+
+        public ListObjectsOptions build() {
+            if (this.maxKeys < 0 || this.maxKeys > MAX_KEYS_LIMIT) {
+                throw new IllegalArgumentException("Max keys has to be between 1 and " + MAX_KEYS_LIMIT
+                        + ", or 0 for the default");
+            }
+            final ListObjectsOptions options = new ListObjectsOptions();
+            options.setPrefix(this.prefix);
+            options.setDelimiter(this.delimiter);
+            options.setMaxKeys(this.maxKeys);
+            options.setStartAfter(this.startAfter);
+            options.setPrefetch(this.prefetch);
+            return options;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.kulminaator.s3.options;
+
+/**
+ * Multipart upload options. Use the builder to create an instance.
+ */
+public class MultipartUploadOptions {
+
+    private PutObjectOptions putObjectOptions;
+    private int partSize;
+    private int maxConcurrency;
+    private int maxPartAttempts;
+
+    public PutObjectOptions getPutObjectOptions() {
+        return this.putObjectOptions;
+    }
+
+    private void setPutObjectOptions(PutObjectOptions putObjectOptions) {
+        this.putObjectOptions = putObjectOptions;
+    }
+
+    /**
+     * @return Size of each part in bytes, the last part may be smaller.
+     */
+    public int getPartSize() {
+        return this.partSize;
+    }
+
+    private void setPartSize(int partSize) {
+        this.partSize = partSize;
+    }
+
+    /**
+     * @return How many parts may be in flight at once, this is also the number of part buffers held in memory.
+     */
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    private void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return How many times a single part is attempted before the whole upload is aborted.
+     */
+    public int getMaxPartAttempts() {
+        return this.maxPartAttempts;
+    }
+
+    private void setMaxPartAttempts(int maxPartAttempts) {
+        this.maxPartAttempts = maxPartAttempts;
+    }
+
+    /**
+     * Helps to build MultipartUploadOptions objects.
+     */
+    public static class Builder {
+
+        /**
+         * S3 does not accept parts smaller than this, except the last one.
+         */
+        public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+        /**
+         * S3 does not accept more parts than this in one upload.
+         */
+        public static final int MAX_PARTS = 10000;
+        public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+        public static final int DEFAULT_MAX_CONCURRENCY = 4;
+        public static final int DEFAULT_MAX_PART_ATTEMPTS = 3;
+
+        private PutObjectOptions putObjectOptions = new PutObjectOptions.Builder().build();
+        private int partSize = DEFAULT_PART_SIZE;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private int maxPartAttempts = DEFAULT_MAX_PART_ATTEMPTS;
+
+        public Builder(){}
+
+        /**
+         * Sets the content type, encryption etc. of the resulting object. A checksum algorithm is applied per part,
+         * every part carries its checksum and s3 checks it before accepting the part.
+         * @param putObjectOptions The object options.
+         * @return Builder.
+         */
+        public Builder withPutObjectOptions(PutObjectOptions putObjectOptions) {
+            this.putObjectOptions = putObjectOptions;
+            return this;
+        }
+
+        /**
+         * Sets the part size in bytes. S3 rejects parts below MIN_PART_SIZE (apart from the last one), smaller
+         * values only make sense against test doubles. As there can be at most MAX_PARTS parts, the largest object
+         * that can be uploaded is partSize * MAX_PARTS, about 78 GiB with the default part size. Larger streams fail
+         * when the part after the last allowed one is read, and the upload is aborted.
+         * @param partSize The part size.
+         * @return Builder.
+         */
+        public Builder withPartSize(int partSize) {
+            this.partSize = partSize;
+            return this;
+        }
+
+        /**
+         * Sets how many parts are uploaded in parallel. Memory use is bounded by partSize * maxConcurrency.
+         * @param maxConcurrency Number of parts in flight.
+         * @return Builder.
+         */
+        public Builder withMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets how many times each part is tried before giving up. Only failures the client's RetryPolicy counts as
+         * retryable are tried again, with its backoff, e.g. a 403 fails at once.
+         * @param maxPartAttempts Attempts per part, at least 1.
+         * @return Builder.
+         */
+        public Builder withMaxPartAttempts(int maxPartAttempts) {
+            this.maxPartAttempts = maxPartAttempts;
+            return this;
+        }
+
+        public MultipartUploadOptions build() {
+            if (this.partSize < 1 || this.maxConcurrency < 1 || this.maxPartAttempts < 1) {
+                throw new IllegalArgumentException("Part size, concurrency and attempts have to be positive");
+            }
+            final MultipartUploadOptions options = new MultipartUploadOptions();
+            options.setPutObjectOptions(this.putObjectOptions);
+            options.setPartSize(this.partSize);
+            options.setMaxConcurrency(this.maxConcurrency);
+            options.setMaxPartAttempts(this.maxPartAttempts);
+            return options;
+        }
+    }
+}
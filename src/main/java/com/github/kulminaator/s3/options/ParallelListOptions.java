@@ -0,0 +1,213 @@
+package com.github.kulminaator.s3.options;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parallel sharded listing options. Use the builder to create an instance.
+ */
+public class ParallelListOptions {
+
+    private String prefix;
+    private String delimiter;
+    private List<String> splitPoints;
+    private int maxKeys;
+    private int maxConcurrency;
+    private boolean ordered;
+    private ForkJoinPool pool;
+
+    /**
+     * @return Only keys starting with the prefix are listed, null to list all.
+     */
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    private void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return Delimiter used to discover the shards when no split points are given, the common prefixes one level
+     * below the prefix become the shards.
+     */
+    public String getDelimiter() {
+        return this.delimiter;
+    }
+
+    private void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return Keys splitting the key space into shards, empty to discover the shards with the delimiter.
+     */
+    public List<String> getSplitPoints() {
+        return this.splitPoints;
+    }
+
+    private void setSplitPoints(List<String> splitPoints) {
+        this.splitPoints = splitPoints;
+    }
+
+    /**
+     * @return Maximum number of keys fetched per request, 0 for the S3 default (1000).
+     */
+    public int getMaxKeys() {
+        return this.maxKeys;
+    }
+
+    private void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return How many listing requests are in flight at once, ignored when a pool is given.
+     */
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    private void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return Should the objects come in the order s3 lists them, otherwise in the order the pages arrive.
+     */
+    public boolean isOrdered() {
+        return this.ordered;
+    }
+
+    private void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * @return Pool the shards are walked on, null to use a pool of maxConcurrency threads made for the listing.
+     */
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    private void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Helps to build ParallelListOptions objects.
+     */
+    public static class Builder {
+
+        public static final String DEFAULT_DELIMITER = "/";
+        public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+        private String prefix;
+        private String delimiter = DEFAULT_DELIMITER;
+        private final List<String> splitPoints = new ArrayList<>();
+        private int maxKeys;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private boolean ordered;
+        private ForkJoinPool pool;
+
+        public Builder(){}
+
+        /**
+         * Sets the prefix of the listed keys.
+         * @param prefix The prefix, e.g. "folder/subfolder/".
+         * @return Builder.
+         */
+        public Builder withPrefix(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * Sets the delimiter of the shard discovery, "/" by default. Every common prefix one level below the prefix
+         * is listed as a shard of its own, so this pays off when the keys are spread over many "subfolders".
+         * @param delimiter The delimiter.
+         * @return Builder.
+         */
+        public Builder withDelimiter(String delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Splits the key space at the given keys instead of discovering the shards, useful when the key layout is
+         * known (e.g. keys starting with hex hashes or dates). Shard n lists the keys after split point n - 1 up to
+         * and including split point n.
+         * @param splitPoints The keys to split at, in any order, they need not exist.
+         * @return Builder.
+         */
+        public Builder withSplitPoints(List<String> splitPoints) {
+            this.splitPoints.addAll(splitPoints);
+            return this;
+        }
+
+        /**
+         * Sets the page size of every shard.
+         * @param maxKeys Keys per request, 1 to 1000.
+         * @return Builder.
+         */
+        public Builder withMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+            return this;
+        }
+
+        /**
+         * Sets how many shards are listed at once.
+         * @param maxConcurrency Number of listing requests in flight.
+         * @return Builder.
+         */
+        public Builder withMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Merges the shards back into the order s3 lists the keys in. Shards ahead of the one being read keep
+         * listing, but only a couple of pages each are buffered.
+         * @return Builder.
+         */
+        public Builder withOrdered() {
+            this.ordered = true;
+            return this;
+        }
+
+        /**
+         * Walks the shards on the given pool, its parallelism then limits the requests in flight. The pool is not
+         * shut down by the listing.
+         * @param pool The pool.
+         * @return Builder.
+         */
+        public Builder withPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public ParallelListOptions build() {
+            if (this.maxKeys < 0 || this.maxKeys > ListObjectsOptions.Builder.MAX_KEYS_LIMIT) {
+                throw new IllegalArgumentException("Max keys has to be between 1 and "
+                        + ListObjectsOptions.Builder.MAX_KEYS_LIMIT + ", or 0 for the default");
+            }
+            if (this.maxConcurrency < 1) {
+                throw new IllegalArgumentException("Concurrency has to be positive");
+            }
+            if (this.splitPoints.isEmpty() && (this.delimiter == null || this.delimiter.isEmpty())) {
+                throw new IllegalArgumentException("Either split points or a delimiter are needed to find the shards");
+            }
+            final ParallelListOptions options = new ParallelListOptions();
+            options.setPrefix(this.prefix);
+            options.setDelimiter(this.delimiter);
+            options.setSplitPoints(Collections.unmodifiableList(new ArrayList<>(this.splitPoints)));
+            options.setMaxKeys(this.maxKeys);
+            options.setMaxConcurrency(this.maxConcurrency);
+            options.setOrdered(this.ordered);
+            options.setPool(this.pool);
+            return options;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.kulminaator.s3.options;
 
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+
 /**
  * Put Object request options. Use the builder to create an instance.
  */
@@ -8,6 +10,8 @@ public class PutObjectOptions {
     private String contentType;
     private String serverSideEncryption;
     private String serverSideEncryptionKeyId;
+    private Boolean unsignedPayload;
+    private ChecksumAlgorithm checksumAlgorithm;
 
     private void setContentType(String contentType) {
         this.contentType = contentType;
@@ -33,6 +37,28 @@ public class PutObjectOptions {
         return serverSideEncryptionKeyId;
     }
 
+    private void setUnsignedPayload(Boolean unsignedPayload) {
+        this.unsignedPayload = unsignedPayload;
+    }
+
+    /**
+     * @return True or false to override the client's payload signing for this upload, null to follow the client.
+     */
+    public Boolean getUnsignedPayload() {
+        return unsignedPayload;
+    }
+
+    private void setChecksumAlgorithm(ChecksumAlgorithm checksumAlgorithm) {
+        this.checksumAlgorithm = checksumAlgorithm;
+    }
+
+    /**
+     * @return Algorithm of the checksum sent along with the upload, null for none.
+     */
+    public ChecksumAlgorithm getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
     /**
      * Helps to build PutObjectOptions objects.
      */
@@ -48,6 +74,8 @@ public class PutObjectOptions {
         private String contentType = DEFAULT_CONTENT_TYPE;
         private String serverSideEncryption;
         private String serverSideEncryptionKeyId;
+        private Boolean unsignedPayload;
+        private ChecksumAlgorithm checksumAlgorithm;
 
         public Builder(){}
 
@@ -81,9 +109,34 @@ public class PutObjectOptions {
             return this;
         }
 
+        /**
+         * Sends the body unhashed, signed as UNSIGNED-PAYLOAD, or hashed when false, whatever the client does by
+         * default. Only has an effect over https.
+         * @param unsignedPayload True to skip hashing the body.
+         * @return Builder.
+         */
+        public Builder withUnsignedPayload(boolean unsignedPayload) {
+            this.unsignedPayload = unsignedPayload;
+            return this;
+        }
+
+        /**
+         * Sends a checksum of the data that s3 checks before storing the object and keeps for later downloads.
+         * Byte array uploads carry it in a header, streamed uploads compute it on the way and send it in a trailer
+         * after the data, which needs a client with credentials. Multipart uploads send one with every part.
+         * @param checksumAlgorithm The algorithm, e.g. ChecksumAlgorithm.CRC32C.
+         * @return Builder.
+         */
+        public Builder withChecksumAlgorithm(ChecksumAlgorithm checksumAlgorithm) {
+            this.checksumAlgorithm = checksumAlgorithm;
+            return this;
+        }
+
         public PutObjectOptions build() {
             final PutObjectOptions putObjectOptions = new PutObjectOptions();
             putObjectOptions.setContentType(this.contentType);
+            putObjectOptions.setUnsignedPayload(this.unsignedPayload);
+            putObjectOptions.setChecksumAlgorithm(this.checksumAlgorithm);
 
             if (this.serverSideEncryption != null) {
                 putObjectOptions.setServerSideEncryption(serverSideEncryption);
@@ -0,0 +1,104 @@
+package com.github.kulminaator.s3.options;
+
+/**
+ * Parallel ranged download options. Use the builder to create an instance.
+ */
+public class RangedDownloadOptions {
+
+    private long rangeSize;
+    private int maxConcurrency;
+    private int maxRangeAttempts;
+
+    /**
+     * @return Size of each byte range fetched with a separate GET, the last range may be smaller.
+     */
+    public long getRangeSize() {
+        return this.rangeSize;
+    }
+
+    private void setRangeSize(long rangeSize) {
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @return How many ranges are fetched at once. For stream reads this is also how many ranges are read ahead.
+     */
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    private void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return How many times a single range is attempted before the download fails.
+     */
+    public int getMaxRangeAttempts() {
+        return this.maxRangeAttempts;
+    }
+
+    private void setMaxRangeAttempts(int maxRangeAttempts) {
+        this.maxRangeAttempts = maxRangeAttempts;
+    }
+
+    /**
+     * Helps to build RangedDownloadOptions objects.
+     */
+    public static class Builder {
+
+        public static final long DEFAULT_RANGE_SIZE = 8 * 1024 * 1024;
+        public static final int DEFAULT_MAX_CONCURRENCY = 4;
+        public static final int DEFAULT_MAX_RANGE_ATTEMPTS = 3;
+
+        private long rangeSize = DEFAULT_RANGE_SIZE;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private int maxRangeAttempts = DEFAULT_MAX_RANGE_ATTEMPTS;
+
+        public Builder(){}
+
+        /**
+         * Sets the size of the byte ranges. Stream reads hold up to rangeSize * maxConcurrency bytes in memory, so
+         * keep the range size below 2GB there.
+         * @param rangeSize The range size in bytes.
+         * @return Builder.
+         */
+        public Builder withRangeSize(long rangeSize) {
+            this.rangeSize = rangeSize;
+            return this;
+        }
+
+        /**
+         * Sets how many ranges are fetched in parallel.
+         * @param maxConcurrency Number of ranges in flight.
+         * @return Builder.
+         */
+        public Builder withMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets how many times each range is tried when its body breaks off, as the client's RetryPolicy allows.
+         * Error responses are retried by the client itself and not again per range, e.g. a 412 for an object
+         * changed during the download fails at once.
+         * @param maxRangeAttempts Attempts per range, at least 1.
+         * @return Builder.
+         */
+        public Builder withMaxRangeAttempts(int maxRangeAttempts) {
+            this.maxRangeAttempts = maxRangeAttempts;
+            return this;
+        }
+
+        public RangedDownloadOptions build() {
+            if (this.rangeSize < 1 || this.maxConcurrency < 1 || this.maxRangeAttempts < 1) {
+                throw new IllegalArgumentException("Range size, concurrency and attempts have to be positive");
+            }
+            final RangedDownloadOptions options = new RangedDownloadOptions();
+            options.setRangeSize(this.rangeSize);
+            options.setMaxConcurrency(this.maxConcurrency);
+            options.setMaxRangeAttempts(this.maxRangeAttempts);
+            return options;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.kulminaator.s3.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Client side token bucket that only kicks in once s3 starts throttling. The first throttle sets the rate to a
+ * bit below the rate the client was sending at, every further throttle cuts it again, and every success raises it
+ * a little (about 10% or 1 request per second, whichever is more, per second of successes). Once the client sends
+ * well below the limit again the limiter turns itself off.
+ *
+ * One limiter is shared by all requests of a client and is thread safe.
+ */
+public class AdaptiveRateLimiter {
+
+    static final double MIN_RATE = 0.5;
+    private static final double DECREASE_FACTOR = 0.7;
+    private static final double INCREASE_FACTOR = 0.1;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    // throttles of requests that were in flight together count as one
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final LongSupplier nanoClock;
+
+    private boolean enabled;
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long lastDecrease;
+
+    private long windowStart;
+    private int windowRequests;
+    private double measuredRate;
+
+    public AdaptiveRateLimiter() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Constructor used in time related unit tests only.
+     */
+    AdaptiveRateLimiter(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.windowStart = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes a token, waiting for one if there is none.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        final long waitNanos = this.reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a token without waiting for it, for callers that wait on their own (e.g. scheduling).
+     * @return Nanoseconds to wait before sending, 0 to send right away.
+     */
+    public synchronized long reserve() {
+        final long now = this.nanoClock.getAsLong();
+        this.measure(now);
+        this.windowRequests++;
+        if (!this.enabled) {
+            return 0;
+        }
+        this.refill(now);
+        // going below zero reserves a future token, later callers queue up behind it
+        this.tokens -= 1;
+        return this.tokens >= 0 ? 0 : (long) (-this.tokens / this.rate * NANOS_PER_SECOND);
+    }
+
+    public synchronized void onSuccess() {
+        if (this.enabled) {
+            this.rate += Math.max(1, this.rate * INCREASE_FACTOR) / this.rate;
+        }
+    }
+
+    public synchronized void onThrottle() {
+        final long now = this.nanoClock.getAsLong();
+        this.measure(now);
+        if (!this.enabled) {
+            this.enabled = true;
+            this.rate = Math.max(MIN_RATE, this.sendRate(now) * DECREASE_FACTOR);
+            this.tokens = 0;
+            this.lastRefill = now;
+            this.lastDecrease = now;
+        } else if (now - this.lastDecrease >= DECREASE_INTERVAL_NANOS) {
+            this.refill(now);
+            this.rate = Math.max(MIN_RATE, this.rate * DECREASE_FACTOR);
+            this.lastDecrease = now;
+        }
+    }
+
+    /**
+     * @return Is the client being limited right now.
+     */
+    public synchronized boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * @return Requests per second allowed while enabled.
+     */
+    public synchronized double getRate() {
+        return this.rate;
+    }
+
+    private void refill(long now) {
+        final double capacity = Math.max(1, this.rate);
+        this.tokens = Math.min(capacity, this.tokens + (double) (now - this.lastRefill) / NANOS_PER_SECOND * this.rate);
+        this.lastRefill = now;
+    }
+
+    /**
+     * Counts the requests of one second windows, the rate the client sends at decides where limiting starts.
+     */
+    private void measure(long now) {
+        final long elapsed = now - this.windowStart;
+        if (elapsed < NANOS_PER_SECOND) {
+            return;
+        }
+        this.measuredRate = this.windowRequests * (double) NANOS_PER_SECOND / elapsed;
+        this.windowStart = now;
+        this.windowRequests = 0;
+        if (this.enabled && this.measuredRate < this.rate / 2) {
+            this.enabled = false;
+        }
+    }
+
+    private double sendRate(long now) {
+        final long elapsed = now - this.windowStart;
+        final double currentWindowRate = elapsed > 0 ? this.windowRequests * (double) NANOS_PER_SECOND / elapsed : 0;
+        return Math.max(this.measuredRate, currentWindowRate);
+    }
+}
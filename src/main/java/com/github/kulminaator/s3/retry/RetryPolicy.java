@@ -0,0 +1,284 @@
+package com.github.kulminaator.s3.retry;
+
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.http.HttpStatusException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which failed requests are tried again and how long to wait before that. Use the builder to create an
+ * instance.
+ *
+ * Retried are responses with a retryable http code (by default 429, 500, 502, 503 and 504, 503 being the SlowDown of S3
+ * and 429 the throttling of other s3 compatible stores) or a retryable s3 error code (by default RequestTimeout, which
+ * comes with a 400, and InternalError, which can come with a 200) and io failures such as resets and timeouts. The wait
+ * is "full jitter" exponential backoff: a random time between 0 and baseDelay * 2^(attempt - 1), capped at maxDelay, so
+ * clients that failed together do not come back together. A Retry-After header sets the minimum wait.
+ * See https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+ */
+public class RetryPolicy {
+
+    private int maxAttempts;
+    private long baseDelayMillis;
+    private long maxDelayMillis;
+    private Set<Integer> retryableStatusCodes;
+    private Set<String> retryableErrorCodes;
+    private boolean adaptiveRateLimiting;
+
+    /**
+     * @return A policy that tries every request only once.
+     */
+    public static RetryPolicy none() {
+        return new Builder().withMaxAttempts(1).build();
+    }
+
+    /**
+     * @param attempt How many attempts have been made so far, starting from 1.
+     * @param failure Why the last attempt failed.
+     * @return Should another attempt be made.
+     */
+    public boolean shouldRetry(int attempt, Exception failure) {
+        return attempt < this.maxAttempts && this.isRetryable(failure);
+    }
+
+    /**
+     * @param failure Why an attempt failed.
+     * @return Is the failure worth another attempt at all.
+     */
+    public boolean isRetryable(Exception failure) {
+        final S3ServiceException serviceException = findCause(failure, S3ServiceException.class);
+        if (serviceException != null) {
+            return this.isRetryable(serviceException.getHttpCode(), serviceException.getErrorCode());
+        }
+        final HttpStatusException statusException = findCause(failure, HttpStatusException.class);
+        if (statusException != null) {
+            return this.retryableStatusCodes.contains(statusException.getHttpCode());
+        }
+        final IOException ioException = findCause(failure, IOException.class);
+        // a thread interrupted on purpose is not a network problem, a socket timeout is
+        return ioException != null
+                && (!(ioException instanceof InterruptedIOException) || ioException instanceof SocketTimeoutException);
+    }
+
+    /**
+     * @param httpCode Http code of the response.
+     * @param errorCode S3 error code of the response, null if there was no error document.
+     * @return Is the error worth another attempt at all.
+     */
+    public boolean isRetryable(int httpCode, String errorCode) {
+        return this.retryableStatusCodes.contains(httpCode)
+                || (errorCode != null && this.retryableErrorCodes.contains(errorCode));
+    }
+
+    /**
+     * @param failure Why an attempt failed.
+     * @return Did s3 ask to slow down.
+     */
+    public boolean isThrottling(Exception failure) {
+        final S3ServiceException serviceException = findCause(failure, S3ServiceException.class);
+        if (serviceException != null) {
+            return isThrottlingCode(serviceException.getHttpCode())
+                    || "SlowDown".equals(serviceException.getErrorCode());
+        }
+        final HttpStatusException statusException = findCause(failure, HttpStatusException.class);
+        return statusException != null && isThrottlingCode(statusException.getHttpCode());
+    }
+
+    private static boolean isThrottlingCode(int httpCode) {
+        return httpCode == 503 || httpCode == 429;
+    }
+
+    /**
+     * @param attempt How many attempts have been made so far, starting from 1.
+     * @param failure Why the last attempt failed.
+     * @return Milliseconds to wait before the next attempt.
+     */
+    public long getDelayMillis(int attempt, Exception failure) {
+        final long ceiling = Math.min(this.maxDelayMillis, this.baseDelayMillis << Math.min(attempt - 1, 30));
+        final long jitter = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        final HttpStatusException statusException = findCause(failure, HttpStatusException.class);
+        if (statusException == null) {
+            return jitter;
+        }
+        return Math.max(jitter, Math.min(this.maxDelayMillis, retryAfterMillis(statusException)));
+    }
+
+    /**
+     * @return How many times a request is tried at most, the first attempt included.
+     */
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    private void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return this.baseDelayMillis;
+    }
+
+    private void setBaseDelayMillis(long baseDelayMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return this.maxDelayMillis;
+    }
+
+    private void setMaxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return this.retryableStatusCodes;
+    }
+
+    private void setRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        this.retryableStatusCodes = retryableStatusCodes;
+    }
+
+    public Set<String> getRetryableErrorCodes() {
+        return this.retryableErrorCodes;
+    }
+
+    private void setRetryableErrorCodes(Set<String> retryableErrorCodes) {
+        this.retryableErrorCodes = retryableErrorCodes;
+    }
+
+    /**
+     * @return Should the client limit its request rate once s3 starts throttling, see AdaptiveRateLimiter.
+     */
+    public boolean isAdaptiveRateLimiting() {
+        return this.adaptiveRateLimiting;
+    }
+
+    private void setAdaptiveRateLimiting(boolean adaptiveRateLimiting) {
+        this.adaptiveRateLimiting = adaptiveRateLimiting;
+    }
+
+    /**
+     * Retry-After is either seconds or an http date.
+     */
+    private static long retryAfterMillis(HttpStatusException statusException) {
+        final String retryAfter = statusException.getHeader("Retry-After");
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException notSeconds) {
+            try {
+                final ZonedDateTime at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException notDate) {
+                return 0;
+            }
+        }
+    }
+
+    private static <T extends Throwable> T findCause(Throwable failure, Class<T> type) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helps to build RetryPolicy objects.
+     */
+    public static class Builder {
+
+        public static final int DEFAULT_MAX_ATTEMPTS = 3;
+        public static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+        public static final long DEFAULT_MAX_DELAY_MILLIS = 20_000;
+
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long baseDelayMillis = DEFAULT_BASE_DELAY_MILLIS;
+        private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+        private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(429, 500, 502, 503, 504));
+        private Set<String> retryableErrorCodes = new HashSet<>(Arrays.asList("RequestTimeout", "InternalError"));
+        private boolean adaptiveRateLimiting;
+
+        public Builder(){}
+
+        /**
+         * Sets how many times a request is tried at most.
+         * @param maxAttempts Attempts including the first one, 1 for no retries.
+         * @return Builder.
+         */
+        public Builder withMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff, the wait before attempt n + 1 is random between 0 and
+         * min(maxDelay, baseDelay * 2^(n - 1)).
+         * @param baseDelayMillis Upper bound of the first wait.
+         * @param maxDelayMillis Upper bound of any wait, Retry-After included.
+         * @return Builder.
+         */
+        public Builder withBackoff(long baseDelayMillis, long maxDelayMillis) {
+            this.baseDelayMillis = baseDelayMillis;
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * Replaces the http codes that are retried.
+         * @param retryableStatusCodes The codes, e.g. 500, 503.
+         * @return Builder.
+         */
+        public Builder withRetryableStatusCodes(Integer... retryableStatusCodes) {
+            this.retryableStatusCodes = new HashSet<>(Arrays.asList(retryableStatusCodes));
+            return this;
+        }
+
+        /**
+         * Replaces the s3 error codes that are retried whatever the http code.
+         * @param retryableErrorCodes The codes, e.g. RequestTimeout.
+         * @return Builder.
+         */
+        public Builder withRetryableErrorCodes(String... retryableErrorCodes) {
+            this.retryableErrorCodes = new HashSet<>(Arrays.asList(retryableErrorCodes));
+            return this;
+        }
+
+        /**
+         * Makes the client limit its own request rate once s3 answers with 503 SlowDown, instead of only retrying
+         * the throttled requests. Useful for bulk jobs that would otherwise keep hammering a throttled prefix.
+         * @return Builder.
+         */
+        public Builder withAdaptiveRateLimiting() {
+            this.adaptiveRateLimiting = true;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if (this.maxAttempts < 1 || this.baseDelayMillis < 0 || this.maxDelayMillis < this.baseDelayMillis) {
+                throw new IllegalArgumentException("Attempts have to be positive and the delays ordered");
+            }
+            final RetryPolicy policy = new RetryPolicy();
+            policy.setMaxAttempts(this.maxAttempts);
+            policy.setBaseDelayMillis(this.baseDelayMillis);
+            policy.setMaxDelayMillis(this.maxDelayMillis);
+            policy.setRetryableStatusCodes(Collections.unmodifiableSet(new HashSet<>(this.retryableStatusCodes)));
+            policy.setRetryableErrorCodes(Collections.unmodifiableSet(new HashSet<>(this.retryableErrorCodes)));
+            policy.setAdaptiveRateLimiting(this.adaptiveRateLimiting);
+            return policy;
+        }
+    }
+}
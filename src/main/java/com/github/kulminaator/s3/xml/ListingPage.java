@@ -0,0 +1,56 @@
+package com.github.kulminaator.s3.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a ListObjectsV2 response says besides the objects themselves.
+ */
+public class ListingPage {
+    private boolean truncated;
+    private String nextContinuationToken;
+    private int keyCount;
+    private final List<String> commonPrefixes = new ArrayList<>();
+
+    public boolean isTruncated() {
+        return this.truncated;
+    }
+
+    void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * @return The token to request the next page with, null if this was the last page.
+     */
+    public String getNextContinuationToken() {
+        return this.truncated ? this.nextContinuationToken : null;
+    }
+
+    void setNextContinuationToken(String nextContinuationToken) {
+        this.nextContinuationToken = nextContinuationToken;
+    }
+
+    /**
+     * @return Number of objects on this page.
+     */
+    public int getKeyCount() {
+        return this.keyCount;
+    }
+
+    void setKeyCount(int keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    /**
+     * @return The prefixes the keys were rolled up into when listing with a delimiter, in listing order.
+     */
+    public List<String> getCommonPrefixes() {
+        return Collections.unmodifiableList(this.commonPrefixes);
+    }
+
+    void addCommonPrefix(String commonPrefix) {
+        this.commonPrefixes.add(commonPrefix);
+    }
+}
@@ -1,6 +1,8 @@
 package com.github.kulminaator.s3.xml;
 
+import com.github.kulminaator.s3.DeleteResult;
 import com.github.kulminaator.s3.S3Object;
+import com.github.kulminaator.s3.UploadedPart;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -8,15 +10,24 @@ import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class S3XmlParser {
 
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
     public static Document parseS3Xml(String xml) {
         try {
             final DocumentBuilderFactory builder = DocumentBuilderFactory.newInstance();
@@ -44,6 +55,241 @@ public class S3XmlParser {
         return objectList;
     }
 
+    /**
+     * Parses a ListObjectsV2 response in one pass, handing every object to the consumer as soon as it has been read.
+     * Nothing but the current object is held in memory, unlike with parseS3Xml and parseObjectsFromXml.
+     * @param xml The response body.
+     * @param objectConsumer Receives the objects in the order of the listing.
+     * @return Paging details of the listing.
+     */
+    public static ListingPage parseListing(InputStream xml, Consumer<S3Object> objectConsumer) {
+        return parseListing(xml, objectConsumer, token -> { });
+    }
+
+    /**
+     * Same as parseListing, also tells the continuation token as soon as it has been read. S3 sends the token
+     * before the objects, so the next page can be requested while the rest of this one is still coming in.
+     * @param xml The response body.
+     * @param objectConsumer Receives the objects in the order of the listing.
+     * @param continuationTokenListener Receives the token of the next page, not called for the last page.
+     * @return Paging details of the listing.
+     */
+    public static ListingPage parseListing(InputStream xml, Consumer<S3Object> objectConsumer,
+                                           Consumer<String> continuationTokenListener) {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+            reader.nextTag();
+            if (!"ListBucketResult".equals(reader.getLocalName())) {
+                throw new IllegalStateException("Expected aws s3 listing xml, got " + reader.getLocalName());
+            }
+            final ListingPage page = new ListingPage();
+            int keyCount = 0;
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "Contents":
+                        objectConsumer.accept(readObject(reader));
+                        keyCount++;
+                        break;
+                    case "CommonPrefixes":
+                        readCommonPrefix(reader, page);
+                        break;
+                    case "IsTruncated":
+                        page.setTruncated(Boolean.parseBoolean(reader.getElementText().trim()));
+                        break;
+                    case "NextContinuationToken":
+                        // only truncated listings carry the token, usually ahead of IsTruncated
+                        final String token = reader.getElementText();
+                        page.setNextContinuationToken(token);
+                        continuationTokenListener.accept(token);
+                        break;
+                    default:
+                        skipElement(reader);
+                }
+            }
+            page.setKeyCount(keyCount);
+            return page;
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Unable to parse aws s3 xml ", e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private static S3Object readObject(XMLStreamReader reader) throws XMLStreamException {
+        final S3Object object = new S3Object();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "Key":
+                    object.setKey(reader.getElementText());
+                    break;
+                case "ETag":
+                    object.setETag(reader.getElementText());
+                    break;
+                case "Size":
+                    object.setSize(Long.valueOf(reader.getElementText().trim()));
+                    break;
+                case "LastModified":
+                    object.setLastModified(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return object;
+    }
+
+    private static void readCommonPrefix(XMLStreamReader reader, ListingPage page) throws XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("Prefix".equals(reader.getLocalName())) {
+                page.addCommonPrefix(reader.getElementText());
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    /**
+     * Parses a DeleteObjects response, both the deleted keys and the ones that failed.
+     * @param xml The response body.
+     * @param resultConsumer Receives a result per key reported in the response, quiet requests report only failures.
+     */
+    public static void parseDeleteResult(InputStream xml, Consumer<DeleteResult> resultConsumer) {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+            reader.nextTag();
+            if (!"DeleteResult".equals(reader.getLocalName())) {
+                throw new IllegalStateException("Expected aws s3 delete result xml, got " + reader.getLocalName());
+            }
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "Deleted":
+                    case "Error":
+                        resultConsumer.accept(readDeleteResult(reader));
+                        break;
+                    default:
+                        skipElement(reader);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Unable to parse aws s3 xml ", e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Reads an s3 error document, e.g. {@code <Error><Code>NoSuchKey</Code><Message>...</Message>
+     * <RequestId>...</RequestId></Error>}. Bodies that are not an error document give an empty map instead of a
+     * failure, the caller is already handling an error and should not lose it over a proxy's html page.
+     * @param xml The response body.
+     * @return The simple elements of the error by name (Code, Message, RequestId, ...).
+     */
+    public static Map<String, String> parseError(InputStream xml) {
+        final Map<String, String> error = new HashMap<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+            reader.nextTag();
+            if (!"Error".equals(reader.getLocalName())) {
+                return error;
+            }
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                error.put(reader.getLocalName(), reader.getElementText());
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            // keep what was read before the document went bad
+            return error;
+        } finally {
+            closeQuietly(reader);
+        }
+        return error;
+    }
+
+    /**
+     * Reads the credentials out of an sts AssumeRole* response, e.g. {@code <AssumeRoleWithWebIdentityResponse>
+     * <AssumeRoleWithWebIdentityResult><Credentials><AccessKeyId>...</AccessKeyId>...</Credentials>}.
+     * @param xml The response body.
+     * @return The simple elements of Credentials by name (AccessKeyId, SecretAccessKey, SessionToken, Expiration),
+     * empty if there are none.
+     */
+    public static Map<String, String> parseStsCredentials(InputStream xml) {
+        final Map<String, String> credentials = new HashMap<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "Credentials".equals(reader.getLocalName())) {
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        credentials.put(reader.getLocalName(), reader.getElementText());
+                    }
+                    break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to parse sts response", e);
+        } finally {
+            closeQuietly(reader);
+        }
+        return credentials;
+    }
+
+    private static DeleteResult readDeleteResult(XMLStreamReader reader) throws XMLStreamException {
+        String key = null;
+        String code = null;
+        String message = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "Key":
+                    key = reader.getElementText();
+                    break;
+                case "Code":
+                    code = reader.getElementText();
+                    break;
+                case "Message":
+                    message = reader.getElementText();
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return new DeleteResult(key, code, message);
+    }
+
+    /**
+     * Skips the element the reader is at, including everything nested in it.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (XMLStreamException ignored) {
+            // nothing left to read from it anyway
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     public static String getNextContinuationToken(Document s3XmlDocument) {
         /*
         xml section describing this looks like
@@ -61,6 +307,75 @@ public class S3XmlParser {
         return null;
     }
 
+    /**
+     * Picks the upload id from an InitiateMultipartUploadResult document.
+     * @param s3XmlDocument The parsed response of CreateMultipartUpload.
+     * @return The upload id.
+     */
+    public static String getUploadId(Document s3XmlDocument) {
+        final String uploadId = getSimpleXmlItemContent(s3XmlDocument.getDocumentElement(), "UploadId");
+        if (uploadId == null) {
+            throw new IllegalStateException("No UploadId in aws s3 xml");
+        }
+        return uploadId;
+    }
+
+    /**
+     * Builds the request body of CompleteMultipartUpload.
+     * @param parts The uploaded parts, in the order of their part numbers.
+     * @return The xml document as a string.
+     */
+    public static String buildCompleteMultipartUploadXml(List<UploadedPart> parts) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("<CompleteMultipartUpload xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        for (final UploadedPart part : parts) {
+            builder.append("<Part><PartNumber>").append(part.getPartNumber()).append("</PartNumber>")
+                    .append("<ETag>").append(escapeXml(part.getETag())).append("</ETag>");
+            if (part.getChecksumAlgorithm() != null) {
+                // e.g. ChecksumCRC32C
+                final String element = "Checksum" + part.getChecksumAlgorithm().name();
+                builder.append('<').append(element).append('>').append(part.getChecksum())
+                        .append("</").append(element).append('>');
+            }
+            builder.append("</Part>");
+        }
+        builder.append("</CompleteMultipartUpload>");
+        return builder.toString();
+    }
+
+    /**
+     * Builds the request body of DeleteObjects, in quiet mode so the response lists only the keys that failed.
+     * @param keys The keys to delete, at most 1000.
+     * @return The xml document as a string.
+     */
+    public static String buildDeleteXml(List<String> keys) {
+        final StringBuilder builder = new StringBuilder(keys.size() * 64);
+        builder.append("<Delete xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Quiet>true</Quiet>");
+        for (final String key : keys) {
+            builder.append("<Object><Key>").append(escapeXml(key)).append("</Key></Object>");
+        }
+        builder.append("</Delete>");
+        return builder.toString();
+    }
+
+    private static String escapeXml(String text) {
+        final StringBuilder builder = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            final char ch = text.charAt(i);
+            switch (ch) {
+                case '<': builder.append("&lt;"); break;
+                case '>': builder.append("&gt;"); break;
+                case '&': builder.append("&amp;"); break;
+                case '"': builder.append("&quot;"); break;
+                case '\'': builder.append("&apos;"); break;
+                // a raw carriage return would be normalized into a line feed by the parser on the other side
+                case '\r': builder.append("&#13;"); break;
+                default: builder.append(ch);
+            }
+        }
+        return builder.toString();
+    }
+
     private static String getSimpleXmlItemContent(Element parentElement, String item) {
         NodeList foundElements = parentElement.getElementsByTagName(item);
         if (foundElements.getLength() > 0) {
@@ -0,0 +1,110 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.http.AsyncHttpClient;
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.options.PutObjectOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AsyncClientTest {
+
+    private StubS3Server server;
+    private HttpClient httpClient;
+    private AsyncClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.client = this.server.clientBuilder().build();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void puts_and_fetches_objects_concurrently() {
+        // given
+        final PutObjectOptions options = new PutObjectOptions.Builder().withContentType("text/plain").build();
+
+        // when
+        final List<CompletableFuture<Void>> puts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            puts.add(this.client.putObjectAsync("my-bucket", "async/" + i + ".txt",
+                    ("data " + i).getBytes(StandardCharsets.UTF_8), options));
+        }
+        CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).join();
+
+        // then
+        assertEquals("data 7", new String(this.client.getObjectDataAsync("my-bucket", "async/7.txt").join(),
+                StandardCharsets.UTF_8));
+        final S3Object info = this.client.getObjectAsync("my-bucket", "async/12.txt").join();
+        assertEquals("async/12.txt", info.getKey());
+        assertEquals(7L, (long) info.getSize());
+    }
+
+    @Test
+    public void fails_future_on_missing_object() {
+        // when
+        Throwable thrown = null;
+        try {
+            this.client.getObjectDataAsync("my-bucket", "missing.txt").join();
+        } catch (CompletionException e) {
+            thrown = e.getCause();
+        }
+
+        // then
+        assertNotNull(thrown);
+    }
+
+    @Test
+    public void lists_pages_through_async_http_client() throws Exception {
+        // given
+        this.httpClient = mock(HttpClient.class, withSettings().extraInterfaces(AsyncHttpClient.class));
+        final AsyncClient listingClient = new PicoClient.Builder()
+                .withHttps()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(this.httpClient)
+                .build();
+        when(((AsyncHttpClient) this.httpClient).makeRequestAsync(any())).thenReturn(
+                this.buildResponseOfResource("pagination_s3_response_content_truncated.xml"),
+                this.buildResponseOfResource("pagination_s3_response_content_final.xml"));
+
+        // when
+        final List<S3Object> result = listingClient.listObjectsAsync("my-bucket", "my-object-folder").join();
+
+        // then
+        final ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify((AsyncHttpClient) this.httpClient, times(2)).makeRequestAsync(captor.capture());
+        verify(this.httpClient, never()).makeRequest(any());
+        assertEquals("list-type=2&prefix=my-object-folder", captor.getAllValues().get(0).getParams());
+        assertTrue(captor.getAllValues().get(1).getParams().startsWith("continuation-token="));
+        assertEquals(3, result.size());
+    }
+
+    private CompletableFuture<HttpResponse> buildResponseOfResource(String resourceName) throws Exception {
+        final Path path = Paths.get(this.getClass().getClassLoader().getResource(resourceName).toURI());
+        final HttpResponse response = new HttpResponse();
+        response.setBody(Files.readAllBytes(path));
+        return CompletableFuture.completedFuture(response);
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.options.BulkOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BulkTransferTest {
+
+    private StubS3Server server;
+    private Client client;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.client = this.server.clientBuilder().build();
+        this.executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void gets_objects_in_parallel_within_the_limit() {
+        // given
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            final String key = "data/object-" + i + ".txt";
+            this.server.putObject(key, ("content " + i).getBytes(StandardCharsets.UTF_8));
+            keys.add(key);
+        }
+        final Map<String, String> received = new ConcurrentHashMap<>();
+        final AtomicInteger inProgress = new AtomicInteger();
+        final AtomicInteger maxInProgress = new AtomicInteger();
+        final BulkOptions options = new BulkOptions.Builder()
+                .withMaxConcurrency(3)
+                .withExecutor(this.executor)
+                .build();
+
+        // when
+        final Map<String, Exception> failures = this.client.getObjects("my-bucket", keys, (key, data) -> {
+            maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+            received.put(key, read(data));
+            sleep(10);
+            inProgress.decrementAndGet();
+        }, options);
+
+        // then
+        assertTrue(failures.isEmpty());
+        assertEquals(30, received.size());
+        assertEquals("content 7", received.get("data/object-7.txt"));
+        assertTrue(maxInProgress.get() > 1);
+        assertTrue(maxInProgress.get() <= 3);
+    }
+
+    @Test
+    public void reports_failures_per_key() {
+        // given
+        this.server.putObject("good.txt", new byte[1]);
+        this.server.putObject("bad-consumer.txt", new byte[1]);
+        final List<String> keys = new ArrayList<>();
+        keys.add("good.txt");
+        keys.add("missing.txt");
+        keys.add("bad-consumer.txt");
+
+        // when
+        final Map<String, Exception> failures = this.client.getObjects("my-bucket", keys, (key, data) -> {
+            if (key.startsWith("bad")) {
+                throw new IllegalArgumentException("cannot handle " + key);
+            }
+        });
+
+        // then
+        assertEquals(2, failures.size());
+        assertTrue(failures.get("missing.txt").getMessage().contains("404"));
+        assertEquals("cannot handle bad-consumer.txt", failures.get("bad-consumer.txt").getMessage());
+    }
+
+    @Test
+    public void puts_objects_in_parallel() {
+        // given
+        final Map<String, byte[]> objects = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            objects.put("upload/" + i + ".bin", new byte[i]);
+        }
+
+        // when
+        final Map<String, Exception> failures = this.client.putObjects("my-bucket", objects);
+
+        // then
+        assertTrue(failures.isEmpty());
+        for (final Map.Entry<String, byte[]> object : objects.entrySet()) {
+            assertArrayEquals(object.getValue(), this.server.getObject(object.getKey()));
+        }
+    }
+
+    private static String read(InputStream data) {
+        try {
+            final byte[] buffer = new byte[1024];
+            final int read = data.read(buffer);
+            return new String(buffer, 0, Math.max(read, 0), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
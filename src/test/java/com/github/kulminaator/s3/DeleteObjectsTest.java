@@ -0,0 +1,100 @@
+package com.github.kulminaator.s3;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DeleteObjectsTest {
+
+    private StubS3Server server;
+    private Client client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.client = this.server.clientBuilder().build();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void deletes_single_object() {
+        // given
+        this.server.putObject("folder/old.txt", new byte[1]);
+
+        // when
+        this.client.deleteObject("my-bucket", "folder/old.txt");
+
+        // then
+        assertNull(this.server.getObject("folder/old.txt"));
+        assertEquals("DELETE /folder/old.txt", this.server.getRequestLog().get(0));
+    }
+
+    @Test
+    public void deletes_nothing_without_a_request() {
+        // when
+        final List<DeleteResult> results = this.client.deleteObjects("my-bucket", new ArrayList<>());
+
+        // then
+        assertTrue(results.isEmpty());
+        assertTrue(this.server.getRequestLog().isEmpty());
+    }
+
+    @Test
+    public void deletes_in_batches_of_thousand_keys() {
+        // given
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            final String key = String.format("logs/%04d.log", i);
+            this.server.putObject(key, new byte[1]);
+            keys.add(key);
+        }
+        this.server.putObject("keep.txt", new byte[1]);
+
+        // when
+        final List<DeleteResult> results = this.client.deleteObjects("my-bucket", keys);
+
+        // then
+        assertEquals(2500, results.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(keys.get(i), results.get(i).getKey());
+            assertTrue(results.get(i).isDeleted());
+            assertNull(this.server.getObject(keys.get(i)));
+        }
+        assertNotNull(this.server.getObject("keep.txt"));
+        assertEquals(3, this.server.getRequestLog().stream().filter("POST /?delete="::equals).count());
+    }
+
+    @Test
+    public void reports_keys_that_were_not_deleted() {
+        // given
+        final List<String> keys = Arrays.asList("a.txt", "tricky <&> 'key'\r\n.txt", "protected.txt");
+        for (final String key : keys) {
+            this.server.putObject(key, new byte[1]);
+        }
+        this.server.denyDelete("protected.txt");
+
+        // when
+        final List<DeleteResult> results = this.client.deleteObjects("my-bucket", keys);
+
+        // then
+        assertTrue(results.get(0).isDeleted());
+        assertTrue(results.get(1).isDeleted());
+        assertNull(this.server.getObject("tricky <&> 'key'\r\n.txt"));
+        assertFalse(results.get(2).isDeleted());
+        assertEquals("protected.txt", results.get(2).getKey());
+        assertEquals("AccessDenied", results.get(2).getErrorCode());
+        assertEquals("Access Denied", results.get(2).getErrorMessage());
+        assertNotNull(this.server.getObject("protected.txt"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.retry.RetryPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class ErrorResponseTest {
+
+    private StubS3Server server;
+    private PicoClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.client = this.server.clientBuilder()
+                .withRetryPolicy(RetryPolicy.none())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void reports_s3_error_code_and_request_id() {
+        // when
+        S3ServiceException thrown = null;
+        try {
+            this.client.getObjectDataAsString("my-bucket", "missing.json");
+        } catch (S3ServiceException e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals(404, thrown.getHttpCode());
+        assertEquals("NoSuchKey", thrown.getErrorCode());
+        assertEquals("request-1", thrown.getRequestId());
+        assertFalse(thrown.isRetryable());
+        assertTrue(thrown.getMessage().contains("NoSuchKey"));
+    }
+
+    @Test
+    public void reports_head_errors_by_http_code() {
+        // when
+        S3ServiceException thrown = null;
+        try {
+            this.client.getObject("my-bucket", "missing.json");
+        } catch (S3ServiceException e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals(404, thrown.getHttpCode());
+        assertNull(thrown.getErrorCode());
+        assertEquals("request-1", thrown.getRequestId());
+    }
+
+    @Test
+    public void marks_throttling_retryable() {
+        // given
+        this.server.failNextRequests(1, 503);
+
+        // when
+        S3ServiceException thrown = null;
+        try {
+            this.client.getObjectDataAsync("my-bucket", "missing.json").join();
+        } catch (CompletionException e) {
+            thrown = (S3ServiceException) e.getCause();
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals(503, thrown.getHttpCode());
+        assertEquals("SlowDown", thrown.getErrorCode());
+        assertEquals("Please reduce your request rate.", thrown.getErrorMessage());
+        assertTrue(thrown.isRetryable());
+    }
+}
@@ -0,0 +1,243 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.options.ListObjectsOptions;
+import com.github.kulminaator.s3.options.ParallelListOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ListingTest {
+
+    private StubS3Server server;
+    private Client client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.client = this.server.clientBuilder().build();
+        for (int i = 0; i < 25; i++) {
+            this.server.putObject(String.format("folder/object-%02d.txt", i), new byte[i]);
+        }
+        this.server.putObject("other/object.txt", new byte[1]);
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void prefetching_lists_same_objects_as_plain_listing() {
+        // given
+        final ListObjectsOptions.Builder options = new ListObjectsOptions.Builder()
+                .withPrefix("folder/")
+                .withMaxKeys(4);
+
+        // when
+        final List<String> plain = this.client.listObjectsStream("my-bucket", options.build())
+                .map(S3Object::getKey).collect(Collectors.toList());
+        final List<String> prefetched = this.client.listObjectsStream("my-bucket", options.withPrefetch().build())
+                .map(S3Object::getKey).collect(Collectors.toList());
+
+        // then
+        assertEquals(25, plain.size());
+        assertEquals(plain, prefetched);
+        assertEquals("folder/object-00.txt", prefetched.get(0));
+        assertEquals(Long.valueOf(24), this.client.listObjectsStream("my-bucket", options.build())
+                .reduce((first, second) -> second).get().getSize());
+    }
+
+    @Test
+    public void requests_next_page_while_current_one_is_used() throws InterruptedException {
+        // given
+        this.server.setListingDelayMillis(50);
+        final ListObjectsOptions options = new ListObjectsOptions.Builder()
+                .withPrefix("folder/")
+                .withMaxKeys(5)
+                .withPrefetch()
+                .build();
+
+        // when
+        final Iterator<S3Object> iterator = this.client.listObjectsIterator("my-bucket", options);
+        iterator.next();
+
+        // then
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (this.listingRequests() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, this.listingRequests());
+    }
+
+    @Test
+    public void stops_prefetching_when_abandoned() throws InterruptedException {
+        // given
+        final ListObjectsOptions options = new ListObjectsOptions.Builder()
+                .withPrefix("folder/")
+                .withMaxKeys(2)
+                .withPrefetch()
+                .build();
+
+        // when
+        final List<S3Object> firstThree = this.client.listObjectsStream("my-bucket", options)
+                .limit(3).collect(Collectors.toList());
+        Thread.sleep(200);
+
+        // then
+        assertEquals(3, firstThree.size());
+        assertTrue(this.listingRequests() <= 3);
+    }
+
+    @Test
+    public void parallel_listing_discovers_shards_and_keeps_order() {
+        // given
+        this.server.putObject("a-top-level.txt", new byte[1]);
+        this.server.putObject("folder/nested/deep.txt", new byte[1]);
+        this.server.putObject("z-top-level.txt", new byte[1]);
+        final ParallelListOptions options = new ParallelListOptions.Builder()
+                .withMaxKeys(3)
+                .withMaxConcurrency(2)
+                .withOrdered()
+                .build();
+
+        // when
+        final List<String> plain = this.client.listObjectsStream("my-bucket", (String) null)
+                .map(S3Object::getKey).collect(Collectors.toList());
+        final List<String> parallel;
+        try (Stream<S3Object> stream = this.client.listObjectsParallel("my-bucket", options)) {
+            parallel = stream.map(S3Object::getKey).collect(Collectors.toList());
+        }
+
+        // then
+        assertEquals(29, plain.size());
+        assertEquals(plain, parallel);
+        assertTrue(this.server.getRequestLog().contains("GET /?delimiter=%2F&list-type=2&max-keys=3"));
+        assertTrue(this.server.getRequestLog().contains("GET /?list-type=2&max-keys=3&prefix=other%2F"));
+    }
+
+    @Test
+    public void parallel_listing_splits_at_given_keys() {
+        // given
+        final ParallelListOptions options = new ParallelListOptions.Builder()
+                .withPrefix("folder/")
+                .withSplitPoints(Arrays.asList("folder/object-17.txt", "folder/object-05", "folder/object-10.txt"))
+                .withMaxKeys(4)
+                .build();
+
+        // when
+        final List<String> keys = this.client.listObjectsParallel("my-bucket", options)
+                .map(S3Object::getKey).sorted().collect(Collectors.toList());
+
+        // then
+        assertTrue(this.server.getRequestLog().contains(
+                "GET /?list-type=2&max-keys=4&prefix=folder%2F&start-after=folder%2Fobject-10.txt"));
+        // every shard stops at the page that passes its split point instead of listing the rest of the folder
+        assertEquals(8, this.listingRequests());
+        assertEquals(this.client.listObjectsStream("my-bucket", "folder/")
+                .map(S3Object::getKey).collect(Collectors.toList()), keys);
+    }
+
+    @Test
+    public void prefetching_listing_keeps_failing_after_a_broken_page() {
+        // given
+        final ListObjectsOptions options = new ListObjectsOptions.Builder()
+                .withPrefix("folder/")
+                .withMaxKeys(10)
+                .withPrefetch()
+                .build();
+        this.server.breakNextListings(1);
+        final Iterator<S3Object> iterator = this.client.listObjectsIterator("my-bucket", options);
+
+        // when
+        RuntimeException first = null;
+        try {
+            iterator.hasNext();
+        } catch (RuntimeException e) {
+            first = e;
+        }
+        RuntimeException second = null;
+        try {
+            iterator.next();
+        } catch (RuntimeException e) {
+            second = e;
+        }
+
+        // then
+        assertNotNull(first);
+        // the second page was requested before the first one broke, but is not handed out in its place
+        assertSame(first, second);
+    }
+
+    @Test(timeout = 10_000)
+    public void parallel_listing_hands_errors_to_the_consumer() {
+        // given
+        final PicoClient picoClient = mock(PicoClient.class);
+        when(picoClient.listPage(any(), any(), any(), any())).thenThrow(new NoClassDefFoundError("broken"));
+        final ParallelListOptions options = new ParallelListOptions.Builder()
+                .withSplitPoints(Arrays.asList("b", "m"))
+                .build();
+
+        // when
+        NoClassDefFoundError thrown = null;
+        try (Stream<S3Object> stream = new ParallelLister(picoClient, "my-bucket", options).stream()) {
+            stream.count();
+        } catch (NoClassDefFoundError e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals("broken", thrown.getMessage());
+    }
+
+    @Test
+    public void lists_common_prefixes_with_delimiter() {
+        // given
+        this.server.putObject("a-top.txt", new byte[3]);
+        this.server.putObject("top.txt", new byte[2]);
+        final ListObjectsOptions.Builder options = new ListObjectsOptions.Builder()
+                .withDelimiter("/")
+                .withMaxKeys(2);
+
+        // when
+        final List<S3Object> plain = this.client.listObjectsStream("my-bucket", options.build())
+                .collect(Collectors.toList());
+        final List<S3Object> prefetched = this.client.listObjectsStream("my-bucket", options.withPrefetch().build())
+                .collect(Collectors.toList());
+
+        // then
+        final List<String> expected = Arrays.asList("a-top.txt", "folder/", "other/", "top.txt");
+        assertEquals(expected, plain.stream().map(S3Object::getKey).collect(Collectors.toList()));
+        assertEquals(expected, prefetched.stream().map(S3Object::getKey).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(false, true, true, false),
+                plain.stream().map(S3Object::isPrefix).collect(Collectors.toList()));
+        assertNull(plain.get(1).getSize());
+        assertEquals(Long.valueOf(2), prefetched.get(3).getSize());
+    }
+
+    @Test
+    public void compares_keys_in_utf8_byte_order() {
+        assertTrue(ParallelLister.compareKeys("a", "b") < 0);
+        assertTrue(ParallelLister.compareKeys("ab", "a") > 0);
+        assertEquals(0, ParallelLister.compareKeys("ä", "ä"));
+        // U+1F600 is above U+FFFD in utf-8, but its surrogates sort below it in utf-16
+        assertTrue(ParallelLister.compareKeys("\uD83D\uDE00", "\uFFFD") > 0);
+        assertTrue("\uD83D\uDE00".compareTo("\uFFFD") < 0);
+    }
+
+    private long listingRequests() {
+        return this.server.getRequestLog().stream().filter(r -> r.startsWith("GET /?")).count();
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.cache.MetadataCache;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MetadataCachingTest {
+
+    private StubS3Server server;
+    private MetadataCache cache;
+    private Client client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.server.putObject("config.json", "{}".getBytes(StandardCharsets.UTF_8));
+        this.cache = new MetadataCache.Builder().build();
+        this.client = this.server.clientBuilder()
+                .withMetadataCache(this.cache)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void answers_repeated_checks_from_cache() {
+        // when
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Long.valueOf(2), this.client.getObject("my-bucket", "config.json").getSize());
+            this.expectNotFound("missing.json");
+        }
+
+        // then
+        assertEquals(2, this.server.getRequestLog().size());
+        assertEquals(18, this.cache.getHitCount());
+        assertEquals(2, this.cache.getMissCount());
+    }
+
+    @Test
+    public void writes_through_the_client_drop_entries() {
+        // given
+        this.client.getObject("my-bucket", "config.json");
+        this.expectNotFound("new.json");
+
+        // when
+        this.client.putObject("my-bucket", "config.json", "{\"a\":1}".getBytes(StandardCharsets.UTF_8),
+                "application/json");
+        this.client.putObject("my-bucket", "new.json", new byte[3], "application/json");
+
+        // then
+        assertEquals(Long.valueOf(7), this.client.getObject("my-bucket", "config.json").getSize());
+        assertEquals(Long.valueOf(3), this.client.getObject("my-bucket", "new.json").getSize());
+
+        // when
+        this.client.deleteObject("my-bucket", "new.json");
+
+        // then
+        this.expectNotFound("new.json");
+    }
+
+    private void expectNotFound(String object) {
+        try {
+            this.client.getObject("my-bucket", object);
+            fail("expected a 404 for " + object);
+        } catch (S3ServiceException e) {
+            assertEquals(404, e.getHttpCode());
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.options.MultipartUploadOptions;
+import com.github.kulminaator.s3.options.PutObjectOptions;
+import com.github.kulminaator.s3.retry.RetryPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class MultipartUploadTest {
+
+    private StubS3Server server;
+    private Client client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.client = this.server.clientBuilder().build();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void uploads_parts_in_parallel_and_completes() {
+        // given
+        final byte[] data = this.randomData(10 * 1024 + 123);
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder()
+                .withPartSize(1024)
+                .withMaxConcurrency(3)
+                .build();
+
+        // when
+        this.client.putObjectMultipart("my-bucket", "big/object.bin", new ByteArrayInputStream(data), options);
+
+        // then
+        assertArrayEquals(data, this.server.getObject("big/object.bin"));
+        assertTrue(this.server.getOpenUploads().isEmpty());
+
+        final List<String> requests = this.server.getRequestLog();
+        assertEquals("POST /big/object.bin?uploads=", requests.get(0));
+        assertEquals(11, requests.stream().filter(r -> r.startsWith("PUT /big/object.bin?partNumber=")).count());
+        assertEquals("POST /big/object.bin?uploadId=upload-1", requests.get(requests.size() - 1));
+    }
+
+    @Test
+    public void retries_failing_parts() {
+        // given
+        final byte[] data = this.randomData(5000);
+        this.server.failPart(2, 2);
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder()
+                .withPartSize(1024)
+                .withMaxPartAttempts(3)
+                .build();
+
+        // when
+        this.client.putObjectMultipart("my-bucket", "retried.bin", new ByteArrayInputStream(data), options);
+
+        // then
+        assertArrayEquals(data, this.server.getObject("retried.bin"));
+        assertEquals(3, this.server.getRequestLog().stream()
+                .filter(r -> r.startsWith("PUT /retried.bin?partNumber=2&")).count());
+    }
+
+    @Test
+    public void aborts_upload_when_part_keeps_failing() {
+        // given
+        final byte[] data = this.randomData(5000);
+        this.server.failPart(3, 100);
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder()
+                .withPartSize(1024)
+                .withMaxPartAttempts(2)
+                .build();
+
+        // when
+        S3AccessException thrown = null;
+        try {
+            this.client.putObjectMultipart("my-bucket", "failing.bin", new ByteArrayInputStream(data), options);
+        } catch (S3AccessException e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertNull(this.server.getObject("failing.bin"));
+        assertTrue(this.server.getOpenUploads().isEmpty());
+        assertTrue(this.server.getRequestLog().contains("DELETE /failing.bin?uploadId=upload-1"));
+    }
+
+    @Test
+    public void does_not_retry_permanent_part_failures() {
+        // given
+        final byte[] data = this.randomData(5000);
+        this.server.failPart(2, 100, 403);
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder()
+                .withPartSize(1024)
+                .withMaxPartAttempts(3)
+                .build();
+
+        // when
+        S3ServiceException thrown = null;
+        try {
+            this.client.putObjectMultipart("my-bucket", "denied.bin", new ByteArrayInputStream(data), options);
+        } catch (S3ServiceException e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals("AccessDenied", thrown.getErrorCode());
+        assertEquals(1, this.server.getRequestLog().stream()
+                .filter(r -> r.startsWith("PUT /denied.bin?partNumber=2&")).count());
+        assertTrue(this.server.getOpenUploads().isEmpty());
+    }
+
+    @Test
+    public void aborts_and_rethrows_errors_of_parts() {
+        // given
+        final PicoClient picoClient = mock(PicoClient.class);
+        when(picoClient.getRetryPolicy()).thenReturn(new RetryPolicy.Builder().build());
+        when(picoClient.createMultipartUpload(any(), any(), any())).thenReturn("upload-1");
+        when(picoClient.uploadPart(any(), any(), any(), anyInt(), any(), anyInt(), any()))
+                .thenThrow(new NoClassDefFoundError("broken"));
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder().withPartSize(1024).build();
+        final ExecutorService executor = Executors.newFixedThreadPool(options.getMaxConcurrency());
+
+        // when
+        NoClassDefFoundError thrown = null;
+        try {
+            new MultipartUploader(picoClient, executor, options).upload("my-bucket", "broken.bin",
+                    new ByteArrayInputStream(this.randomData(5000)));
+        } catch (NoClassDefFoundError e) {
+            thrown = e;
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals("broken", thrown.getMessage());
+        verify(picoClient).abortMultipartUpload("my-bucket", "broken.bin", "upload-1");
+    }
+
+    @Test
+    public void aborts_only_after_parts_in_flight_when_stream_fails() {
+        // given
+        final byte[] data = this.randomData(4 * 1024);
+        final InputStream failing = new SequenceInputStream(new ByteArrayInputStream(data), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("disk on fire");
+            }
+        });
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder()
+                .withPartSize(1024)
+                .withMaxConcurrency(4)
+                .build();
+
+        // when
+        S3AccessException thrown = null;
+        try {
+            this.client.putObjectMultipart("my-bucket", "broken.bin", failing, options);
+        } catch (S3AccessException e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals("disk on fire", thrown.getCause().getMessage());
+        final List<String> requests = this.server.getRequestLog();
+        assertEquals("DELETE /broken.bin?uploadId=upload-1", requests.get(requests.size() - 1));
+        assertTrue(this.server.getOpenUploads().isEmpty());
+    }
+
+    @Test
+    public void refuses_to_go_past_the_part_limit() {
+        // given
+        final PicoClient picoClient = mock(PicoClient.class);
+        when(picoClient.createMultipartUpload(any(), any(), any())).thenReturn("upload-1");
+        when(picoClient.uploadPart(any(), any(), any(), anyInt(), any(), anyInt(), any()))
+                .thenReturn(new UploadedPart(1, "\"etag\""));
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder()
+                .withPartSize(1)
+                .build();
+        final byte[] data = new byte[MultipartUploadOptions.Builder.MAX_PARTS + 1];
+        final ExecutorService executor = Executors.newFixedThreadPool(options.getMaxConcurrency());
+
+        // when
+        S3AccessException thrown = null;
+        try {
+            new MultipartUploader(picoClient, executor, options).upload("my-bucket", "huge.bin",
+                    new ByteArrayInputStream(data));
+        } catch (S3AccessException e) {
+            thrown = e;
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals("Multipart upload of huge.bin needs more than 10000 parts of 1 bytes, use a larger part size",
+                thrown.getMessage());
+        verify(picoClient, atMost(MultipartUploadOptions.Builder.MAX_PARTS))
+                .uploadPart(any(), any(), any(), anyInt(), any(), anyInt(), any());
+        verify(picoClient, never()).completeMultipartUpload(any(), any(), any(), any());
+        verify(picoClient).abortMultipartUpload("my-bucket", "huge.bin", "upload-1");
+    }
+
+    @Test
+    public void sends_checksum_with_every_part() {
+        // given
+        final byte[] data = this.randomData(3000);
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder()
+                .withPartSize(1024)
+                .withPutObjectOptions(new PutObjectOptions.Builder()
+                        .withChecksumAlgorithm(ChecksumAlgorithm.CRC32C)
+                        .build())
+                .build();
+
+        // when
+        this.client.putObjectMultipart("my-bucket", "checked.bin", new ByteArrayInputStream(data), options);
+
+        // then
+        assertArrayEquals(data, this.server.getObject("checked.bin"));
+        final Map<Integer, String> checksums = this.server.getPartChecksums();
+        assertEquals(3, checksums.size());
+        assertEquals(ChecksumAlgorithm.CRC32C.checksum(data, 2048, 952), checksums.get(3));
+    }
+
+    @Test
+    public void uploads_empty_stream_as_single_part() {
+        // given
+        final MultipartUploadOptions options = new MultipartUploadOptions.Builder().withPartSize(1024).build();
+
+        // when
+        this.client.putObjectMultipart("my-bucket", "empty.bin", new ByteArrayInputStream(new byte[0]), options);
+
+        // then
+        assertArrayEquals(new byte[0], this.server.getObject("empty.bin"));
+    }
+
+    private byte[] randomData(int size) {
+        final byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
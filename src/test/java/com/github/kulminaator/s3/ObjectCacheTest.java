@@ -0,0 +1,126 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.cache.MemoryObjectCache;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ObjectCacheTest {
+
+    private StubS3Server server;
+    private MemoryObjectCache cache;
+    private PicoClient client;
+    private final List<Integer> responseCodes = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.server.putObject("config.json", "{\"version\":1}".getBytes(StandardCharsets.UTF_8));
+        this.cache = new MemoryObjectCache(1024 * 1024);
+        final HttpClient serverClient = this.server.httpClient();
+        this.client = this.server.clientBuilder()
+                .withHttpClient(new HttpClient() {
+                    @Override
+                    public HttpResponse makeRequest(HttpRequest request) throws IOException {
+                        final HttpResponse response = serverClient.makeRequest(request);
+                        responseCodes.add(response.getHttpCode());
+                        return response;
+                    }
+                })
+                .withObjectCache(this.cache)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void serves_unchanged_objects_from_cache() {
+        // when
+        final String first = this.client.getObjectDataAsString("my-bucket", "config.json");
+        final String second = this.client.getObjectDataAsString("my-bucket", "config.json");
+        final byte[] third = this.client.getObjectDataAsync("my-bucket", "config.json").join();
+
+        // then
+        assertEquals("{\"version\":1}", first);
+        assertEquals(first, second);
+        assertEquals(first, new String(third, StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(200, 304, 304), this.responseCodes);
+    }
+
+    @Test
+    public void downloads_changed_objects_again() {
+        // given
+        this.client.getObjectDataAsString("my-bucket", "config.json");
+        this.server.putObject("config.json", "{\"version\":2}".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        final String changed = this.client.getObjectDataAsString("my-bucket", "config.json");
+        final String again = this.client.getObjectDataAsString("my-bucket", "config.json");
+
+        // then
+        assertEquals("{\"version\":2}", changed);
+        assertEquals(changed, again);
+        assertEquals(Arrays.asList(200, 200, 304), this.responseCodes);
+    }
+
+    @Test
+    public void answers_object_info_from_cache() {
+        // given
+        this.client.getObjectDataAsString("my-bucket", "config.json");
+
+        // when
+        final S3Object info = this.client.getObject("my-bucket", "config.json");
+
+        // then
+        assertEquals(Arrays.asList(200, 304), this.responseCodes);
+        assertEquals(Long.valueOf(13), info.getSize());
+        assertNotNull(info.getETag());
+    }
+
+    @Test
+    public void forgets_deleted_objects() {
+        // given
+        this.client.getObjectDataAsString("my-bucket", "config.json");
+        this.client.deleteObject("my-bucket", "config.json");
+
+        // when
+        try {
+            this.client.getObjectDataAsString("my-bucket", "config.json");
+            fail("deleted object should not be served");
+        } catch (S3ServiceException e) {
+            assertEquals(404, e.getHttpCode());
+        }
+
+        // then
+        assertNull(this.cache.get("my-bucket/config.json"));
+        assertEquals(0, this.cache.getBytes());
+    }
+
+    @Test
+    public void callers_can_not_change_cached_data() {
+        // given
+        final byte[] data = this.client.getObjectDataAsync("my-bucket", "config.json").join();
+
+        // when
+        data[0] = 'X';
+
+        // then
+        assertEquals("{\"version\":1}", this.client.getObjectDataAsString("my-bucket", "config.json"));
+    }
+}
@@ -1,12 +1,17 @@
 package com.github.kulminaator.s3;
 
+import com.github.kulminaator.s3.auth.SimpleCredentialsProvider;
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+import com.github.kulminaator.s3.exception.S3AccessException;
 import com.github.kulminaator.s3.http.HttpClient;
 import com.github.kulminaator.s3.http.HttpRequest;
 import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.options.ListObjectsOptions;
 import com.github.kulminaator.s3.options.PutObjectOptions;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,10 +19,13 @@ import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -57,7 +65,8 @@ public class PicoClientTest {
 
         // given
         Client client = this.buildClient(connectTimeout, readTimeout);
-        when(this.httpClient.makeRequest(any())).thenReturn(this.buildResponseOf("streamed object data here"));
+        when(this.httpClient.makeStreamingRequest(any())).thenReturn(
+                this.buildStreamingResponseOf("streamed object data here"));
 
         //when
         InputStream resultStream = client.getObjectDataAsInputStream("my-bucket", "my-object-folder/my-object");
@@ -74,7 +83,8 @@ public class PicoClientTest {
 
         //then
         ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
-        verify(this.httpClient, times(1)).makeRequest(captor.capture());
+        verify(this.httpClient, times(1)).makeStreamingRequest(captor.capture());
+        verify(this.httpClient, never()).makeRequest(any());
 
         assertEquals("my-bucket.s3.elbonia-central-1.amazonaws.com", captor.getValue().getHost());
         assertEquals("https", captor.getValue().getProtocol());
@@ -146,6 +156,30 @@ public class PicoClientTest {
         assertArrayEquals("test-data".getBytes(), captor.getValue().getBody());
     }
 
+    @Test
+    public void can_upload_streamed_files() throws Exception {
+        // given
+        Client client = this.buildClient();
+        when(this.httpClient.makeRequest(any())).thenReturn(
+                this.buildResponseOf("ok"));
+        InputStream data = new ByteArrayInputStream("test-data".getBytes(StandardCharsets.UTF_8));
+
+        //when
+        PutObjectOptions options = new PutObjectOptions.Builder().withContentType("text/plain").build();
+        client.putObject("my-bucket", "my-object", data, 9, options);
+
+        // then
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(this.httpClient, times(1)).makeRequest(captor.capture());
+
+        assertEquals("/my-object", captor.getValue().getPath());
+        assertEquals("PUT", captor.getValue().getMethod());
+        assertEquals("text/plain", captor.getValue().getHeaders().get("Content-Type").get(0));
+        assertEquals("9", captor.getValue().getHeaders().get("Content-Length").get(0));
+        assertSame(data, captor.getValue().getBodyStream());
+        assertEquals(9, captor.getValue().getBodyLength());
+    }
+
     @Test
     public void can_upload_sse_encrypted_files() throws Exception {
         // given
@@ -178,6 +212,88 @@ public class PicoClientTest {
         assertArrayEquals("test-data".getBytes(), captor.getValue().getBody());
     }
 
+    @Test
+    public void uploads_unsigned_payload_unless_told_otherwise() throws Exception {
+        // given
+        final SimpleCredentialsProvider credentials = new SimpleCredentialsProvider();
+        credentials.setAccessKeyId("key-id");
+        credentials.setSecretAccessKey("secret");
+        this.httpClient = mock(HttpClient.class);
+        final Client client = new PicoClient.Builder()
+                .withHttps()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(this.httpClient)
+                .withCredentialsProvider(credentials)
+                .withUnsignedPayload()
+                .build();
+        when(this.httpClient.makeRequest(any())).thenReturn(this.buildResponseOf("ok"));
+
+        //when
+        client.putObject("my-bucket", "my-object", "test-data".getBytes(StandardCharsets.UTF_8), "text/plain");
+        client.putObject("my-bucket", "my-object", "test-data".getBytes(StandardCharsets.UTF_8),
+                new PutObjectOptions.Builder().withUnsignedPayload(false).build());
+
+        // then
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(this.httpClient, times(2)).makeRequest(captor.capture());
+        assertEquals("UNSIGNED-PAYLOAD",
+                captor.getAllValues().get(0).getHeaders().get("x-amz-content-sha256").get(0));
+        assertEquals("a186000422feab857329c684e9fe91412b1a5db084100b37a98cfc95b62aa867",
+                captor.getAllValues().get(1).getHeaders().get("x-amz-content-sha256").get(0));
+    }
+
+    @Test
+    public void uploads_with_checksum_and_validates_downloads() throws Exception {
+        // given
+        this.httpClient = mock(HttpClient.class);
+        final Client client = new PicoClient.Builder()
+                .withHttps()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(this.httpClient)
+                .withChecksumValidation()
+                .build();
+        final HttpResponse good = this.buildResponseOf("test-data");
+        good.setHeaders(Collections.singletonMap("x-amz-checksum-crc32c", Collections.singletonList("LkpuRw==")));
+        final HttpResponse corrupted = this.buildResponseOf("test-dat4");
+        corrupted.setHeaders(good.getHeaders());
+        final HttpResponse multipart = this.buildResponseOf("test-dat4");
+        multipart.setHeaders(Collections.singletonMap("x-amz-checksum-crc32c",
+                Collections.singletonList("AAAAAA==-2")));
+        final HttpResponse corruptedStream = this.buildStreamingResponseOf("test-dat4");
+        corruptedStream.setHeaders(good.getHeaders());
+        when(this.httpClient.makeRequest(any())).thenReturn(this.buildResponseOf("ok"), good, corrupted, multipart);
+        when(this.httpClient.makeStreamingRequest(any())).thenReturn(corruptedStream);
+
+        //when
+        client.putObject("my-bucket", "my-object", "test-data".getBytes(StandardCharsets.UTF_8),
+                new PutObjectOptions.Builder().withChecksumAlgorithm(ChecksumAlgorithm.CRC32C).build());
+        final String data = client.getObjectDataAsString("my-bucket", "my-object");
+
+        // then
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(this.httpClient, times(2)).makeRequest(captor.capture());
+        assertEquals("CRC32C", captor.getAllValues().get(0).getHeaders().get("x-amz-sdk-checksum-algorithm").get(0));
+        assertEquals("LkpuRw==", captor.getAllValues().get(0).getHeaders().get("x-amz-checksum-crc32c").get(0));
+        assertEquals("ENABLED", captor.getAllValues().get(1).getHeaders().get("x-amz-checksum-mode").get(0));
+        assertEquals("test-data", data);
+        try {
+            client.getObjectDataAsString("my-bucket", "my-object");
+            fail("corrupted data expected");
+        } catch (S3AccessException expected) {
+            assertEquals("CRC32C checksum mismatch, expected LkpuRw== but the data has Sp6giA==",
+                    expected.getMessage());
+        }
+        assertEquals("test-dat4", client.getObjectDataAsString("my-bucket", "my-object"));
+        final InputStream stream = client.getObjectDataAsInputStream("my-bucket", "my-object");
+        assertEquals(9, stream.read(new byte[20]));
+        try {
+            stream.read();
+            fail("corrupted stream expected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().startsWith("CRC32C checksum mismatch"));
+        }
+    }
+
     @Test
     public void can_upload_sse_kms_encrypted_files() throws Exception {
         // given
@@ -263,6 +379,54 @@ public class PicoClientTest {
 
     }
 
+    @Test
+    public void streams_listing_lazily_and_stops_early() throws IOException, URISyntaxException {
+        // given
+        Client client = this.buildClient();
+        doReturn(this.buildResponseOfResource("pagination_s3_response_content_truncated.xml"),
+                this.buildResponseOfResource("pagination_s3_response_content_final.xml")).when(this.httpClient).makeRequest(any());
+        ListObjectsOptions options = new ListObjectsOptions.Builder()
+                .withPrefix("my-object-folder/")
+                .withDelimiter("/")
+                .withMaxKeys(2)
+                .withStartAfter("my-object-folder/a")
+                .build();
+
+        //when
+        List<S3Object> firstTwo = client.listObjectsStream("my-bucket", options).limit(2).collect(Collectors.toList());
+
+        //then
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(this.httpClient, times(1)).makeRequest(captor.capture());
+        assertEquals("delimiter=%2F&list-type=2&max-keys=2&prefix=my-object-folder%2F&start-after=my-object-folder%2Fa",
+                captor.getValue().getParams());
+        assertEquals(2, firstTwo.size());
+    }
+
+    @Test
+    public void iterates_listing_pages_on_demand() throws IOException, URISyntaxException {
+        // given
+        Client client = this.buildClient();
+        doReturn(this.buildResponseOfResource("pagination_s3_response_content_truncated.xml"),
+                this.buildResponseOfResource("pagination_s3_response_content_final.xml")).when(this.httpClient).makeRequest(any());
+        ListObjectsOptions options = new ListObjectsOptions.Builder().withStartAfter("b").build();
+
+        //when
+        Iterator<S3Object> iterator = client.listObjectsIterator("my-bucket", options);
+        iterator.next();
+        iterator.next();
+        verify(this.httpClient, times(1)).makeRequest(any());
+        iterator.next();
+
+        //then
+        assertFalse(iterator.hasNext());
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(this.httpClient, times(2)).makeRequest(captor.capture());
+        assertEquals("list-type=2&start-after=b", captor.getAllValues().get(0).getParams());
+        assertEquals("continuation-token=14A3Bj7%2F8L49hvCZhqecpzT5OMIu7FwVz483Lmh3zo2HCC0JjlHwTWYZIoYV4%2BAo1" +
+                "&list-type=2", captor.getAllValues().get(1).getParams());
+    }
+
     @Test
     public void can_fetch_object_information() throws Exception {
         // given
@@ -299,6 +463,39 @@ public class PicoClientTest {
 
     }
 
+    @Test
+    public void presigns_urls_without_requests() throws IOException {
+        // given
+        final SimpleCredentialsProvider credentials = new SimpleCredentialsProvider();
+        credentials.setAccessKeyId("key-id");
+        credentials.setSecretAccessKey("secret");
+        this.httpClient = mock(HttpClient.class);
+        final Client client = new PicoClient.Builder()
+                .withHttps()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(this.httpClient)
+                .withCredentialsProvider(credentials)
+                .build();
+
+        // when
+        final String get = client.presignGet("my-bucket", "my folder/my-object", Duration.ofMinutes(15));
+        final String put = client.presignPut("my-bucket", "my folder/my-object", Duration.ofDays(7));
+
+        // then
+        assertTrue(get.startsWith("https://my-bucket.s3.elbonia-central-1.amazonaws.com/my%20folder/my-object?" +
+                "X-Amz-Algorithm=AWS4-HMAC-SHA256&X-Amz-Credential=key-id%2F"));
+        assertTrue(get.contains("&X-Amz-Expires=900&X-Amz-SignedHeaders=host&X-Amz-Signature="));
+        assertTrue(put.contains("&X-Amz-Expires=604800&"));
+        assertNotEquals(get.substring(get.indexOf("X-Amz-Signature")), put.substring(put.indexOf("X-Amz-Signature")));
+        verify(this.httpClient, never()).makeRequest(any());
+        try {
+            this.buildClient().presignGet("my-bucket", "my-object", Duration.ofMinutes(1));
+            fail("anonymous clients can not presign");
+        } catch (IllegalStateException expected) {
+            assertEquals("Presigning needs a credentials provider", expected.getMessage());
+        }
+    }
+
     private Client buildClient() {
         this.httpClient = mock(HttpClient.class);
 
@@ -330,6 +527,12 @@ public class PicoClientTest {
         return response;
     }
 
+    private HttpResponse buildStreamingResponseOf(String objectData) {
+        HttpResponse response = new HttpResponse();
+        response.setBodyStream(new ByteArrayInputStream(objectData.getBytes()));
+        return response;
+    }
+
     private HttpResponse buildResponseOfResource(String resourceName) throws IOException, URISyntaxException {
         final Path path = Path.of(this.getClass().getClassLoader().getResource(resourceName).toURI());
         final String data = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
@@ -0,0 +1,261 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.cache.MetadataCache;
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.options.RangedDownloadOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RangedDownloadTest {
+
+    private StubS3Server server;
+    private Client client;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.client = this.server.clientBuilder().build();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void downloads_ranges_into_file() throws IOException {
+        // given
+        final byte[] data = this.randomData(10 * 1000 + 7);
+        this.server.putObject("big/object.bin", data);
+        final Path file = Files.createTempFile("pico-s3-ranged", ".bin");
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder()
+                .withRangeSize(1000)
+                .withMaxConcurrency(3)
+                .build();
+
+        try {
+            // when
+            this.client.getObjectToFile("my-bucket", "big/object.bin", file, options);
+
+            // then
+            assertArrayEquals(data, Files.readAllBytes(file));
+            final List<String> requests = this.server.getRequestLog();
+            assertEquals("HEAD /big/object.bin", requests.get(0));
+            assertEquals(12, requests.size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void reassembles_ranges_into_ordered_stream() throws IOException {
+        // given
+        final byte[] data = this.randomData(25 * 1024 + 3);
+        this.server.putObject("streamed.bin", data);
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder()
+                .withRangeSize(1024)
+                .withMaxConcurrency(4)
+                .build();
+
+        // when
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream stream = this.client.getObjectDataAsInputStream("my-bucket", "streamed.bin", options)) {
+            final byte[] buffer = new byte[700];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                result.write(buffer, 0, read);
+            }
+        }
+
+        // then
+        assertArrayEquals(data, result.toByteArray());
+    }
+
+    @Test
+    public void fetches_single_range() throws IOException {
+        // given
+        final byte[] data = this.randomData(100);
+        this.server.putObject("small.bin", data);
+
+        // when
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream stream = this.client.getObjectRangeAsInputStream("my-bucket", "small.bin", 10, 19)) {
+            int read;
+            while ((read = stream.read()) >= 0) {
+                result.write(read);
+            }
+        }
+
+        // then
+        final byte[] expected = new byte[10];
+        System.arraycopy(data, 10, expected, 0, 10);
+        assertArrayEquals(expected, result.toByteArray());
+    }
+
+    @Test
+    public void refuses_whole_object_sent_for_range() throws IOException {
+        // given
+        final byte[] data = this.randomData(3000);
+        this.server.putObject("ignored.bin", data);
+        this.server.setIgnoreRanges(true);
+        final Path file = Files.createTempFile("pico-s3-ranged", ".bin");
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder().withRangeSize(1000).build();
+
+        try {
+            // when
+            this.client.getObjectRangeAsInputStream("my-bucket", "ignored.bin", 10, 19);
+            fail("whole object is not the range");
+        } catch (S3AccessException expected) {
+            // then
+            assertEquals("Expected 206 with Content-Range for bytes 10-19 of ignored.bin, got 200",
+                    expected.getMessage());
+        }
+        try {
+            this.client.getObjectToFile("my-bucket", "ignored.bin", file, options);
+            fail("whole object is not the range");
+        } catch (S3AccessException expected) {
+            assertTrue(expected.getMessage().startsWith("Expected 206 with Content-Range"));
+            assertTrue(Files.size(file) < data.length);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void does_not_retry_permanent_range_failures() throws IOException {
+        // given
+        this.server.putObject("changed.bin", this.randomData(500));
+        this.server.failRangeRequests(1, 412);
+        final Path file = Files.createTempFile("pico-s3-ranged", ".bin");
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder().withMaxRangeAttempts(5).build();
+
+        try {
+            // when
+            this.client.getObjectToFile("my-bucket", "changed.bin", file, options);
+            fail("precondition failure expected");
+        } catch (S3ServiceException expected) {
+            // then
+            assertEquals("PreconditionFailed", expected.getErrorCode());
+            assertEquals(2, this.server.getRequestLog().size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void leaves_retrying_failed_responses_to_the_client() throws IOException {
+        // given
+        this.server.putObject("failing.bin", this.randomData(500));
+        this.server.failRangeRequests(100, 500);
+        final Path file = Files.createTempFile("pico-s3-ranged", ".bin");
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder().withMaxRangeAttempts(5).build();
+
+        try {
+            // when
+            this.client.getObjectToFile("my-bucket", "failing.bin", file, options);
+            fail("internal error expected");
+        } catch (S3ServiceException expected) {
+            // then
+            assertEquals("InternalError", expected.getErrorCode());
+            // the HEAD and the default 3 attempts of the client, not 5 times 3
+            assertEquals(4, this.server.getRequestLog().size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void fetches_broken_off_ranges_again() throws IOException {
+        // given
+        final byte[] data = this.randomData(3000);
+        this.server.putObject("flaky.bin", data);
+        this.server.breakNextRanges(2);
+        final Path file = Files.createTempFile("pico-s3-ranged", ".bin");
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder()
+                .withRangeSize(1000)
+                .withMaxConcurrency(1)
+                .withMaxRangeAttempts(3)
+                .build();
+
+        try {
+            // when
+            this.client.getObjectToFile("my-bucket", "flaky.bin", file, options);
+
+            // then
+            assertArrayEquals(data, Files.readAllBytes(file));
+            assertEquals(6, this.server.getRequestLog().size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void finishes_ranges_in_flight_before_failing() throws IOException, InterruptedException {
+        // given
+        this.server.putObject("changing.bin", this.randomData(20 * 1000));
+        this.server.failRangeRequests(1, 412);
+        final Path file = Files.createTempFile("pico-s3-ranged", ".bin");
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder()
+                .withRangeSize(1000)
+                .withMaxConcurrency(4)
+                .build();
+
+        try {
+            // when
+            this.client.getObjectToFile("my-bucket", "changing.bin", file, options);
+            fail("precondition failure expected");
+        } catch (S3ServiceException expected) {
+            // then
+            assertEquals("PreconditionFailed", expected.getErrorCode());
+            final int requests = this.server.getRequestLog().size();
+            assertTrue(requests < 21);
+            Thread.sleep(300);
+            assertEquals(requests, this.server.getRequestLog().size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void takes_size_and_etag_past_the_metadata_cache() throws IOException {
+        // given
+        final Client cachingClient = this.server.clientBuilder()
+                .withMetadataCache(new MetadataCache.Builder().build())
+                .build();
+        this.server.putObject("growing.bin", this.randomData(1000));
+        assertEquals(1000L, (long) cachingClient.getObject("my-bucket", "growing.bin").getSize());
+        final byte[] data = this.randomData(2500);
+        this.server.putObject("growing.bin", data);
+        final RangedDownloadOptions options = new RangedDownloadOptions.Builder().withRangeSize(1000).build();
+
+        // when
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream stream = cachingClient.getObjectDataAsInputStream("my-bucket", "growing.bin", options)) {
+            int read;
+            while ((read = stream.read()) >= 0) {
+                result.write(read);
+            }
+        }
+
+        // then
+        assertArrayEquals(data, result.toByteArray());
+    }
+
+    private byte[] randomData(int size) {
+        final byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.auth.CredentialsProvider;
+import com.github.kulminaator.s3.auth.SimpleCredentialsProvider;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.http.AsyncHttpClient;
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.http.HttpStatusException;
+import com.github.kulminaator.s3.retry.RetryPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RetryTest {
+
+    private static final RetryPolicy FAST_RETRIES = new RetryPolicy.Builder().withBackoff(1, 10).build();
+
+    private StubS3Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = new StubS3Server();
+        this.server.putObject("config.json", "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    @Test
+    public void retries_slow_down_until_it_succeeds() {
+        // given
+        final Client client = this.buildClient(FAST_RETRIES);
+        this.server.failNextRequests(2, 503);
+
+        // when
+        final String data = client.getObjectDataAsString("my-bucket", "config.json");
+
+        // then
+        assertEquals("{}", data);
+        assertEquals(3, this.server.getRequestLog().size());
+    }
+
+    @Test
+    public void gives_up_after_max_attempts() {
+        // given
+        final Client client = this.buildClient(FAST_RETRIES);
+        this.server.failNextRequests(5, 500);
+
+        // when
+        S3ServiceException thrown = null;
+        try {
+            client.getObjectDataAsString("my-bucket", "config.json");
+        } catch (S3ServiceException e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+        assertEquals(500, thrown.getHttpCode());
+        assertEquals("InternalError", thrown.getErrorCode());
+        assertTrue(thrown.isRetryable());
+        assertEquals(3, this.server.getRequestLog().size());
+    }
+
+    @Test
+    public void does_not_retry_client_errors() {
+        // given
+        final Client client = this.buildClient(FAST_RETRIES);
+
+        // when
+        try {
+            client.getObjectDataAsString("my-bucket", "missing.json");
+            fail("404 should fail");
+        } catch (S3ServiceException e) {
+            assertEquals(404, e.getHttpCode());
+            assertFalse(e.isRetryable());
+        }
+
+        // then
+        assertEquals(1, this.server.getRequestLog().size());
+    }
+
+    @Test
+    public void signs_every_attempt_again() throws IOException {
+        // given
+        final HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.makeRequest(any()))
+                .thenThrow(new HttpStatusException(503, Collections.emptyMap(), new byte[0]))
+                .thenReturn(this.buildResponseOf("{}"));
+        final Client client = new PicoClient.Builder()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(httpClient)
+                .withCredentialsProvider(this.credentials())
+                .withRetryPolicy(FAST_RETRIES)
+                .build();
+
+        // when
+        client.getObjectDataAsString("my-bucket", "config.json");
+
+        // then
+        final ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).makeRequest(captor.capture());
+        final List<String> authorization = captor.getValue().getHeaders().get("Authorization");
+        assertEquals(1, authorization.size());
+        assertFalse(authorization.get(0).contains("authorization"));
+        assertTrue(authorization.get(0).startsWith("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/"));
+    }
+
+    @Test
+    public void retries_asynchronous_requests() {
+        // given
+        final HttpClient httpClient = mock(HttpClient.class, withSettings().extraInterfaces(AsyncHttpClient.class));
+        final CompletableFuture<HttpResponse> slowDown = new CompletableFuture<>();
+        slowDown.completeExceptionally(new HttpStatusException(503, Collections.emptyMap(), new byte[0]));
+        when(((AsyncHttpClient) httpClient).makeRequestAsync(any()))
+                .thenReturn(slowDown)
+                .thenReturn(CompletableFuture.completedFuture(this.buildResponseOf("{}")));
+        final AsyncClient client = new PicoClient.Builder()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(httpClient)
+                .withRetryPolicy(FAST_RETRIES)
+                .build();
+
+        // when
+        final byte[] data = client.getObjectDataAsync("my-bucket", "config.json").join();
+
+        // then
+        assertEquals("{}", new String(data, StandardCharsets.UTF_8));
+        verify((AsyncHttpClient) httpClient, times(2)).makeRequestAsync(any());
+    }
+
+    @Test
+    public void retries_multipart_completion_that_failed_after_200() throws IOException {
+        // given
+        final HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.makeRequest(any()))
+                .thenReturn(this.buildResponseOf("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<Error><Code>InternalError</Code><Message>We encountered an internal error.</Message></Error>"))
+                .thenReturn(this.buildResponseOf("<CompleteMultipartUploadResult><Key>big.bin</Key>" +
+                        "</CompleteMultipartUploadResult>"));
+        final PicoClient client = new PicoClient.Builder()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(httpClient)
+                .withRetryPolicy(FAST_RETRIES)
+                .build();
+
+        // when
+        client.completeMultipartUpload("my-bucket", "big.bin", "upload-1",
+                Collections.singletonList(new UploadedPart(1, "\"etag-1\"")));
+
+        // then
+        verify(httpClient, times(2)).makeRequest(any());
+    }
+
+    private Client buildClient(RetryPolicy retryPolicy) {
+        return this.server.clientBuilder()
+                .withRetryPolicy(retryPolicy)
+                .build();
+    }
+
+    private HttpResponse buildResponseOf(String body) {
+        final HttpResponse response = new HttpResponse();
+        response.setHttpCode(200);
+        response.setHeaders(new HashMap<>());
+        response.setBody(body.getBytes(StandardCharsets.UTF_8));
+        return response;
+    }
+
+    private CredentialsProvider credentials() {
+        final SimpleCredentialsProvider credentials = new SimpleCredentialsProvider();
+        credentials.setAccessKeyId("AKIDEXAMPLE");
+        credentials.setSecretAccessKey("wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY");
+        return credentials;
+    }
+}
@@ -0,0 +1,496 @@
+package com.github.kulminaator.s3;
+
+import com.github.kulminaator.s3.checksum.ChecksumAlgorithm;
+import com.github.kulminaator.s3.http.Encoding;
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.http.PicoHttpClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tiny in-memory imitation of the parts of S3 that the tests need, served over real http on localhost.
+ * The bucket is ignored, keys are the request paths.
+ */
+public class StubS3Server {
+
+    private static final Pattern PART_PATTERN =
+            Pattern.compile("<PartNumber>(\\d+)</PartNumber><ETag>&quot;([^&]*)&quot;</ETag>");
+    private static final Pattern KEY_PATTERN = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> partFailures = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> partFailureCodes = new ConcurrentHashMap<>();
+    private final Map<String, ChecksumAlgorithm> uploadChecksums = new ConcurrentHashMap<>();
+    private final Map<Integer, String> partChecksums = new ConcurrentHashMap<>();
+    private final Set<String> deleteDenied = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestFailures = new AtomicInteger();
+    private volatile int requestFailureCode;
+    private final List<String> requestLog = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger uploadCounter = new AtomicInteger();
+    private volatile long listingDelayMillis;
+    private final AtomicInteger brokenListings = new AtomicInteger();
+    private volatile boolean ignoreRanges;
+    private final AtomicInteger rangeFailures = new AtomicInteger();
+    private volatile int rangeFailureCode;
+    private final AtomicInteger brokenRanges = new AtomicInteger();
+
+    public StubS3Server() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * @return A http client that sends all requests to this server, whatever host they were built for.
+     */
+    public HttpClient httpClient() {
+        final HttpClient delegate = new PicoHttpClient();
+        final String address = "127.0.0.1:" + this.server.getAddress().getPort();
+        return new HttpClient() {
+            @Override
+            public HttpResponse makeRequest(HttpRequest request) throws IOException {
+                request.setHost(address);
+                return delegate.makeRequest(request);
+            }
+
+            @Override
+            public HttpResponse makeStreamingRequest(HttpRequest request) throws IOException {
+                request.setHost(address);
+                return delegate.makeStreamingRequest(request);
+            }
+        };
+    }
+
+    /**
+     * @return A client builder set up for this server, the tests add their own options.
+     */
+    public PicoClient.Builder clientBuilder() {
+        return new PicoClient.Builder()
+                .withHttp()
+                .withRegion("elbonia-central-1")
+                .withHttpClient(this.httpClient());
+    }
+
+    public void putObject(String key, byte[] data) {
+        this.objects.put(key, data);
+    }
+
+    public byte[] getObject(String key) {
+        return this.objects.get(key);
+    }
+
+    public Map<String, Map<Integer, byte[]>> getOpenUploads() {
+        return this.uploads;
+    }
+
+    /**
+     * @return The checksums of the uploaded parts by part number, uploads with a checksum algorithm only.
+     */
+    public Map<Integer, String> getPartChecksums() {
+        return this.partChecksums;
+    }
+
+    /**
+     * Makes the next requests, whatever they are, fail with the given http code (503 answers with SlowDown).
+     */
+    public void failNextRequests(int times, int httpCode) {
+        this.requestFailureCode = httpCode;
+        this.requestFailures.set(times);
+    }
+
+    /**
+     * Makes DeleteObjects refuse to delete the key with AccessDenied.
+     */
+    public void denyDelete(String key) {
+        this.deleteDenied.add(key);
+    }
+
+    /**
+     * Makes the upload of the given part number fail with http 500 the given number of times.
+     */
+    public void failPart(int partNumber, int times) {
+        this.failPart(partNumber, times, 500);
+    }
+
+    /**
+     * Makes the upload of the given part number fail with the given http code (403 answers with AccessDenied).
+     */
+    public void failPart(int partNumber, int times, int httpCode) {
+        this.partFailureCodes.put(partNumber, httpCode);
+        this.partFailures.put(partNumber, new AtomicInteger(times));
+    }
+
+    /**
+     * Makes GET answer 200 with the whole object whatever the Range header asks for, like some proxies do.
+     */
+    public void setIgnoreRanges(boolean ignoreRanges) {
+        this.ignoreRanges = ignoreRanges;
+    }
+
+    /**
+     * Makes the next ranged GETs fail with the given http code (412 answers with PreconditionFailed).
+     */
+    public void failRangeRequests(int times, int httpCode) {
+        this.rangeFailureCode = httpCode;
+        this.rangeFailures.set(times);
+    }
+
+    /**
+     * Makes the next ranged GETs break off after half of the body.
+     */
+    public void breakNextRanges(int times) {
+        this.brokenRanges.set(times);
+    }
+
+    /**
+     * Makes every listing response wait the given time before it is sent, like a far away S3 would.
+     */
+    public void setListingDelayMillis(long listingDelayMillis) {
+        this.listingDelayMillis = listingDelayMillis;
+    }
+
+    /**
+     * Makes the next listings break off after the first object, the NextContinuationToken has been sent by then.
+     */
+    public void breakNextListings(int times) {
+        this.brokenListings.set(times);
+    }
+
+    /**
+     * @return Requests received so far as "METHOD /path?query".
+     */
+    public List<String> getRequestLog() {
+        synchronized (this.requestLog) {
+            return new ArrayList<>(this.requestLog);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final String key = exchange.getRequestURI().getRawPath().substring(1);
+            final String rawQuery = exchange.getRequestURI().getRawQuery();
+            final Map<String, String> query = parseQuery(rawQuery);
+            final byte[] body = readAll(exchange.getRequestBody());
+            this.requestLog.add(method + " /" + key + (rawQuery == null ? "" : "?" + rawQuery));
+            exchange.getResponseHeaders().add("x-amz-request-id", "request-" + this.requestLog.size());
+            if (this.requestFailures.getAndDecrement() > 0) {
+                respond(exchange, this.requestFailureCode, this.requestFailureCode == 503
+                        ? "<Error><Code>SlowDown</Code><Message>Please reduce your request rate.</Message></Error>"
+                        : "<Error><Code>InternalError</Code></Error>");
+                return;
+            }
+
+            if ("POST".equals(method) && query.containsKey("uploads")) {
+                final String uploadId = "upload-" + this.uploadCounter.incrementAndGet();
+                this.uploads.put(uploadId, new ConcurrentHashMap<>());
+                final String algorithm = exchange.getRequestHeaders().getFirst("x-amz-checksum-algorithm");
+                if (algorithm != null) {
+                    this.uploadChecksums.put(uploadId, ChecksumAlgorithm.valueOf(algorithm));
+                }
+                respond(exchange, 200, "<InitiateMultipartUploadResult><Key>" + key + "</Key><UploadId>" +
+                        uploadId + "</UploadId></InitiateMultipartUploadResult>");
+            } else if ("PUT".equals(method) && query.containsKey("partNumber")) {
+                final int partNumber = Integer.parseInt(query.get("partNumber"));
+                final AtomicInteger failures = this.partFailures.get(partNumber);
+                if (failures != null && failures.getAndDecrement() > 0) {
+                    final int code = this.partFailureCodes.get(partNumber);
+                    respond(exchange, code, code == 403
+                            ? "<Error><Code>AccessDenied</Code><Message>Access Denied</Message></Error>"
+                            : "<Error><Code>InternalError</Code></Error>");
+                    return;
+                }
+                final ChecksumAlgorithm algorithm = this.uploadChecksums.get(query.get("uploadId"));
+                if (algorithm != null) {
+                    // like s3, a part of an upload with a checksum algorithm has to come with a matching checksum
+                    final String checksum = exchange.getRequestHeaders().getFirst(algorithm.getHeaderName());
+                    if (checksum == null || !checksum.equals(algorithm.checksum(body))) {
+                        respond(exchange, 400, "<Error><Code>BadDigest</Code></Error>");
+                        return;
+                    }
+                    this.partChecksums.put(partNumber, checksum);
+                }
+                this.uploads.get(query.get("uploadId")).put(partNumber, body);
+                exchange.getResponseHeaders().add("ETag", "\"etag-" + partNumber + "\"");
+                respond(exchange, 200, "");
+            } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+                final ChecksumAlgorithm algorithm = this.uploadChecksums.get(query.get("uploadId"));
+                if (algorithm != null) {
+                    // the part checksums have to be repeated, e.g. <ChecksumCRC32C>
+                    final String completion = new String(body, StandardCharsets.UTF_8);
+                    final String element = "Checksum" + algorithm.name() + ">";
+                    for (final String checksum : this.partChecksums.values()) {
+                        if (!completion.contains("<" + element + checksum + "</" + element)) {
+                            respond(exchange, 400, "<Error><Code>InvalidPart</Code></Error>");
+                            return;
+                        }
+                    }
+                }
+                final Map<Integer, byte[]> parts = this.uploads.remove(query.get("uploadId"));
+                final ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+                final Matcher matcher = PART_PATTERN.matcher(new String(body, StandardCharsets.UTF_8));
+                final Map<Integer, byte[]> ordered = new TreeMap<>();
+                while (matcher.find()) {
+                    ordered.put(Integer.parseInt(matcher.group(1)), parts.get(Integer.parseInt(matcher.group(1))));
+                }
+                for (final byte[] part : ordered.values()) {
+                    assembled.write(part);
+                }
+                this.objects.put(key, assembled.toByteArray());
+                respond(exchange, 200, "<CompleteMultipartUploadResult><Key>" + key +
+                        "</Key></CompleteMultipartUploadResult>");
+            } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+                this.uploads.remove(query.get("uploadId"));
+                respond(exchange, 204, null);
+            } else if ("DELETE".equals(method)) {
+                this.objects.remove(key);
+                respond(exchange, 204, null);
+            } else if ("POST".equals(method) && key.isEmpty() && query.containsKey("delete")) {
+                final String md5 = Base64.getEncoder().encodeToString(md5(body));
+                if (!md5.equals(exchange.getRequestHeaders().getFirst("Content-MD5"))) {
+                    respond(exchange, 400, "<Error><Code>InvalidDigest</Code></Error>");
+                    return;
+                }
+                respond(exchange, 200, this.deleteObjects(new String(body, StandardCharsets.UTF_8)));
+            } else if ("PUT".equals(method)) {
+                this.objects.put(key, body);
+                respond(exchange, 200, "");
+            } else if ("GET".equals(method) && key.isEmpty() && query.containsKey("list-type")) {
+                final String listing = this.listing(query);
+                if (this.brokenListings.getAndDecrement() > 0) {
+                    final byte[] bytes = listing.getBytes(StandardCharsets.UTF_8);
+                    final int cut = listing.indexOf("</Contents>") + "</Contents>".length();
+                    // promises the whole listing but sends only its start, the client sees the connection drop
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    exchange.getResponseBody().write(bytes, 0, cut);
+                    exchange.getResponseBody().flush();
+                    return;
+                }
+                respond(exchange, 200, listing);
+            } else if ("GET".equals(method) || "HEAD".equals(method)) {
+                final byte[] data = this.objects.get(key);
+                if (data == null) {
+                    respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                    return;
+                }
+                final String eTag = "\"" + Encoding.hex(md5(data)) + "\"";
+                exchange.getResponseHeaders().add("ETag", eTag);
+                if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                if ("HEAD".equals(method)) {
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(data.length));
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                final String range = exchange.getRequestHeaders().getFirst("Range");
+                if (range != null && this.rangeFailures.getAndDecrement() > 0) {
+                    respond(exchange, this.rangeFailureCode, this.rangeFailureCode == 412
+                            ? "<Error><Code>PreconditionFailed</Code></Error>"
+                            : "<Error><Code>InternalError</Code></Error>");
+                    return;
+                }
+                final String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+                if (ifMatch != null && !ifMatch.equals(eTag)) {
+                    respond(exchange, 412, "<Error><Code>PreconditionFailed</Code></Error>");
+                    return;
+                }
+                if (range != null && !this.ignoreRanges) {
+                    final String[] bounds = range.substring("bytes=".length()).split("-");
+                    final int first = Integer.parseInt(bounds[0]);
+                    final int last = Math.min(Integer.parseInt(bounds[1]), data.length - 1);
+                    exchange.getResponseHeaders().add("Content-Range",
+                            "bytes " + first + "-" + last + "/" + data.length);
+                    exchange.sendResponseHeaders(206, last - first + 1);
+                    final boolean broken = this.brokenRanges.getAndDecrement() > 0;
+                    exchange.getResponseBody().write(data, first, broken ? (last - first + 1) / 2 : last - first + 1);
+                    exchange.getResponseBody().flush();
+                    return;
+                }
+                exchange.sendResponseHeaders(200, data.length == 0 ? -1 : data.length);
+                exchange.getResponseBody().write(data);
+            } else {
+                respond(exchange, 405, "");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * DeleteObjects in quiet mode, only the refused keys are reported.
+     */
+    private String deleteObjects(String request) {
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<DeleteResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        final Matcher matcher = KEY_PATTERN.matcher(request);
+        while (matcher.find()) {
+            final String key = matcher.group(1).replace("&#13;", "\r").replace("&lt;", "<").replace("&gt;", ">")
+                    .replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+            if (this.deleteDenied.contains(key)) {
+                xml.append("<Error><Key>").append(matcher.group(1)).append("</Key><Code>AccessDenied</Code>")
+                        .append("<Message>Access Denied</Message></Error>");
+            } else {
+                this.objects.remove(key);
+            }
+        }
+        return xml.append("</DeleteResult>").toString();
+    }
+
+    private static byte[] md5(byte[] data) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ListObjectsV2 over the stored keys, the continuation token is the base64 of the last listed key or prefix.
+     */
+    private String listing(Map<String, String> query) {
+        sleep(this.listingDelayMillis);
+        final String prefix = query.getOrDefault("prefix", "");
+        final String delimiter = query.get("delimiter");
+        final int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String after = query.getOrDefault("start-after", "");
+        if (query.containsKey("continuation-token")) {
+            after = new String(Base64.getDecoder().decode(query.get("continuation-token")), StandardCharsets.UTF_8);
+        }
+
+        final StringBuilder contents = new StringBuilder();
+        final TreeSet<String> commonPrefixes = new TreeSet<>();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (final String key : new TreeSet<>(this.objects.keySet())) {
+            if (!key.startsWith(prefix) || key.compareTo(after) <= 0) {
+                continue;
+            }
+            final int delimiterAt = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+            final String entry = delimiterAt < 0 ? key : key.substring(0, delimiterAt + delimiter.length());
+            if (entry.equals(last) || (delimiterAt >= 0 && entry.equals(after))) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (delimiterAt < 0) {
+                contents.append("<Contents><Key>").append(key).append("</Key>")
+                        .append("<LastModified>2018-09-23T10:34:17.000Z</LastModified>")
+                        .append("<ETag>&quot;etag-").append(key).append("&quot;</ETag>")
+                        .append("<Size>").append(this.objects.get(key).length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+            } else {
+                commonPrefixes.add(entry);
+            }
+            last = entry;
+            count++;
+        }
+
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>bucket</Name><Prefix>").append(prefix).append("</Prefix>");
+        if (truncated) {
+            xml.append("<NextContinuationToken>")
+                    .append(Base64.getEncoder().encodeToString(last.getBytes(StandardCharsets.UTF_8)))
+                    .append("</NextContinuationToken>");
+        }
+        xml.append("<KeyCount>").append(count).append("</KeyCount>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>")
+                .append(contents);
+        for (final String commonPrefix : commonPrefixes) {
+            xml.append("<CommonPrefixes><Prefix>").append(commonPrefix).append("</Prefix></CommonPrefixes>");
+        }
+        return xml.append("</ListBucketResult>").toString();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        // like s3, HEAD gets no error document
+        if (body == null || body.isEmpty() || "HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(code, -1);
+            return;
+        }
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        final OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        final Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (final String pair : rawQuery.split("&")) {
+            final int split = pair.indexOf('=');
+            if (split < 0) {
+                query.put(URLDecoder.decode(pair, "UTF-8"), "");
+            } else {
+                query.put(URLDecoder.decode(pair.substring(0, split), "UTF-8"),
+                        URLDecoder.decode(pair.substring(split + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.kulminaator.s3.auth;
+
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CredentialsProviderChainTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void remembers_the_first_provider_with_credentials() {
+        // given
+        final AtomicInteger probes = new AtomicInteger();
+        final CredentialsProvider missing = new SimpleCredentialsProvider() {
+            @Override
+            public Credentials getCredentials() {
+                probes.incrementAndGet();
+                throw new IllegalStateException("not here");
+            }
+        };
+        final SimpleCredentialsProvider found = new SimpleCredentialsProvider();
+        found.setAccessKeyId("key-1");
+        found.setSecretAccessKey("secret-1");
+        final CredentialsProviderChain chain = new CredentialsProviderChain(missing, new SimpleCredentialsProvider(),
+                found, new FailingProvider());
+
+        // when
+        final Credentials first = chain.getCredentials();
+        final Credentials second = chain.getCredentials();
+
+        // then
+        assertEquals("key-1", first.getAccessKeyId());
+        assertEquals("secret-1", second.getSecretAccessKey());
+        assertSame(found, chain.getChosenProvider());
+        assertEquals(1, probes.get());
+    }
+
+    @Test
+    public void tells_what_every_provider_said() {
+        // given
+        final CredentialsProviderChain chain = new CredentialsProviderChain(new SimpleCredentialsProvider(),
+                new FailingProvider());
+
+        try {
+            // when
+            chain.getCredentials();
+            fail("no credentials expected");
+        } catch (IllegalStateException expected) {
+            // then
+            assertEquals("No credentials found (SimpleCredentialsProvider: no keys, FailingProvider: nope)",
+                    expected.getMessage());
+            assertNull(chain.getChosenProvider());
+        }
+    }
+
+    @Test
+    public void reads_profile_from_credentials_file() throws IOException {
+        // given
+        final File file = this.folder.newFile("credentials");
+        Files.write(file.toPath(), ("[default]\n" +
+                "aws_access_key_id = default-key\n" +
+                "aws_secret_access_key = default-secret\n" +
+                "\n" +
+                "# comment\n" +
+                "[work]\n" +
+                "aws_access_key_id=work-key\n" +
+                "AWS_SECRET_ACCESS_KEY = work/secret=\n" +
+                "aws_session_token = work-token\n").getBytes(StandardCharsets.UTF_8));
+        final Map<String, String> environment = new HashMap<>();
+        environment.put(ProfileCredentialsProvider.FILE_VARIABLE, file.getPath());
+
+        // when
+        final Credentials byDefault = new ProfileCredentialsProvider(environment::get).getCredentials();
+        environment.put(ProfileCredentialsProvider.PROFILE_VARIABLE, "work");
+        final Credentials work = new ProfileCredentialsProvider(environment::get).getCredentials();
+
+        // then
+        assertEquals("default-key", byDefault.getAccessKeyId());
+        assertNull(byDefault.getSessionToken());
+        assertEquals("work-key", work.getAccessKeyId());
+        assertEquals("work/secret=", work.getSecretAccessKey());
+        assertEquals("work-token", work.getSessionToken());
+        try {
+            new ProfileCredentialsProvider(file.toPath(), "other").getCredentials();
+            fail("no such profile");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().startsWith("No keys of profile other"));
+        }
+    }
+
+    @Test
+    public void loads_credentials_from_container_endpoint() throws IOException {
+        // given
+        final FakeMetadataServer server = new FakeMetadataServer();
+        server.setCredentials("container-key", Instant.parse("2037-05-17T15:09:54Z"));
+        final Map<String, String> environment = new HashMap<>();
+        environment.put(ContainerCredentialsProvider.RELATIVE_URI_VARIABLE, "/v2/credentials/task-id");
+        final CredentialsProviderChain chain = new CredentialsProviderChain(
+                new ContainerCredentialsProvider(server.httpClient(), name -> null),
+                new ContainerCredentialsProvider(server.httpClient(), environment::get));
+
+        try {
+            // when
+            final Credentials credentials = chain.getCredentials();
+
+            // then
+            assertEquals("container-key", credentials.getAccessKeyId());
+            assertEquals("token-of-container-key", credentials.getSessionToken());
+            assertEquals("GET /v2/credentials/task-id", server.getRequestLog().get(0));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void sends_container_token_only_to_trusted_endpoints() throws IOException {
+        // given
+        final HttpClient endpoint = mock(HttpClient.class);
+        final HttpResponse response = new HttpResponse();
+        response.setBody(("{\"AccessKeyId\":\"full-key\",\"SecretAccessKey\":\"full-secret\"," +
+                "\"Token\":\"full-token\",\"Expiration\":\"2037-05-17T15:09:54Z\"}").getBytes(StandardCharsets.UTF_8));
+        when(endpoint.makeRequest(any())).thenReturn(response);
+        final Map<String, String> environment = new HashMap<>();
+        environment.put(ContainerCredentialsProvider.TOKEN_VARIABLE, "secret-token");
+
+        for (final String refused : new String[]{"http://attacker.example/creds", "http://169.254.169.254/creds",
+                "ftp://127.0.0.1/creds", "http://10.0.0.1/creds"}) {
+            environment.put(ContainerCredentialsProvider.FULL_URI_VARIABLE, refused);
+            try {
+                // when
+                new ContainerCredentialsProvider(endpoint, environment::get).getCredentials();
+                fail(refused + " should be refused");
+            } catch (IllegalStateException expected) {
+                // then
+                assertTrue(expected.getMessage().startsWith("AWS_CONTAINER_CREDENTIALS_FULL_URI has to be https"));
+            }
+        }
+        verify(endpoint, never()).makeRequest(any());
+
+        for (final String allowed : new String[]{"https://creds.example/v1", "http://localhost:8080/creds",
+                "http://127.0.0.1:51679/creds", "http://[::1]/creds", "http://169.254.170.23/v1/credentials",
+                "http://[fd00:ec2::23]/v1/credentials"}) {
+            environment.put(ContainerCredentialsProvider.FULL_URI_VARIABLE, allowed);
+            assertEquals("full-key", new ContainerCredentialsProvider(endpoint, environment::get).getCredentials()
+                    .getAccessKeyId());
+        }
+        final ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(endpoint, times(6)).makeRequest(captor.capture());
+        assertEquals("secret-token", captor.getValue().getHeaders().get("Authorization").get(0));
+        assertEquals("[fd00:ec2::23]", captor.getValue().getHost());
+    }
+
+    @Test
+    public void assumes_role_with_web_identity() throws IOException {
+        // given
+        final File token = this.folder.newFile("token");
+        Files.write(token.toPath(), "eyJ.web+identity/token\n".getBytes(StandardCharsets.UTF_8));
+        final Map<String, String> environment = new HashMap<>();
+        environment.put(WebIdentityCredentialsProvider.TOKEN_FILE_VARIABLE, token.getPath());
+        environment.put(WebIdentityCredentialsProvider.ROLE_ARN_VARIABLE, "arn:aws:iam::123456789012:role/app");
+        environment.put(WebIdentityCredentialsProvider.SESSION_NAME_VARIABLE, "app-session");
+        environment.put("AWS_REGION", "eu-west-1");
+        final HttpClient sts = mock(HttpClient.class);
+        final HttpResponse response = new HttpResponse();
+        response.setBody(("<AssumeRoleWithWebIdentityResponse " +
+                "xmlns=\"https://sts.amazonaws.com/doc/2011-06-15/\"><AssumeRoleWithWebIdentityResult>" +
+                "<SubjectFromWebIdentityToken>app</SubjectFromWebIdentityToken>" +
+                "<Credentials><SessionToken>sts-token</SessionToken><SecretAccessKey>sts-secret</SecretAccessKey>" +
+                "<Expiration>2037-05-17T15:09:54Z</Expiration><AccessKeyId>ASIASTS</AccessKeyId></Credentials>" +
+                "</AssumeRoleWithWebIdentityResult></AssumeRoleWithWebIdentityResponse>")
+                .getBytes(StandardCharsets.UTF_8));
+        when(sts.makeRequest(any())).thenReturn(response);
+
+        // when
+        final Credentials credentials = new WebIdentityCredentialsProvider(sts, environment::get).getCredentials();
+
+        // then
+        assertEquals("ASIASTS", credentials.getAccessKeyId());
+        assertEquals("sts-secret", credentials.getSecretAccessKey());
+        assertEquals("sts-token", credentials.getSessionToken());
+        assertEquals(Instant.parse("2037-05-17T15:09:54Z"), credentials.getExpiration());
+
+        final ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(sts).makeRequest(captor.capture());
+        final HttpRequest request = captor.getValue();
+        assertEquals("POST", request.getMethod());
+        assertEquals("https", request.getProtocol());
+        assertEquals("sts.eu-west-1.amazonaws.com", request.getHost());
+        assertFalse(request.getHeaders().containsKey("Authorization"));
+        assertEquals("Action=AssumeRoleWithWebIdentity&Version=2011-06-15" +
+                "&RoleArn=arn%3Aaws%3Aiam%3A%3A123456789012%3Arole%2Fapp&RoleSessionName=app-session" +
+                "&WebIdentityToken=eyJ.web%2Bidentity%2Ftoken", new String(request.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private static class FailingProvider extends SimpleCredentialsProvider {
+        @Override
+        public Credentials getCredentials() {
+            throw new IllegalStateException("nope");
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.kulminaator.s3.auth;
+
+import com.github.kulminaator.s3.http.HttpClient;
+import com.github.kulminaator.s3.http.HttpRequest;
+import com.github.kulminaator.s3.http.HttpResponse;
+import com.github.kulminaator.s3.http.PicoHttpClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tiny imitation of the ec2 instance metadata service, the parts that serve instance profile credentials,
+ * served over real http on localhost. Like on hardened images IMDSv2 is required by default, requests without a
+ * session token are refused. The same credentials are served to containers under /v2/credentials/, like the ecs
+ * container endpoint does.
+ */
+public class FakeMetadataServer {
+
+    private static final String TOKEN_PATH = "/latest/api/token";
+    private static final String CREDENTIALS_PATH = "/latest/meta-data/iam/security-credentials/";
+    private static final String CONTAINER_PATH = "/v2/credentials/";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> requestLog = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger tokenCounter = new AtomicInteger();
+    private volatile boolean tokensSupported = true;
+    private volatile String role = "my-role-name";
+    private volatile String accessKeyId = "key-1";
+    private volatile Instant expiration = Instant.parse("2037-05-17T15:09:54Z");
+    private volatile long delayMillis;
+    private volatile boolean failing;
+
+    public FakeMetadataServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * @return A http client that sends all requests to this server instead of 169.254.169.254.
+     */
+    public HttpClient httpClient() {
+        final HttpClient delegate = new PicoHttpClient();
+        final String address = "127.0.0.1:" + this.server.getAddress().getPort();
+        return new HttpClient() {
+            @Override
+            public HttpResponse makeRequest(HttpRequest request) throws IOException {
+                request.setHost(address);
+                return delegate.makeRequest(request);
+            }
+
+            @Override
+            public HttpResponse makeStreamingRequest(HttpRequest request) throws IOException {
+                request.setHost(address);
+                return delegate.makeStreamingRequest(request);
+            }
+        };
+    }
+
+    /**
+     * Sets the credentials served from now on, the secret and token are derived from the key id.
+     */
+    public void setCredentials(String accessKeyId, Instant expiration) {
+        this.accessKeyId = accessKeyId;
+        this.expiration = expiration;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    /**
+     * Turns IMDSv2 off, the token PUT gets a 404 and requests without a token are served.
+     */
+    public void setTokensSupported(boolean tokensSupported) {
+        this.tokensSupported = tokensSupported;
+    }
+
+    /**
+     * Makes the tokens handed out so far invalid, requests with them get a 401.
+     */
+    public void revokeTokens() {
+        this.tokens.clear();
+    }
+
+    /**
+     * Makes every response wait the given time before it is sent, like a busy metadata service would.
+     */
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Makes every request fail with http 500 until turned off again.
+     */
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    /**
+     * @return Requests received so far as "METHOD /path".
+     */
+    public List<String> getRequestLog() {
+        synchronized (this.requestLog) {
+            return new ArrayList<>(this.requestLog);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final String path = exchange.getRequestURI().getRawPath();
+            this.requestLog.add(method + " " + path);
+            if (this.delayMillis > 0) {
+                Thread.sleep(this.delayMillis);
+            }
+            if (this.failing) {
+                respond(exchange, 500, "");
+            } else if ("GET".equals(method) && path.startsWith(CONTAINER_PATH)) {
+                respond(exchange, 200, this.credentialsJson());
+            } else if ("PUT".equals(method) && TOKEN_PATH.equals(path)) {
+                if (!this.tokensSupported) {
+                    respond(exchange, 404, "");
+                } else if (exchange.getRequestHeaders().getFirst("X-aws-ec2-metadata-token-ttl-seconds") == null) {
+                    respond(exchange, 400, "");
+                } else {
+                    final String token = "token-" + this.tokenCounter.incrementAndGet();
+                    this.tokens.add(token);
+                    respond(exchange, 200, token);
+                }
+            } else if (this.tokensSupported
+                    && !this.tokens.contains(String.valueOf(exchange.getRequestHeaders().getFirst(
+                            "X-aws-ec2-metadata-token")))) {
+                respond(exchange, 401, "");
+            } else if ("GET".equals(method) && CREDENTIALS_PATH.equals(path)) {
+                respond(exchange, 200, this.role);
+            } else if ("GET".equals(method) && (CREDENTIALS_PATH + this.role).equals(path)) {
+                respond(exchange, 200, this.credentialsJson());
+            } else {
+                respond(exchange, 404, "");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String credentialsJson() {
+        return "{\n" +
+                "  \"Code\" : \"Success\",\n" +
+                "  \"LastUpdated\" : \"2012-04-26T16:39:16Z\",\n" +
+                "  \"Type\" : \"AWS-HMAC\",\n" +
+                "  \"AccessKeyId\" : \"" + this.accessKeyId + "\",\n" +
+                "  \"SecretAccessKey\" : \"secret-of-" + this.accessKeyId + "\",\n" +
+                "  \"Token\" : \"token-of-" + this.accessKeyId + "\",\n" +
+                "  \"Expiration\" : \"" + this.expiration + "\"\n" +
+                "}";
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        }
+    }
+}
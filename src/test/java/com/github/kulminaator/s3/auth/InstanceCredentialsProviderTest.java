@@ -10,7 +10,18 @@ import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -25,11 +36,13 @@ public class InstanceCredentialsProviderTest {
         InstanceCredentialsProvider provider = new InstanceCredentialsProvider(customClient);
 
 
+        HttpResponse tokenData = new HttpResponse();
+        tokenData.setBody("metadata-session-token".getBytes(StandardCharsets.UTF_8));
         HttpResponse roleData = new HttpResponse();
         roleData.setBody("my-role-name".getBytes(StandardCharsets.UTF_8));
         HttpResponse response = new HttpResponse();
         response.setBody(expectedAmazonResponse().getBytes(StandardCharsets.UTF_8));
-        when(customClient.makeRequest(any())).thenReturn(roleData, response);
+        when(customClient.makeRequest(any())).thenReturn(tokenData, roleData, response);
 
         //when
         String accessKeyId = provider.getAccessKeyId();
@@ -38,20 +51,28 @@ public class InstanceCredentialsProviderTest {
 
         //then
         ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
-        verify(customClient, times(2)).makeRequest(captor.capture());
+        verify(customClient, times(3)).makeRequest(captor.capture());
 
         List<HttpRequest> allRequests = captor.getAllValues();
-        HttpRequest firstRequest = allRequests.get(0);
-        HttpRequest secondRequest = allRequests.get(1);
+        HttpRequest tokenRequest = allRequests.get(0);
+        HttpRequest firstRequest = allRequests.get(1);
+        HttpRequest secondRequest = allRequests.get(2);
+
+        assertEquals("169.254.169.254", tokenRequest.getHost());
+        assertEquals("PUT", tokenRequest.getMethod());
+        assertEquals("/latest/api/token", tokenRequest.getPath());
+        assertEquals("21600", tokenRequest.getHeaders().get("X-aws-ec2-metadata-token-ttl-seconds").get(0));
 
         assertEquals("169.254.169.254", firstRequest.getHost());
         assertEquals("http", firstRequest.getProtocol());
         assertEquals("/latest/meta-data/iam/security-credentials/", firstRequest.getPath());
+        assertEquals("metadata-session-token", firstRequest.getHeaders().get("X-aws-ec2-metadata-token").get(0));
         assertNull(null, firstRequest.getParams());
 
         assertEquals("169.254.169.254", secondRequest.getHost());
         assertEquals("http", secondRequest.getProtocol());
         assertEquals("/latest/meta-data/iam/security-credentials/my-role-name", secondRequest.getPath());
+        assertEquals("metadata-session-token", secondRequest.getHeaders().get("X-aws-ec2-metadata-token").get(0));
         assertNull(null, secondRequest.getParams());
 
         assertEquals(accessKeyId, "expected-key-id");
@@ -66,6 +87,8 @@ public class InstanceCredentialsProviderTest {
         HttpClient customClient = mock(HttpClient.class);
         InstanceCredentialsProvider provider = new InstanceCredentialsProvider(customClient);
 
+        HttpResponse tokenData = new HttpResponse();
+        tokenData.setBody("metadata-session-token".getBytes(StandardCharsets.UTF_8));
         HttpResponse roleData = new HttpResponse();
         roleData.setBody("my-role-name".getBytes(StandardCharsets.UTF_8));
         HttpResponse expiredResponse = new HttpResponse();
@@ -73,7 +96,7 @@ public class InstanceCredentialsProviderTest {
         HttpResponse goodResponse = new HttpResponse();
         goodResponse.setBody(expectedAmazonResponse().getBytes(StandardCharsets.UTF_8));
 
-        when(customClient.makeRequest(any())).thenReturn(roleData, expiredResponse, goodResponse);
+        when(customClient.makeRequest(any())).thenReturn(tokenData, roleData, expiredResponse, goodResponse);
 
         //when
         String accessKeyId = provider.getAccessKeyId();
@@ -82,6 +105,7 @@ public class InstanceCredentialsProviderTest {
 
         //then
 
+        // the token and the role name are reused by the reload
         verify(customClient, times(4)).makeRequest(any());
 
         // our first request returned expired response
@@ -93,6 +117,199 @@ public class InstanceCredentialsProviderTest {
         assertEquals(token, "expected-long-long-token-text");
     }
 
+    @Test
+    public void concurrent_first_use_loads_once() throws Exception {
+        // given
+        final FakeMetadataServer server = new FakeMetadataServer();
+        server.setDelayMillis(200);
+        final InstanceCredentialsProvider provider = new InstanceCredentialsProvider(server.httpClient());
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        try {
+            // when
+            final List<Future<Credentials>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(provider::getCredentials));
+            }
+
+            // then
+            final Set<String> keys = new HashSet<>();
+            for (final Future<Credentials> result : results) {
+                keys.add(result.get().getAccessKeyId());
+            }
+            assertEquals(1, keys.size());
+            assertEquals(3, server.getRequestLog().size());
+        } finally {
+            executor.shutdown();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void refreshes_ahead_of_expiry_in_the_background() throws Exception {
+        // given
+        final Instant start = Instant.parse("2030-01-01T10:00:00Z");
+        final FakeMetadataServer server = new FakeMetadataServer();
+        server.setCredentials("key-1", start.plus(Duration.ofMinutes(10)));
+        final List<Runnable> refreshes = new ArrayList<>();
+        final InstanceCredentialsProvider provider = new InstanceCredentialsProvider(server.httpClient());
+        provider.setRefresher(refreshes::add);
+        provider.setClock(Clock.fixed(start, ZoneOffset.UTC));
+        provider.getCredentials();
+        server.setCredentials("key-2", start.plus(Duration.ofHours(6)));
+
+        try {
+            // when
+            provider.setClock(Clock.fixed(start.plus(Duration.ofMinutes(6)), ZoneOffset.UTC));
+            final Credentials during = provider.getCredentials();
+            provider.getCredentials();
+
+            // then
+            assertEquals("key-1", during.getAccessKeyId());
+            assertEquals(1, refreshes.size());
+            assertEquals(3, server.getRequestLog().size());
+
+            // when
+            refreshes.get(0).run();
+            final Credentials after = provider.getCredentials();
+
+            // then
+            assertEquals("key-2", after.getAccessKeyId());
+            assertEquals("secret-of-key-2", after.getSecretAccessKey());
+            assertEquals("token-of-key-2", after.getSessionToken());
+            assertEquals(1, refreshes.size());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void serves_current_credentials_while_metadata_service_fails() throws Exception {
+        // given
+        final Instant start = Instant.parse("2030-01-01T10:00:00Z");
+        final FakeMetadataServer server = new FakeMetadataServer();
+        server.setCredentials("key-1", start.plus(Duration.ofMinutes(10)));
+        final List<Runnable> refreshes = new ArrayList<>();
+        final InstanceCredentialsProvider provider = new InstanceCredentialsProvider(server.httpClient());
+        provider.setRefresher(refreshes::add);
+        provider.setClock(Clock.fixed(start, ZoneOffset.UTC));
+        provider.getCredentials();
+        server.setFailing(true);
+
+        try {
+            // when
+            provider.setClock(Clock.fixed(start.plus(Duration.ofMinutes(6)), ZoneOffset.UTC));
+            provider.getCredentials();
+            refreshes.get(0).run();
+            final Credentials stale = provider.getCredentials();
+
+            // then
+            assertEquals("key-1", stale.getAccessKeyId());
+            assertEquals("retried a bit later, not on every request", 1, refreshes.size());
+
+            // when
+            provider.setClock(Clock.fixed(start.plus(Duration.ofMinutes(7)), ZoneOffset.UTC));
+            provider.getCredentials();
+
+            // then
+            assertEquals(2, refreshes.size());
+
+            // when
+            provider.setClock(Clock.fixed(start.plus(Duration.ofMinutes(10)), ZoneOffset.UTC));
+            try {
+                provider.getCredentials();
+                fail("expired credentials must not be used");
+            } catch (IllegalStateException expected) {
+                // then
+                assertTrue(expected.getMessage().length() > 0);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void refresh_reuses_metadata_session_and_role() throws Exception {
+        // given
+        final Instant start = Instant.parse("2030-01-01T10:00:00Z");
+        final FakeMetadataServer server = new FakeMetadataServer();
+        server.setCredentials("key-1", start.plus(Duration.ofMinutes(10)));
+        final InstanceCredentialsProvider provider = new InstanceCredentialsProvider(server.httpClient());
+        provider.setRefresher(Runnable::run);
+        provider.setClock(Clock.fixed(start, ZoneOffset.UTC));
+        provider.getCredentials();
+        server.setCredentials("key-2", start.plus(Duration.ofHours(6)));
+
+        try {
+            // when
+            provider.setClock(Clock.fixed(start.plus(Duration.ofMinutes(6)), ZoneOffset.UTC));
+            provider.getCredentials();
+
+            // then
+            assertEquals("key-2", provider.getAccessKeyId());
+            assertEquals(Arrays.asList(
+                    "PUT /latest/api/token",
+                    "GET /latest/meta-data/iam/security-credentials/",
+                    "GET /latest/meta-data/iam/security-credentials/my-role-name",
+                    "GET /latest/meta-data/iam/security-credentials/my-role-name"), server.getRequestLog());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void starts_over_when_token_or_role_are_gone() throws Exception {
+        // given
+        final Instant start = Instant.parse("2030-01-01T10:00:00Z");
+        final FakeMetadataServer server = new FakeMetadataServer();
+        server.setCredentials("key-1", start.plus(Duration.ofMinutes(10)));
+        final InstanceCredentialsProvider provider = new InstanceCredentialsProvider(server.httpClient());
+        provider.setClock(Clock.fixed(start, ZoneOffset.UTC));
+        provider.getCredentials();
+
+        try {
+            // when
+            server.revokeTokens();
+            server.setRole("other-role");
+            server.setCredentials("key-2", start.plus(Duration.ofHours(6)));
+            provider.setClock(Clock.fixed(start.plus(Duration.ofMinutes(11)), ZoneOffset.UTC));
+            final Credentials credentials = provider.getCredentials();
+
+            // then
+            assertEquals("key-2", credentials.getAccessKeyId());
+            assertEquals(Arrays.asList(
+                    "PUT /latest/api/token",
+                    "GET /latest/meta-data/iam/security-credentials/",
+                    "GET /latest/meta-data/iam/security-credentials/my-role-name",
+                    "GET /latest/meta-data/iam/security-credentials/my-role-name",
+                    "PUT /latest/api/token",
+                    "GET /latest/meta-data/iam/security-credentials/",
+                    "GET /latest/meta-data/iam/security-credentials/other-role"), server.getRequestLog());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void falls_back_to_imdsv1() throws Exception {
+        // given
+        final FakeMetadataServer server = new FakeMetadataServer();
+        server.setTokensSupported(false);
+        final InstanceCredentialsProvider provider = new InstanceCredentialsProvider(server.httpClient());
+
+        try {
+            // when
+            final Credentials credentials = provider.getCredentials();
+
+            // then
+            assertEquals("key-1", credentials.getAccessKeyId());
+            assertEquals("secret-of-key-1", credentials.getSecretAccessKey());
+            assertEquals(3, server.getRequestLog().size());
+        } finally {
+            server.stop();
+        }
+    }
+
     /**
      * Only run this test in an ec2 instance :)
      */
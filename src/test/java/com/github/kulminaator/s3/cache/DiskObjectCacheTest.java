@@ -0,0 +1,96 @@
+package com.github.kulminaator.s3.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DiskObjectCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keeps_objects_across_instances() throws IOException {
+        // given
+        final Path directory = this.folder.newFolder("cache").toPath();
+        new DiskObjectCache(directory, 1024).put("bucket/päth/config.json", new CachedObject("\"etag\"",
+                "Sun, 23 Sep 2018 10:34:17 GMT", null, "AES256", "{}".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        final DiskObjectCache cache = new DiskObjectCache(directory, 1024);
+        final CachedObject object = cache.get("bucket/päth/config.json");
+
+        // then
+        assertNotNull(object);
+        assertEquals("\"etag\"", object.getETag());
+        assertEquals("Sun, 23 Sep 2018 10:34:17 GMT", object.getLastModified());
+        assertNull(object.getContentType());
+        assertEquals("AES256", object.getServerSideEncryption());
+        assertEquals("{}", new String(object.getData(), StandardCharsets.UTF_8));
+        assertTrue(cache.getBytes() > 0);
+        assertNull(cache.get("bucket/other.json"));
+    }
+
+    @Test
+    public void evicts_least_recently_used_files() throws IOException {
+        // given
+        final Path directory = this.folder.newFolder("cache").toPath();
+        final DiskObjectCache cache = new DiskObjectCache(directory, 300);
+        cache.put("bucket/a", object(100));
+        cache.put("bucket/b", object(100));
+        this.ageFiles(directory);
+        cache.get("bucket/a");
+
+        // when
+        cache.put("bucket/c", object(100));
+
+        // then
+        assertNotNull(cache.get("bucket/a"));
+        assertNull(cache.get("bucket/b"));
+        assertNotNull(cache.get("bucket/c"));
+        assertTrue(cache.getBytes() <= 300);
+    }
+
+    @Test
+    public void drops_broken_files() throws IOException {
+        // given
+        final Path directory = this.folder.newFolder("cache").toPath();
+        final DiskObjectCache cache = new DiskObjectCache(directory, 1024);
+        cache.put("bucket/a", object(100));
+        try (Stream<Path> files = Files.list(directory)) {
+            final Path file = files.findFirst().get();
+            Files.write(file, new byte[]{0, 5, 'b'});
+        }
+
+        // when
+        final CachedObject object = cache.get("bucket/a");
+
+        // then
+        assertNull(object);
+        assertEquals(0, cache.getBytes());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private void ageFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+            }
+        }
+    }
+
+    private static CachedObject object(int size) {
+        return new CachedObject("\"etag\"", null, null, null, new byte[size]);
+    }
+}
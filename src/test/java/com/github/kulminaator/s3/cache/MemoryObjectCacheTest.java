@@ -0,0 +1,88 @@
+package com.github.kulminaator.s3.cache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MemoryObjectCacheTest {
+
+    @Test
+    public void evicts_least_recently_used_objects() {
+        // given
+        final MemoryObjectCache cache = new MemoryObjectCache(30);
+        cache.put("bucket/a", object(10));
+        cache.put("bucket/b", object(10));
+        cache.put("bucket/c", object(10));
+        cache.get("bucket/a");
+
+        // when
+        cache.put("bucket/d", object(10));
+
+        // then
+        assertNotNull(cache.get("bucket/a"));
+        assertNull(cache.get("bucket/b"));
+        assertNotNull(cache.get("bucket/c"));
+        assertNotNull(cache.get("bucket/d"));
+        assertEquals(30, cache.getBytes());
+    }
+
+    @Test
+    public void does_not_keep_objects_bigger_than_the_cache() {
+        // given
+        final MemoryObjectCache cache = new MemoryObjectCache(30);
+        cache.put("bucket/a", object(10));
+
+        // when
+        cache.put("bucket/a", object(31));
+
+        // then
+        assertNull(cache.get("bucket/a"));
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void falls_back_to_next_tier() {
+        // given
+        final MapObjectCache disk = new MapObjectCache();
+        final MemoryObjectCache cache = new MemoryObjectCache(10, disk);
+        cache.put("bucket/a", object(10));
+        cache.put("bucket/b", object(10));
+
+        // when
+        final CachedObject fromDisk = cache.get("bucket/a");
+
+        // then
+        assertNotNull(fromDisk);
+        assertEquals(2, disk.objects.size());
+        // promoted into memory, pushing b out
+        disk.objects.clear();
+        assertNotNull(cache.get("bucket/a"));
+        assertNull(cache.get("bucket/b"));
+    }
+
+    private static CachedObject object(int size) {
+        return new CachedObject("\"etag\"", null, "application/json", null, new byte[size]);
+    }
+
+    private static class MapObjectCache implements ObjectCache {
+        private final Map<String, CachedObject> objects = new HashMap<>();
+
+        @Override
+        public CachedObject get(String key) {
+            return this.objects.get(key);
+        }
+
+        @Override
+        public void put(String key, CachedObject object) {
+            this.objects.put(key, object);
+        }
+
+        @Override
+        public void remove(String key) {
+            this.objects.remove(key);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.kulminaator.s3.cache;
+
+import com.github.kulminaator.s3.S3Object;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class MetadataCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private MetadataCache cache;
+
+    @Before
+    public void setUp() {
+        this.cache = new MetadataCache.Builder().withTtl(1000).withNotFoundTtl(100).withMaxEntries(2).build();
+        this.cache.setNanoClock(this.now::get);
+    }
+
+    @Test
+    public void serves_metadata_until_it_expires() {
+        // given
+        this.cache.get("bucket/a", this.existing(10));
+
+        // when
+        this.advanceMillis(999);
+        final S3Object cached = this.cache.get("bucket/a", this.existing(20));
+        this.advanceMillis(1);
+        final S3Object reloaded = this.cache.get("bucket/a", this.existing(20));
+
+        // then
+        assertEquals(Long.valueOf(10), cached.getSize());
+        assertEquals(Long.valueOf(20), reloaded.getSize());
+        assertEquals(2, this.loads.get());
+        assertEquals(1, this.cache.getHitCount());
+        assertEquals(2, this.cache.getMissCount());
+    }
+
+    @Test
+    public void remembers_missing_objects_for_a_shorter_time() {
+        // given
+        this.expectNotFound("bucket/a");
+
+        // when
+        this.advanceMillis(99);
+        this.expectNotFound("bucket/a");
+        this.advanceMillis(1);
+        final S3Object created = this.cache.get("bucket/a", this.existing(10));
+
+        // then
+        assertEquals(Long.valueOf(10), created.getSize());
+        assertEquals(2, this.loads.get());
+        assertEquals(1, this.cache.getHitCount());
+    }
+
+    @Test
+    public void evicts_least_recently_used_entries() {
+        // given
+        this.cache.get("bucket/a", this.existing(1));
+        this.cache.get("bucket/b", this.existing(2));
+        this.cache.get("bucket/a", this.existing(1));
+
+        // when
+        this.cache.get("bucket/c", this.existing(3));
+
+        // then
+        assertEquals(2, this.cache.size());
+        assertEquals(1, this.cache.getEvictionCount());
+        this.cache.get("bucket/a", this.existing(1));
+        assertEquals(3, this.loads.get());
+        this.cache.get("bucket/b", this.existing(2));
+        assertEquals(4, this.loads.get());
+    }
+
+    @Test
+    public void does_not_keep_answers_outdated_by_invalidation() {
+        // when
+        this.cache.get("bucket/a", key -> {
+            this.cache.invalidate(key);
+            return this.existing(10).apply(key);
+        });
+        this.cache.get("bucket/a", this.existing(20));
+        final S3Object cached = this.cache.get("bucket/a", this.existing(30));
+
+        // then
+        assertEquals(Long.valueOf(20), cached.getSize());
+    }
+
+    @Test
+    public void hands_out_copies() {
+        // given
+        this.cache.get("bucket/a", this.existing(10)).setSize(99L);
+
+        // when
+        final S3Object cached = this.cache.get("bucket/a", this.existing(20));
+
+        // then
+        assertEquals(Long.valueOf(10), cached.getSize());
+    }
+
+    private void expectNotFound(String key) {
+        try {
+            this.cache.get(key, missing -> {
+                this.loads.incrementAndGet();
+                throw new S3ServiceException(404, null, null, "request-1", false, null);
+            });
+            fail("expected a 404");
+        } catch (S3ServiceException e) {
+            assertEquals(404, e.getHttpCode());
+        }
+    }
+
+    private Function<String, S3Object> existing(long size) {
+        return key -> {
+            this.loads.incrementAndGet();
+            final S3Object object = new S3Object();
+            object.setKey(key);
+            object.setSize(size);
+            return object;
+        };
+    }
+
+    private void advanceMillis(long millis) {
+        this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.kulminaator.s3.checksum;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChecksumAlgorithmTest {
+
+    @Test
+    public void computes_check_values_of_both_crcs() {
+        // given
+        final byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        final Checksum crc32c = new ReflectedCrc(ReflectedCrc.CRC32C_TABLES, 32);
+        final Checksum crc64 = ChecksumAlgorithm.CRC64NVME.newChecksum();
+
+        // when
+        crc32c.update(check, 0, check.length);
+        crc64.update(check, 0, check.length);
+
+        // then
+        assertEquals(0xE3069283L, crc32c.getValue());
+        assertEquals(0xAE8B14860A799888L, crc64.getValue());
+        assertEquals("4waSgw==", ChecksumAlgorithm.CRC32C.checksum(check));
+        assertEquals("rosUhgp5mIg=", ChecksumAlgorithm.CRC64NVME.encode(crc64));
+        assertEquals(8, ChecksumAlgorithm.CRC32C.getEncodedLength());
+        assertEquals(12, ChecksumAlgorithm.CRC64NVME.getEncodedLength());
+    }
+
+    @Test
+    public void table_driven_crc32c_matches_the_jdk_one_in_pieces() {
+        // given
+        final byte[] data = new byte[10_007];
+        new Random(42).nextBytes(data);
+        final Checksum sliced = new ReflectedCrc(ReflectedCrc.CRC32C_TABLES, 32);
+        final Checksum reference = ChecksumAlgorithm.CRC32C.newChecksum();
+
+        // when
+        int position = 0;
+        for (int piece = 1; position < data.length; piece = piece * 3 % 61 + 1) {
+            final int length = Math.min(piece, data.length - position);
+            if (length == 1) {
+                sliced.update(data[position]);
+            } else {
+                sliced.update(data, position, length);
+            }
+            position += length;
+        }
+        reference.update(data, 0, data.length);
+
+        // then
+        assertEquals(reference.getValue(), sliced.getValue());
+    }
+
+    @Test
+    public void stream_fails_at_the_end_of_corrupted_data() throws IOException {
+        // given
+        final byte[] data = "test-data".getBytes(StandardCharsets.UTF_8);
+        final InputStream good = new ChecksumInputStream(new ByteArrayInputStream(data),
+                ChecksumAlgorithm.CRC32C, "LkpuRw==");
+        final InputStream bad = new ChecksumInputStream(new ByteArrayInputStream(data),
+                ChecksumAlgorithm.CRC64NVME, "AAAAAAAAAAA=");
+
+        // when
+        final byte[] buffer = new byte[4];
+        int total = 0;
+        for (int read = 0; read >= 0; read = good.read(buffer)) {
+            total += read;
+        }
+
+        // then
+        assertEquals(9, total);
+        assertEquals(4, bad.read(buffer));
+        assertEquals(0, bad.skip(-1));
+        assertEquals(5, bad.skip(5));
+        try {
+            bad.read();
+            fail("mismatch expected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().startsWith("CRC64NVME checksum mismatch, expected AAAAAAAAAAA="));
+        }
+    }
+}
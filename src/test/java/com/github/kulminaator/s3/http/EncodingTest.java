@@ -0,0 +1,45 @@
+package com.github.kulminaator.s3.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class EncodingTest {
+
+    @Test
+    public void hex_encodes_bytes_in_lowercase() {
+        assertEquals("00017f80ff", Encoding.hex(new byte[]{0, 1, 127, -128, -1}));
+        assertEquals("", Encoding.hex(new byte[0]));
+    }
+
+    @Test
+    public void uri_encodes_like_aws_expects() {
+        assertEquals("my-object-folder%2Fs%E2%82%ACcret-subfolder",
+                Encoding.uriEncode("my-object-folder/s€cret-subfolder", true));
+        assertEquals("my-object-folder/s%E2%82%ACcret%20file.txt",
+                Encoding.uriEncode("my-object-folder/s€cret file.txt", false));
+        assertEquals("a%2Bb%3Dc%26%C3%B5~", Encoding.uriEncode("a+b=c&õ~", true));
+    }
+
+    @Test
+    public void uri_encodes_characters_outside_basic_plane_as_one_code_point() {
+        final String emoji = new String(new int[]{0x1F600}, 0, 1);
+
+        assertEquals("%F0%9F%98%80", Encoding.uriEncode(emoji, true));
+        assertEquals("%3F", Encoding.uriEncode(emoji.substring(0, 1), true));
+    }
+
+    @Test
+    public void returns_input_when_nothing_to_encode() {
+        final String plain = "folder/plain-object_1.txt";
+
+        assertSame(plain, Encoding.uriEncode(plain, false));
+        assertSame(plain, Encoding.collapseSpaces(plain));
+    }
+
+    @Test
+    public void collapses_repeated_spaces() {
+        assertEquals("a b c ", Encoding.collapseSpaces("a  b   c    "));
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.kulminaator.s3.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PicoHttpClientTest {
+
+    private static final int OBJECT_SIZE = 4 * 1024 * 1024 + 13;
+
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final AtomicInteger maxInProgress = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/big-object", exchange -> {
+            exchange.sendResponseHeaders(200, OBJECT_SIZE);
+            try (OutputStream out = exchange.getResponseBody()) {
+                final byte[] block = new byte[8192];
+                int left = OBJECT_SIZE;
+                int counter = 0;
+                while (left > 0) {
+                    final int size = Math.min(block.length, left);
+                    for (int i = 0; i < size; i++) {
+                        block[i] = (byte) (counter++ % 251);
+                    }
+                    out.write(block, 0, size);
+                    left -= size;
+                }
+            }
+        });
+        this.server.createContext("/small-object", exchange -> {
+            this.clientPorts.add(exchange.getRemoteAddress().getPort());
+            final int current = this.inProgress.incrementAndGet();
+            this.maxInProgress.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.inProgress.decrementAndGet();
+            final byte[] body = "small".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.createContext("/missing", exchange -> {
+            this.clientPorts.add(exchange.getRemoteAddress().getPort());
+            final byte[] body = "<Error><Code>NoSuchKey</Code></Error>".getBytes();
+            exchange.sendResponseHeaders(404, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void streams_response_body_without_buffering() throws IOException {
+        // given
+        final PicoHttpClient client = new PicoHttpClient();
+
+        // when
+        final HttpResponse response = client.makeStreamingRequest(this.buildRequest("/big-object"));
+
+        // then
+        assertEquals(200, response.getHttpCode());
+        assertNull(response.getBody());
+        assertFalse(response.getBodyStream() instanceof ByteArrayInputStream);
+
+        long total = 0;
+        int counter = 0;
+        try (InputStream stream = response.getBodyStream()) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    assertEquals((byte) (counter++ % 251), buffer[i]);
+                }
+                total += read;
+            }
+        }
+        assertEquals(OBJECT_SIZE, total);
+    }
+
+    @Test
+    public void streaming_request_fails_on_error_codes() throws IOException {
+        // given
+        final PicoHttpClient client = new PicoHttpClient();
+
+        // when
+        Exception thrown = null;
+        try {
+            client.makeStreamingRequest(this.buildRequest("/missing"));
+        } catch (IllegalStateException e) {
+            thrown = e;
+        }
+
+        // then
+        assertNotNull(thrown);
+    }
+
+    @Test
+    public void reuses_connections_between_requests() throws IOException {
+        // given
+        final PicoHttpClient client = new PicoHttpClient();
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            assertEquals("small", new String(client.makeRequest(this.buildRequest("/small-object")).getBody()));
+        }
+        try (InputStream stream = client.makeStreamingRequest(this.buildRequest("/small-object")).getBodyStream()) {
+            assertEquals('s', stream.read());
+        }
+        try {
+            client.makeRequest(this.buildRequest("/missing"));
+            fail("404 should fail");
+        } catch (IllegalStateException expected) {
+            // error responses are drained too, the connection stays usable
+        }
+        client.makeRequest(this.buildRequest("/small-object"));
+
+        // then
+        assertEquals(1, this.clientPorts.size());
+    }
+
+    @Test
+    public void limits_connections_per_host() throws Exception {
+        // given
+        final PicoHttpClient client = new PicoHttpClient.Builder().withMaxConnectionsPerHost(2).build();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        final List<Future<HttpResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            responses.add(executor.submit(() -> client.makeRequest(this.buildRequest("/small-object"))));
+        }
+        for (final Future<HttpResponse> response : responses) {
+            assertEquals(200, response.get().getHttpCode());
+        }
+        executor.shutdown();
+
+        // then
+        assertTrue(this.maxInProgress.get() <= 2);
+        assertTrue(this.clientPorts.size() <= 2);
+    }
+
+    @Test(timeout = 10_000)
+    public void gives_permit_back_when_connection_cannot_be_created() throws IOException {
+        // given
+        final PicoHttpClient client = new PicoHttpClient.Builder().withMaxConnectionsPerHost(1).build();
+        final HttpRequest bogus = this.buildRequest("/small-object");
+        bogus.setMethod("BOGUS");
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.makeRequest(bogus);
+                fail("unknown method should fail");
+            } catch (ProtocolException expected) {
+                // refused before any connection was made
+            }
+        }
+
+        // then
+        assertEquals(200, client.makeRequest(this.buildRequest("/small-object")).getHttpCode());
+    }
+
+    private HttpRequest buildRequest(String path) {
+        final HttpRequest request = new HttpRequest();
+        request.setProtocol("http");
+        request.setHost("127.0.0.1:" + this.server.getAddress().getPort());
+        request.setPath(path);
+        request.setConnectTimeout(5000);
+        request.setReadTimeout(5000);
+        return request;
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.kulminaator.s3.retry;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(this.now::get);
+
+    @Test
+    public void does_not_limit_before_throttling() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, this.limiter.reserve());
+        }
+        assertFalse(this.limiter.isEnabled());
+    }
+
+    @Test
+    public void limits_below_the_throttled_send_rate() {
+        // given
+        this.sendForOneSecond(100);
+
+        // when
+        this.limiter.onThrottle();
+
+        // then
+        assertTrue(this.limiter.isEnabled());
+        assertEquals(70, this.limiter.getRate(), 1);
+        // the bucket starts empty, requests in the same instant queue up 1/70 s apart
+        assertEquals(TimeUnit.SECONDS.toNanos(1) / 70, this.limiter.reserve(), 1000);
+        assertEquals(2 * TimeUnit.SECONDS.toNanos(1) / 70, this.limiter.reserve(), 1000);
+    }
+
+    @Test
+    public void decreases_once_per_interval_and_recovers_on_success() {
+        // given
+        this.sendForOneSecond(100);
+        this.limiter.onThrottle();
+        final double initial = this.limiter.getRate();
+
+        // when
+        this.limiter.onThrottle();
+
+        // then
+        assertEquals(initial, this.limiter.getRate(), 0.0001);
+
+        // when
+        this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        this.limiter.onThrottle();
+
+        // then
+        final double decreased = this.limiter.getRate();
+        assertEquals(initial * 0.7, decreased, 0.0001);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            this.limiter.onSuccess();
+        }
+
+        // then
+        assertTrue(this.limiter.getRate() > decreased);
+    }
+
+    @Test
+    public void turns_off_when_the_client_slows_down() {
+        // given
+        this.sendForOneSecond(100);
+        this.limiter.onThrottle();
+
+        // when
+        this.sendForOneSecond(10);
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        this.limiter.reserve();
+
+        // then
+        assertFalse(this.limiter.isEnabled());
+    }
+
+    @Test
+    public void never_goes_below_the_minimum_rate() {
+        // given
+        this.limiter.onThrottle();
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            this.now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            this.limiter.onThrottle();
+        }
+
+        // then
+        assertEquals(AdaptiveRateLimiter.MIN_RATE, this.limiter.getRate(), 0.0001);
+    }
+
+    private void sendForOneSecond(int requests) {
+        final long step = TimeUnit.SECONDS.toNanos(1) / requests;
+        for (int i = 0; i < requests; i++) {
+            this.limiter.reserve();
+            this.now.addAndGet(step);
+        }
+    }
+}
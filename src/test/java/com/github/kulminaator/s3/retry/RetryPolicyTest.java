@@ -0,0 +1,80 @@
+package com.github.kulminaator.s3.retry;
+
+import com.github.kulminaator.s3.exception.S3AccessException;
+import com.github.kulminaator.s3.exception.S3ServiceException;
+import com.github.kulminaator.s3.http.HttpStatusException;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy.Builder().withBackoff(100, 1000).build();
+
+    @Test
+    public void retries_server_errors_and_network_failures() {
+        assertTrue(this.policy.shouldRetry(1, status(503)));
+        assertTrue(this.policy.shouldRetry(2, status(500)));
+        assertTrue(this.policy.shouldRetry(1, status(429)));
+        assertFalse(this.policy.shouldRetry(3, status(503)));
+        assertFalse(this.policy.shouldRetry(1, status(404)));
+        assertFalse(this.policy.shouldRetry(1, status(403)));
+
+        assertTrue(this.policy.shouldRetry(1, new S3AccessException(new SocketException("Connection reset"))));
+        assertTrue(this.policy.shouldRetry(1,
+                new IllegalStateException("Unexpected http result", new SocketTimeoutException("Read timed out"))));
+        assertFalse(this.policy.shouldRetry(1, new S3AccessException(new InterruptedIOException())));
+        assertFalse(this.policy.shouldRetry(1, new IllegalArgumentException("bad input")));
+        assertFalse(RetryPolicy.none().shouldRetry(1, status(503)));
+
+        assertTrue(this.policy.shouldRetry(1, new S3ServiceException(400, "RequestTimeout", null, null, true, null)));
+        assertTrue(this.policy.shouldRetry(1, new S3ServiceException(200, "InternalError", null, null, true, null)));
+        assertFalse(this.policy.shouldRetry(1, new S3ServiceException(403, "AccessDenied", null, null, false, null)));
+    }
+
+    @Test
+    public void backs_off_exponentially_with_full_jitter() {
+        for (int i = 0; i < 1000; i++) {
+            final long first = this.policy.getDelayMillis(1, status(503));
+            final long third = this.policy.getDelayMillis(3, status(503));
+            final long tenth = this.policy.getDelayMillis(10, status(503));
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(third >= 0 && third <= 400);
+            assertTrue(tenth >= 0 && tenth <= 1000);
+        }
+    }
+
+    @Test
+    public void waits_at_least_retry_after_but_not_beyond_max_delay() {
+        final Map<String, List<String>> headers = Collections.singletonMap("retry-after",
+                Collections.singletonList("0"));
+        assertTrue(this.policy.getDelayMillis(1, new HttpStatusException(503, headers, new byte[0])) <= 100);
+
+        final HttpStatusException oneSecond = new HttpStatusException(503,
+                Collections.singletonMap("Retry-After", Collections.singletonList("1")), new byte[0]);
+        assertEquals(1000, this.policy.getDelayMillis(1, oneSecond));
+
+        final HttpStatusException longWait = new HttpStatusException(503,
+                Collections.singletonMap("Retry-After", Collections.singletonList("120")), new byte[0]);
+        assertEquals(1000, this.policy.getDelayMillis(1, longWait));
+    }
+
+    @Test
+    public void recognizes_throttling() {
+        assertTrue(this.policy.isThrottling(status(503)));
+        assertTrue(this.policy.isThrottling(new S3AccessException("failed", status(429))));
+        assertFalse(this.policy.isThrottling(status(500)));
+        assertFalse(this.policy.isThrottling(new SocketException()));
+    }
+
+    private static HttpStatusException status(int httpCode) {
+        return new HttpStatusException(httpCode, Collections.emptyMap(), new byte[0]);
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.kulminaator.s3.xml;
+
+import com.github.kulminaator.s3.S3Object;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class S3XmlParserTest {
+
+    @Test
+    public void streamed_listing_matches_dom_parsing() throws Exception {
+        for (final String resource : new String[]{"s3_response_content.xml", "s3_subfolder_request_response.xml",
+                "pagination_s3_response_content_truncated.xml", "pagination_s3_response_content_final.xml"}) {
+            // given
+            final byte[] xml = this.readResource(resource);
+            final Document document = S3XmlParser.parseS3Xml(new String(xml, StandardCharsets.UTF_8));
+
+            // when
+            final List<S3Object> streamed = new ArrayList<>();
+            final ListingPage page = S3XmlParser.parseListing(new ByteArrayInputStream(xml), streamed::add);
+
+            // then
+            final List<S3Object> expected = S3XmlParser.parseObjectsFromXml(document);
+            assertEquals(resource, expected.size(), streamed.size());
+            assertEquals(resource, expected.size(), page.getKeyCount());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getKey(), streamed.get(i).getKey());
+                assertEquals(expected.get(i).getETag(), streamed.get(i).getETag());
+                assertEquals(expected.get(i).getSize(), streamed.get(i).getSize());
+                assertEquals(expected.get(i).getLastModified(), streamed.get(i).getLastModified());
+            }
+            assertEquals(resource, S3XmlParser.getNextContinuationToken(document), page.getNextContinuationToken());
+        }
+    }
+
+    @Test
+    public void skips_nested_elements_and_keeps_key_whitespace() {
+        // given
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">" +
+                "<Name>bucket</Name><IsTruncated>true</IsTruncated>" +
+                "<Contents><Key> spaced &amp; s€cret </Key><Owner><ID>abc</ID><DisplayName>me</DisplayName></Owner>" +
+                "<ETag>&quot;etag&quot;</ETag><Size>12</Size><StorageClass>STANDARD</StorageClass></Contents>" +
+                "<CommonPrefixes><Prefix>photos/</Prefix></CommonPrefixes>" +
+                "<CommonPrefixes><Prefix>videos/</Prefix></CommonPrefixes>" +
+                "<NextContinuationToken>next+token/=</NextContinuationToken></ListBucketResult>";
+        final InputStream input = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+
+        // when
+        final List<S3Object> objects = new ArrayList<>();
+        final ListingPage page = S3XmlParser.parseListing(input, objects::add);
+
+        // then
+        assertEquals(1, objects.size());
+        assertEquals(" spaced & s€cret ", objects.get(0).getKey());
+        assertEquals("\"etag\"", objects.get(0).getETag());
+        assertEquals(Long.valueOf(12), objects.get(0).getSize());
+        assertTrue(page.isTruncated());
+        assertEquals("next+token/=", page.getNextContinuationToken());
+        assertEquals(Arrays.asList("photos/", "videos/"), page.getCommonPrefixes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refuses_other_documents() {
+        final String xml = "<Error><Code>AccessDenied</Code></Error>";
+        S3XmlParser.parseListing(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), object -> { });
+    }
+
+    @Test
+    public void parses_error_documents() {
+        // given
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Error><Code>NoSuchKey</Code>" +
+                "<Message>The specified key does not exist.</Message><Key>a &amp; b</Key>" +
+                "<RequestId>4442587FB7D0A2F9</RequestId></Error>";
+
+        // when
+        final Map<String, String> error = S3XmlParser.parseError(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals("NoSuchKey", error.get("Code"));
+        assertEquals("The specified key does not exist.", error.get("Message"));
+        assertEquals("a & b", error.get("Key"));
+        assertEquals("4442587FB7D0A2F9", error.get("RequestId"));
+    }
+
+    @Test
+    public void ignores_bodies_that_are_not_error_documents() {
+        assertTrue(S3XmlParser.parseError(new ByteArrayInputStream(new byte[0])).isEmpty());
+        assertTrue(S3XmlParser.parseError(new ByteArrayInputStream(
+                "<html><body>Bad gateway</body></html>".getBytes(StandardCharsets.UTF_8))).isEmpty());
+        assertTrue(S3XmlParser.parseError(new ByteArrayInputStream(
+                "Service Unavailable".getBytes(StandardCharsets.UTF_8))).isEmpty());
+    }
+
+    private byte[] readResource(String resourceName) throws IOException, URISyntaxException {
+        final Path path = Paths.get(this.getClass().getClassLoader().getResource(resourceName).toURI());
+        return Files.readAllBytes(path);
+    }
+}